@@ -0,0 +1,166 @@
+package pt.up.fe.comp2023.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.Analysis;
+import pt.up.fe.comp2023.ClassFileBackend;
+import pt.up.fe.comp2023.MyJasminBackend;
+import pt.up.fe.comp2023.MySymbolTable;
+import pt.up.fe.comp2023.OllirBuilder;
+import pt.up.fe.comp2023.OllirPrinter;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.comp2023.generator.ProgramGenerator;
+import pt.up.fe.comp2023.optimization.Optimizer;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each stage of the compiler, and of the whole compilation, on the same inputs the tests use and on
+ * generated programs of growing size. Each stage runs on the output of the previous ones, which is computed once per
+ * trial, so only the stage itself is measured. The paths are relative to the project folder, where 'gradle jmh' runs
+ * the benchmarks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CompilerBenchmark {
+    @Param({
+            "test/pt/up/fe/comp/cp2/apps/HelloWorld.jmm",
+            "test/pt/up/fe/comp/cp2/apps/Simple.jmm",
+            "test/pt/up/fe/comp/cpf/4_jasmin/arrays/ComplexArrayAccess.jmm",
+            "test/pt/up/fe/comp/cpf/4_jasmin/control_flow/IfWhileNested.jmm",
+            "test/pt/up/fe/comp/cpf/4_jasmin/control_flow/SwitchStat.jmm",
+            "generated:10",
+            "generated:40",
+            "generated:160",
+    })
+    public String input;
+
+    /* 'generated:n' is a program made by ProgramGenerator with n methods, always from the same seed */
+    private static final String GENERATED = "generated:";
+    private static final long SEED = 2023;
+
+    /* every optimization runs, and registers are allocated as tightly as possible */
+    private final Map<String, String> config = new HashMap<>(Map.of("optimize", "true", "registerAllocation", "0"));
+
+    private String code;
+    private JmmParserResult parserResult;
+    private JmmSemanticsResult semanticsResult;
+    private ClassUnit ollirClass;
+
+    /* the optimizations change the class in place, so each call gets a class of its own */
+    @State(Scope.Thread)
+    public static class UnoptimizedClass {
+        private ClassUnit ollirClass;
+
+        @Setup(Level.Invocation)
+        public void setup(CompilerBenchmark benchmark) {
+            this.ollirClass = benchmark.buildClass();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.config.put("inputFile", this.input);
+        this.code = this.input.startsWith(GENERATED) ? generate(Integer.parseInt(this.input.substring(GENERATED.length())))
+                : SpecsIo.read(new File(this.input));
+
+        this.parserResult = this.parse();
+        checkNoErrors(this.parserResult.getReports());
+
+        this.semanticsResult = this.analysis();
+        checkNoErrors(this.semanticsResult.getReports());
+
+        this.ollirClass = this.buildClass();
+    }
+
+    @Benchmark
+    public JmmParserResult parse() {
+        SimpleParser parser = new SimpleParser();
+
+        return parser.parse(this.code, parser.getDefaultRule(), this.config);
+    }
+
+    @Benchmark
+    public JmmSemanticsResult analysis() {
+        return new Analysis().semanticAnalysis(this.parserResult);
+    }
+
+    @Benchmark
+    public String ollirCode() {
+        return new OllirPrinter().print(this.buildClass());
+    }
+
+    @Benchmark
+    public ClassUnit ollirClass() {
+        return this.buildClass();
+    }
+
+    @Benchmark
+    public ClassUnit optimize(UnoptimizedClass unoptimized) {
+        return new Optimizer().optimize(unoptimized.ollirClass, this.config, new ArrayList<>());
+    }
+
+    @Benchmark
+    public String jasmin() {
+        return new MyJasminBackend().toJasmin(this.ollirClass).getJasminCode();
+    }
+
+    @Benchmark
+    public byte[] classFile() {
+        return new ClassFileBackend().toClassFile(this.ollirClass);
+    }
+
+    @Benchmark
+    public byte[] compile() {
+        JmmSemanticsResult semanticsResult = new Analysis().semanticAnalysis(this.parse());
+        ClassUnit ollirClass = new OllirBuilder((MySymbolTable) semanticsResult.getSymbolTable()).build(semanticsResult.getRootNode());
+        new Optimizer().optimize(ollirClass, this.config, new ArrayList<>());
+
+        return new ClassFileBackend().toClassFile(ollirClass);
+    }
+
+    private MySymbolTable symbolTable() {
+        return (MySymbolTable) this.semanticsResult.getSymbolTable();
+    }
+
+    private ClassUnit buildClass() {
+        return new OllirBuilder(this.symbolTable()).build(this.semanticsResult.getRootNode());
+    }
+
+    private static String generate(int methods) {
+        return new ProgramGenerator(ProgramGenerator.Options.DEFAULT.withMethods(methods), SEED).generate("Generated");
+    }
+
+    private static void checkNoErrors(List<Report> reports) {
+        for (Report report : reports) {
+            if (report.getType() == ReportType.ERROR) {
+                throw new RuntimeException("The benchmark input does not compile: " + report);
+            }
+        }
+    }
+}
@@ -85,11 +85,11 @@ expression
     | expression '[' expression ']' #ArrayAccess
     | '!' expression #Negation
     | expression '.' method=ID '(' (expression(',' expression)*)?')' #MethodInvocation
+    | expression '.' 'length' #ArrayLength
     | expression op=('*' | '/') expression #BinaryOp
     | expression op=('+' | '-') expression #BinaryOp
     | expression op=('<' | '>') expression #BinaryOp
     | expression op=('&&' | '||') expression #BinaryOp
-    | expression '.' 'length' #ArrayLength
     | 'new' type '[' expression ']' #ArrayInstantiation
     | 'new' type '(' ')' #CustomInstantiation
     | value=INTEGER #Integer
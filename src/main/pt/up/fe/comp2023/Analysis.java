@@ -4,27 +4,38 @@ import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2023.visitors.NameResolver;
 import pt.up.fe.comp2023.visitors.ProgramVisitor;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 
 public class Analysis implements JmmAnalysis {
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmParserResult jmmParserResult) {
-        Generator gen = new Generator();
+        SymbolTableBuilder builder = new SymbolTableBuilder();
 
-        /* build the AST */
-        gen.visit(jmmParserResult.getRootNode(), "");
+        /* build the Symbol Table */
+        CompilerStats.measure("symbolTable", () -> builder.visit(jmmParserResult.getRootNode(), null));
 
-        /* fetch the Symbol Table */
-        MySymbolTable symbolTable = gen.getSymbolTable();
+        MySymbolTable symbolTable = builder.getSymbolTable();
+
+        /* bind every variable name to its declaration, for the semantic checks and the OLLIR generation */
+        CompilerStats.measure("nameResolution", () -> new NameResolver(symbolTable).visit(jmmParserResult.getRootNode(), null));
+
+        /* from here on the table is only read, and the methods may be checked concurrently */
+        symbolTable.freeze();
+        boolean parallel = jmmParserResult.getConfig().getOrDefault("parallelAnalysis", "false").equals("true");
 
         ArrayList<Report> reports = new ArrayList<>();
 
-        ProgramVisitor visitor = new ProgramVisitor(symbolTable, reports);
-        visitor.visit(jmmParserResult.getRootNode(), "");
+        ProgramVisitor visitor = new ProgramVisitor(symbolTable, reports, parallel);
+        CompilerStats.measure("semanticAnalysis", () -> visitor.visit(jmmParserResult.getRootNode(), ""));
+
+        /* the same order whether the methods were checked in parallel or not */
+        reports.sort(Comparator.comparingInt(Report::getLine).thenComparingInt(Report::getColumn));
 
-        return new JmmSemanticsResult(jmmParserResult, gen.getSymbolTable(), reports);
+        return new JmmSemanticsResult(jmmParserResult, symbolTable, reports);
     }
 
 }
@@ -0,0 +1,285 @@
+package pt.up.fe.comp2023;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.optimization.Optimizer;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compiles several .jmm files inside a single JVM, using a bounded pool of worker threads.
+ * Each file goes through the same stages as the single-file Launcher: parse, analysis, optimization, OLLIR,
+ * class file generation and writing the .class file. The Jasmin code is only written when debugging.
+ * With a CompilationCache, files whose source did not change are written from the cache instead.
+ * The outputs of a file found in a directory go to the same relative folder under the output directory, so files with
+ * the same name in different folders do not overwrite each other.
+ */
+public class BatchCompiler {
+    private final Map<String, String> config;
+    private final int threads;
+    private final File outputDir;
+    private final CompilationCache cache;
+
+    /* stats is only recorded with --stats */
+    public record UnitResult(File inputFile, boolean success, String message, long[] stageTimes, CompilerStats stats) {
+        public UnitResult(File inputFile, boolean success, String message, long[] stageTimes) {
+            this(inputFile, success, message, stageTimes, null);
+        }
+    }
+
+    /* folder is where the file is, relative to the directory it was found in, and empty for files given directly */
+    public record Input(File file, String folder) {
+    }
+
+    public static final String[] STAGES = {"parse", "analysis", "optimization", "ollir", "backend", "write"};
+
+    public BatchCompiler(Map<String, String> config) {
+        this.config = config;
+
+        int available = Runtime.getRuntime().availableProcessors();
+        this.threads = Math.max(1, Integer.parseInt(config.getOrDefault("threads", String.valueOf(available))));
+        this.outputDir = new File(config.getOrDefault("outputDir", "jmm-out"));
+        this.cache = CompilationCache.fromConfig(config);
+    }
+
+    /**
+     * Expands the given paths into the list of .jmm files to compile. Directories are searched recursively.
+     */
+    public static List<Input> collectInputs(List<String> paths) {
+        List<Input> inputs = new ArrayList<>();
+
+        for (String path : paths) {
+            File file = new File(path);
+
+            if (file.isDirectory()) {
+                List<File> found = new ArrayList<>(SpecsIo.getFilesRecursive(file, "jmm"));
+                found.sort(null);
+
+                for (File input : found) {
+                    Path folder = file.toPath().relativize(input.toPath()).getParent();
+                    inputs.add(new Input(input, folder == null ? "" : folder.toString()));
+                }
+            }
+            else if (file.isFile()) {
+                inputs.add(new Input(file, ""));
+            }
+            else {
+                throw new RuntimeException("Expected a path to an existing input file or directory, got '" + file + "'.");
+            }
+        }
+
+        return inputs;
+    }
+
+    public List<UnitResult> compile(List<Input> inputs) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(this.threads, Math.max(1, inputs.size())));
+        List<Future<UnitResult>> futures = new ArrayList<>();
+
+        /* the first file to a set of outputs, so that a later one is reported instead of overwriting them */
+        Map<File, File> outputs = new HashMap<>();
+
+        for (Input input : inputs) {
+            File unitDir = new File(this.outputDir, input.folder());
+            File previous = outputs.putIfAbsent(new File(unitDir, SpecsIo.removeExtension(input.file())), input.file());
+
+            if (previous != null) {
+                UnitResult collision = new UnitResult(input.file(), false,
+                        "Its outputs in " + unitDir + " would overwrite those of " + previous, new long[STAGES.length]);
+                futures.add(CompletableFuture.completedFuture(collision));
+            }
+            else {
+                futures.add(pool.submit(() -> this.compileUnit(input.file(), unitDir)));
+            }
+        }
+
+        List<UnitResult> results = new ArrayList<>();
+
+        try {
+            /* collect in submission order, so the report is deterministic */
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new UnitResult(inputs.get(i).file(), false, String.valueOf(e.getCause()), new long[STAGES.length]));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return results;
+    }
+
+    private UnitResult compileUnit(File inputFile, File unitDir) {
+        if (!this.config.containsKey("stats")) return this.compileStages(inputFile, unitDir);
+
+        /* each unit is compiled by a single worker thread, which records its stats */
+        CompilerStats stats = CompilerStats.start(inputFile.getPath());
+
+        try {
+            UnitResult result = this.compileStages(inputFile, unitDir);
+            return new UnitResult(result.inputFile(), result.success(), result.message(), result.stageTimes(), stats);
+        } finally {
+            CompilerStats.stop();
+        }
+    }
+
+    private UnitResult compileStages(File inputFile, File unitDir) {
+        long[] times = new long[STAGES.length];
+
+        /* each unit gets its own copy of the config, since stages may read the input file from it */
+        Map<String, String> unitConfig = new HashMap<>(this.config);
+        unitConfig.put("inputFile", inputFile.getPath());
+
+        /* the OLLIR and Jasmin code are only written out as debugging aids */
+        boolean debug = Diagnostics.fromConfig(unitConfig).isEnabled(Diagnostics.Level.DEBUG);
+        boolean parallel = unitConfig.getOrDefault("parallelCodegen", "false").equals("true");
+
+        try {
+            long start = System.nanoTime();
+            String code = SpecsIo.read(inputFile);
+            String unitName = SpecsIo.removeExtension(inputFile);
+
+            /* a source that was already compiled with the same options skips every stage */
+            String cacheKey = this.cache == null ? null : CompilationCache.key(code, unitConfig);
+            CompilationCache.Entry cached = this.cache == null ? null : CompilerStats.measure("cacheLookup", () -> this.cache.get(cacheKey));
+
+            if (cached != null) {
+                if (debug) {
+                    SpecsIo.write(new File(unitDir, unitName + ".j"), cached.jasminCode());
+                }
+
+                File classFile = ClassFileBackend.writeClassFile(cached.className(), cached.classFile(), unitDir);
+                times[5] = System.nanoTime() - start;
+
+                return new UnitResult(inputFile, true, classFile.getPath() + " (cached)", times);
+            }
+
+            SimpleParser parser = new SimpleParser();
+            JmmParserResult parserResult = parser.parse(code, parser.getDefaultRule(), unitConfig);
+            times[0] = System.nanoTime() - start;
+
+            String error = firstError(parserResult.getReports());
+            if (error != null) return new UnitResult(inputFile, false, error, times);
+
+            start = System.nanoTime();
+            JmmSemanticsResult semanticsResult = new Analysis().semanticAnalysis(parserResult);
+            times[1] = System.nanoTime() - start;
+
+            error = firstError(semanticsResult.getReports());
+            if (error != null) return new UnitResult(inputFile, false, error, times);
+
+            start = System.nanoTime();
+            Optimizer optimizer = new Optimizer();
+            semanticsResult = optimizer.optimize(semanticsResult);
+            times[2] = System.nanoTime() - start;
+
+            MySymbolTable symbolTable = (MySymbolTable) semanticsResult.getSymbolTable();
+
+            start = System.nanoTime();
+            List<Report> reports = new ArrayList<>();
+            JmmNode root = semanticsResult.getRootNode();
+            ClassUnit ollirClass = CompilerStats.measure("ollir", () -> new OllirBuilder(symbolTable, parallel).build(root));
+
+            /* the class is built without the OLLIR code, which is printed from it before it is optimized */
+            if (debug) {
+                SpecsIo.write(new File(unitDir, unitName + ".ollir"), new OllirPrinter().print(ollirClass));
+            }
+
+            CompilerStats.measure("optimization", () -> optimizer.optimize(ollirClass, unitConfig, reports));
+            times[3] = System.nanoTime() - start;
+
+            error = firstError(reports);
+            if (error != null) return new UnitResult(inputFile, false, error, times);
+
+            start = System.nanoTime();
+            ClassFileBackend backend = ClassFileBackend.fromConfig(unitConfig);
+            byte[] classBytes = CompilerStats.measure("classFile", () -> backend.toClassFile(ollirClass));
+            times[4] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            String jasminCode = null;
+
+            if (debug || this.cache != null) {
+                jasminCode = CompilerStats.measure("jasmin", () -> MyJasminBackend.fromConfig(unitConfig).toJasmin(ollirClass).getJasminCode());
+            }
+
+            if (debug) {
+                SpecsIo.write(new File(unitDir, unitName + ".j"), jasminCode);
+            }
+
+            File classFile = CompilerStats.measure("write",
+                    () -> ClassFileBackend.writeClassFile(ollirClass.getClassName(), classBytes, unitDir));
+
+            if (this.cache != null) {
+                CompilationCache.Entry entry = new CompilationCache.Entry(ollirClass.getClassName(), classBytes, jasminCode);
+                CompilerStats.measure("cacheStore", () -> this.cache.put(cacheKey, entry));
+            }
+            times[5] = System.nanoTime() - start;
+
+            return new UnitResult(inputFile, true, classFile.getPath(), times);
+        } catch (Exception e) {
+            return new UnitResult(inputFile, false, e.getClass().getSimpleName() + ": " + e.getMessage(), times);
+        }
+    }
+
+    private static String firstError(List<Report> reports) {
+        for (Report report : reports) {
+            if (report.getType() == ReportType.ERROR) return report.toString();
+        }
+
+        return null;
+    }
+
+    /**
+     * Prints one line per compiled file, followed by the aggregate time spent in each stage.
+     */
+    public static void printSummary(List<UnitResult> results, long wallTime) {
+        long[] totals = new long[STAGES.length];
+        int failed = 0;
+
+        for (UnitResult result : results) {
+            long unitTotal = Arrays.stream(result.stageTimes()).sum();
+
+            for (int i = 0; i < STAGES.length; i++)
+                totals[i] += result.stageTimes()[i];
+
+            if (!result.success()) failed++;
+
+            System.out.println((result.success() ? "[ OK ] " : "[FAIL] ") + result.inputFile().getPath()
+                    + " (" + toMillis(unitTotal) + " ms) " + result.message().lines().findFirst().orElse(""));
+        }
+
+        System.out.println();
+        System.out.println("Compiled " + (results.size() - failed) + "/" + results.size() + " files, " + failed + " failed.");
+
+        for (int i = 0; i < STAGES.length; i++) {
+            System.out.println("\t" + STAGES[i] + ": " + toMillis(totals[i]) + " ms");
+        }
+
+        System.out.println("\tsum of stages: " + toMillis(Arrays.stream(totals).sum()) + " ms");
+        System.out.println("\twall time: " + toMillis(wallTime) + " ms");
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
@@ -0,0 +1,542 @@
+package pt.up.fe.comp2023;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2023.classfile.CodeBuilder;
+import pt.up.fe.comp2023.classfile.ConstantPool;
+import pt.up.fe.comp2023.classfile.VerificationType;
+import pt.up.fe.comp2023.optimization.peephole.PeepholeOptimizer;
+import pt.up.fe.specs.util.exceptions.NotImplementedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file of an OLLIR class directly, without generating Jasmin code and assembling it.
+ * The Jasmin code, for debugging and for the tests that check it, is made by MyJasminBackend, and the code of both
+ * goes through the same peephole rules.
+ */
+public class ClassFileBackend {
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    /* Java 8 class files; the StackMapTable frames are always checked since version 51 (Java 7) */
+    private static final int MAJOR_VERSION = 52;
+
+    private ClassUnit ollirClass;
+    private String className;
+    private String superClass;
+    private ConstantPool pool;
+    private Method method;
+    private CodeBuilder code;
+    private Map<String, CodeBuilder.Label> labels;
+
+    /* rewrites the code of each method once it is recorded, null when 'peephole=false' */
+    private final PeepholeOptimizer peephole;
+
+    public ClassFileBackend() {
+        this(true);
+    }
+
+    public ClassFileBackend(boolean peephole) {
+        this.peephole = peephole ? new PeepholeOptimizer() : null;
+    }
+
+    public static ClassFileBackend fromConfig(Map<String, String> config) {
+        return new ClassFileBackend(!config.getOrDefault("peephole", "true").equals("false"));
+    }
+
+    /* how many times each peephole rule fired over every method written so far, or null if they are off */
+    public PeepholeOptimizer getPeephole() {
+        return this.peephole;
+    }
+
+    /**
+     * Writes the class file into the given directory, returning it.
+     */
+    public File writeClassFile(ClassUnit ollirClass, File outputDir) {
+        return writeClassFile(ollirClass.getClassName(), this.toClassFile(ollirClass), outputDir);
+    }
+
+    public static File writeClassFile(String className, byte[] bytes, File outputDir) {
+        File classFile = new File(outputDir, className + ".class");
+
+        try {
+            Files.createDirectories(outputDir.toPath());
+            Files.write(classFile.toPath(), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return classFile;
+    }
+
+    public byte[] toClassFile(ClassUnit ollirClass) {
+        this.ollirClass = ollirClass;
+        this.className = ollirClass.getClassName();
+        this.superClass = ollirClass.getSuperClass() == null ? "java/lang/Object" : this.internalName(ollirClass.getSuperClass());
+        this.pool = new ConstantPool();
+
+        try {
+            /* fields and methods add their constants to the pool, which is written before them */
+            ByteArrayOutputStream fields = new ByteArrayOutputStream();
+            DataOutputStream fieldsOut = new DataOutputStream(fields);
+            for (Field field : ollirClass.getFields()) {
+                this.generateField(field, fieldsOut);
+            }
+
+            ByteArrayOutputStream methods = new ByteArrayOutputStream();
+            DataOutputStream methodsOut = new DataOutputStream(methods);
+            for (Method method : ollirClass.getMethods()) {
+                this.generateMethod(method, methodsOut);
+            }
+
+            int thisIndex = this.pool.classRef(this.className);
+            int superIndex = this.pool.classRef(this.superClass);
+
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(classFile);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            this.pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0);
+            out.writeShort(ollirClass.getNumFields());
+            fields.writeTo(out);
+            out.writeShort(ollirClass.getNumMethods());
+            methods.writeTo(out);
+            out.writeShort(0);
+
+            return classFile.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ----- names and types ----- */
+
+    /* imported classes are referred to by their full name, e.g. 'a.b.C' becomes 'a/b/C' */
+    private String internalName(String name) {
+        if (name.equals(this.className)) return name;
+
+        for (String imported : this.ollirClass.getImports()) {
+            if (imported.substring(imported.lastIndexOf('.') + 1).equals(name)) return imported.replace('.', '/');
+        }
+
+        return name;
+    }
+
+    private String descriptor(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> "I";
+            case BOOLEAN -> "Z";
+            case STRING -> "Ljava/lang/String;";
+            case VOID -> "V";
+            case ARRAYREF -> this.arrayDescriptor(type);
+            case OBJECTREF, CLASS, THIS -> "L" + this.internalName(((ClassType) type).getName()) + ";";
+            default -> throw new NotImplementedException(type.getTypeOfElement());
+        };
+    }
+
+    /* boolean arrays are int arrays, as in the Jasmin backend */
+    private String arrayDescriptor(Type type) {
+        if (!(type instanceof ArrayType arrayType)) return "[I";
+
+        Type elementType = arrayType.getElementType();
+        ElementType element = elementType.getTypeOfElement();
+
+        if (element == null || element == ElementType.INT32 || element == ElementType.BOOLEAN) return "[I";
+
+        return "[".repeat(Math.max(1, arrayType.getNumDimensions())) + this.descriptor(elementType);
+    }
+
+    private static boolean isReference(Type type) {
+        ElementType element = type.getTypeOfElement();
+
+        return element != ElementType.INT32 && element != ElementType.BOOLEAN;
+    }
+
+    private VerificationType verificationType(Type type) {
+        if (!isReference(type)) return VerificationType.INTEGER;
+
+        String descriptor = this.descriptor(type);
+
+        return VerificationType.object(descriptor.startsWith("L") ? descriptor.substring(1, descriptor.length() - 1) : descriptor);
+    }
+
+    private String methodDescriptor(List<Element> parameters, Type returnType) {
+        StringBuilder descriptor = new StringBuilder("(");
+
+        for (Element parameter : parameters) {
+            descriptor.append(this.descriptor(parameter.getType()));
+        }
+
+        return descriptor.append(')').append(this.descriptor(returnType)).toString();
+    }
+
+    /* ----- class structure ----- */
+
+    private void generateField(Field field, DataOutputStream out) throws IOException {
+        int access = ACC_PUBLIC;
+        if (field.isStaticField()) access |= ACC_STATIC;
+        if (field.isFinalField()) access |= ACC_FINAL;
+
+        out.writeShort(access);
+        out.writeShort(this.pool.utf8(field.getFieldName()));
+        out.writeShort(this.pool.utf8(this.descriptor(field.getFieldType())));
+        out.writeShort(0);
+    }
+
+    private void generateMethod(Method method, DataOutputStream out) throws IOException {
+        this.method = method;
+        this.labels = new HashMap<>();
+
+        String name = method.isConstructMethod() ? "<init>" : method.getMethodName();
+        String descriptor = method.isConstructMethod() ? "()V" : this.methodDescriptor(method.getParams(), method.getReturnType());
+
+        /* the arguments are in the first registers, after 'this' */
+        List<VerificationType> parameters = new ArrayList<>();
+        if (!method.isStaticMethod()) {
+            parameters.add(method.isConstructMethod() ? VerificationType.uninitializedThis(this.className) : VerificationType.object(this.className));
+        }
+        if (!method.isConstructMethod()) {
+            for (Element parameter : method.getParams()) {
+                parameters.add(this.verificationType(parameter.getType()));
+            }
+        }
+
+        this.code = new CodeBuilder(this.pool, this.className, this.superClass, parameters);
+
+        for (Map.Entry<String, Descriptor> entry : method.getVarTable().entrySet()) {
+            Descriptor variable = entry.getValue();
+
+            if (variable.getScope() == VarScope.FIELD || entry.getKey().equals("this")) continue;
+            this.code.declareLocal(variable.getVirtualReg(), this.verificationType(variable.getVarType()));
+        }
+
+        for (Instruction instruction : method.getInstructions()) {
+            for (String label : method.getLabels(instruction)) {
+                this.code.placeLabel(this.label(label));
+            }
+
+            this.generateStatement(instruction);
+        }
+
+        /* the constructor built from the AST has no return of its own */
+        List<Instruction> instructions = method.getInstructions();
+        if (instructions.isEmpty() || instructions.get(instructions.size() - 1).getInstType() != InstructionType.RETURN) {
+            this.code.simple(CodeBuilder.RETURN);
+        }
+
+        if (this.peephole != null) {
+            this.code.optimize(this.peephole, PeepholeOptimizer.temporaryRegisters(method));
+        }
+
+        out.writeShort(method.isStaticMethod() ? ACC_PUBLIC | ACC_STATIC : ACC_PUBLIC);
+        out.writeShort(this.pool.utf8(name));
+        out.writeShort(this.pool.utf8(descriptor));
+        out.writeShort(1);
+        this.code.writeTo(out);
+    }
+
+    private CodeBuilder.Label label(String name) {
+        return this.labels.computeIfAbsent(name, key -> this.code.newLabel());
+    }
+
+    /* ----- instructions ----- */
+
+    private void generateStatement(Instruction instruction) {
+        switch (instruction.getInstType()) {
+            case ASSIGN -> this.generateAssign((AssignInstruction) instruction);
+            case PUTFIELD -> this.generatePutField((PutFieldInstruction) instruction);
+            case GOTO -> this.code.branch(CodeBuilder.GOTO, this.label(((GotoInstruction) instruction).getLabel()));
+            case BRANCH -> this.generateBranch((CondBranchInstruction) instruction);
+            case RETURN -> this.generateReturn((ReturnInstruction) instruction);
+            case CALL -> {
+                CallInstruction call = (CallInstruction) instruction;
+                this.generateCall(call, call.getReturnType());
+
+                if (call.getReturnType().getTypeOfElement() != ElementType.VOID) this.code.simple(CodeBuilder.POP);
+            }
+            default -> {
+                /* a value nobody uses */
+                this.generateValue(instruction);
+                this.code.simple(CodeBuilder.POP);
+            }
+        }
+    }
+
+    private void generateValue(Instruction instruction) {
+        switch (instruction.getInstType()) {
+            case NOPER -> this.load(((SingleOpInstruction) instruction).getSingleOperand());
+            case BINARYOPER -> this.generateBinaryOp((BinaryOpInstruction) instruction);
+            case UNARYOPER -> this.generateUnaryOp((UnaryOpInstruction) instruction);
+            case CALL -> {
+                CallInstruction call = (CallInstruction) instruction;
+
+                if (call.getReturnType().getTypeOfElement() == ElementType.VOID) {
+                    throw new RuntimeException("The value of the call to " + methodName(call) + " has no known type");
+                }
+
+                this.generateCall(call, call.getReturnType());
+            }
+            case GETFIELD -> this.generateGetField((GetFieldInstruction) instruction);
+            default -> throw new RuntimeException("Instruction " + instruction.getInstType() + " has no value");
+        }
+    }
+
+    private void generateAssign(AssignInstruction instruction) {
+        Element dest = instruction.getDest();
+
+        if (dest instanceof ArrayOperand arrayOperand) {
+            this.code.load(true, this.register(arrayOperand.getName()));
+            this.load(arrayOperand.getIndexOperands().get(0));
+            this.generateValue(instruction.getRhs());
+            this.code.arrayStore(isReference(instruction.getTypeOfAssign()));
+            return;
+        }
+
+        /* calls to imported methods have no known return type, the one of the assignment is assumed */
+        if (instruction.getRhs() instanceof CallInstruction call && call.getReturnType().getTypeOfElement() == ElementType.VOID
+                && instruction.getTypeOfAssign().getTypeOfElement() != ElementType.VOID) {
+            this.generateCall(call, instruction.getTypeOfAssign());
+        }
+        else {
+            this.generateValue(instruction.getRhs());
+        }
+
+        this.store((Operand) dest);
+    }
+
+    private void generatePutField(PutFieldInstruction instruction) {
+        Operand field = (Operand) instruction.getSecondOperand();
+
+        this.load(instruction.getFirstOperand());
+        this.load(instruction.getThirdOperand());
+        this.code.field(CodeBuilder.PUTFIELD, this.ownerOf(instruction.getFirstOperand()), field.getName(), this.descriptor(field.getType()));
+    }
+
+    private void generateGetField(GetFieldInstruction instruction) {
+        Operand field = (Operand) instruction.getSecondOperand();
+
+        this.load(instruction.getFirstOperand());
+        this.code.field(CodeBuilder.GETFIELD, this.ownerOf(instruction.getFirstOperand()), field.getName(), this.descriptor(field.getType()));
+    }
+
+    private void generateReturn(ReturnInstruction instruction) {
+        if (!instruction.hasReturnValue()) {
+            this.code.simple(CodeBuilder.RETURN);
+            return;
+        }
+
+        this.load(instruction.getOperand());
+        this.code.simple(isReference(instruction.getReturnType()) ? CodeBuilder.ARETURN : CodeBuilder.IRETURN);
+    }
+
+    private static int compareOpcode(OperationType operation) {
+        return switch (operation) {
+            case EQ -> CodeBuilder.IF_ICMPEQ;
+            case NEQ -> CodeBuilder.IF_ICMPNE;
+            case LTH -> CodeBuilder.IF_ICMPLT;
+            case GTH -> CodeBuilder.IF_ICMPGT;
+            case LTE -> CodeBuilder.IF_ICMPLE;
+            case GTE -> CodeBuilder.IF_ICMPGE;
+            default -> -1;
+        };
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction instruction) {
+        OperationType operation = instruction.getOperation().getOpType();
+
+        this.load(instruction.getLeftOperand());
+        this.load(instruction.getRightOperand());
+
+        int compare = compareOpcode(operation);
+        if (compare >= 0) {
+            /* the comparison becomes a 0 or a 1 on the stack */
+            CodeBuilder.Label isTrue = this.code.newLabel();
+            CodeBuilder.Label end = this.code.newLabel();
+
+            this.code.branch(compare, isTrue);
+            this.code.iconst(0);
+            this.code.branch(CodeBuilder.GOTO, end);
+            this.code.placeLabel(isTrue);
+            this.code.iconst(1);
+            this.code.placeLabel(end);
+            return;
+        }
+
+        switch (operation) {
+            case ADD -> this.code.simple(CodeBuilder.IADD);
+            case SUB -> this.code.simple(CodeBuilder.ISUB);
+            case MUL -> this.code.simple(CodeBuilder.IMUL);
+            case DIV -> this.code.simple(CodeBuilder.IDIV);
+            case AND, ANDB -> this.code.simple(CodeBuilder.IAND);
+            case OR, ORB -> this.code.simple(CodeBuilder.IOR);
+            default -> throw new NotImplementedException(operation);
+        }
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction instruction) {
+        OperationType operation = instruction.getOperation().getOpType();
+
+        if (operation != OperationType.NOT && operation != OperationType.NOTB) {
+            throw new NotImplementedException(operation);
+        }
+
+        this.load(instruction.getOperand());
+        this.code.iconst(1);
+        this.code.simple(CodeBuilder.IXOR);
+    }
+
+    private void generateBranch(CondBranchInstruction instruction) {
+        CodeBuilder.Label target = this.label(instruction.getLabel());
+
+        if (instruction instanceof SingleOpCondInstruction singleOpCond) {
+            this.load(singleOpCond.getCondition().getSingleOperand());
+            this.code.branch(CodeBuilder.IFNE, target);
+            return;
+        }
+
+        OpInstruction condition = ((OpCondInstruction) instruction).getCondition();
+        OperationType operation = condition.getOperation().getOpType();
+
+        if (condition instanceof BinaryOpInstruction binaryOp && compareOpcode(operation) >= 0) {
+            this.load(binaryOp.getLeftOperand());
+            this.load(binaryOp.getRightOperand());
+            this.code.branch(compareOpcode(operation), target);
+        }
+        else if (condition instanceof UnaryOpInstruction unaryOp && (operation == OperationType.NOT || operation == OperationType.NOTB)) {
+            this.load(unaryOp.getOperand());
+            this.code.branch(CodeBuilder.IFEQ, target);
+        }
+        else {
+            this.generateValue(condition);
+            this.code.branch(CodeBuilder.IFNE, target);
+        }
+    }
+
+    private void generateCall(CallInstruction instruction, Type returnType) {
+        Element firstArg = instruction.getFirstArg();
+        List<Element> arguments = instruction.getListOfOperands() == null ? List.of() : instruction.getListOfOperands();
+        String descriptor = this.methodDescriptor(arguments, returnType);
+
+        switch (instruction.getInvocationType()) {
+            case invokestatic -> {
+                this.loadAll(arguments);
+                this.code.invoke(CodeBuilder.INVOKESTATIC, this.internalName(((Operand) firstArg).getName()),
+                        methodName(instruction), descriptor);
+            }
+            case invokevirtual -> {
+                this.load(firstArg);
+                this.loadAll(arguments);
+                this.code.invoke(CodeBuilder.INVOKEVIRTUAL, this.ownerOf(firstArg),
+                        methodName(instruction), descriptor);
+            }
+            case invokespecial -> {
+                /* the constructor calls the one of the superclass on 'this' */
+                boolean superCall = this.method.isConstructMethod() && ((Operand) firstArg).getName().equals("this");
+
+                this.load(firstArg);
+                this.loadAll(arguments);
+                this.code.invoke(CodeBuilder.INVOKESPECIAL, superCall ? this.superClass : this.ownerOf(firstArg),
+                        methodName(instruction), descriptor);
+            }
+            case NEW -> {
+                if (firstArg.getType().getTypeOfElement() == ElementType.ARRAYREF) {
+                    this.load(instruction.getListOfOperands().get(0));
+                    this.code.newArray(this.arrayDescriptor(instruction.getReturnType()));
+                }
+                else {
+                    /* the object is initialized by the invokespecial that follows its assignment */
+                    this.code.newObject(this.internalName(((Operand) firstArg).getName()));
+                }
+            }
+            case arraylength -> {
+                this.load(firstArg);
+                this.code.simple(CodeBuilder.ARRAYLENGTH);
+            }
+            case ldc -> this.code.ldcString(((LiteralElement) firstArg).getLiteral().replace("\"", ""));
+            default -> throw new NotImplementedException(instruction.getInvocationType());
+        }
+    }
+
+    private static String methodName(CallInstruction instruction) {
+        return ((LiteralElement) instruction.getSecondArg()).getLiteral().replace("\"", "");
+    }
+
+    private String ownerOf(Element element) {
+        if (element.getType() instanceof ClassType classType) return this.internalName(classType.getName());
+
+        return this.className;
+    }
+
+    /* ----- operands ----- */
+
+    private Descriptor variable(String name) {
+        Descriptor descriptor = this.method.getVarTable().get(name);
+
+        if (descriptor == null) {
+            throw new RuntimeException("Variable '" + name + "' has no register in method " + this.method.getMethodName());
+        }
+
+        return descriptor;
+    }
+
+    private int register(String name) {
+        return this.variable(name).getVirtualReg();
+    }
+
+    private void loadAll(List<Element> elements) {
+        for (Element element : elements) {
+            this.load(element);
+        }
+    }
+
+    private void load(Element element) {
+        if (element instanceof LiteralElement literal) {
+            if (literal.getType().getTypeOfElement() == ElementType.STRING) {
+                this.code.ldcString(literal.getLiteral().replace("\"", ""));
+            }
+            else {
+                this.code.iconst(Integer.parseInt(literal.getLiteral()));
+            }
+            return;
+        }
+
+        Operand operand = (Operand) element;
+
+        if (operand.getType().getTypeOfElement() == ElementType.THIS || operand.getName().equals("this")) {
+            this.code.load(true, 0);
+            return;
+        }
+
+        if (operand instanceof ArrayOperand arrayOperand) {
+            this.code.load(true, this.register(arrayOperand.getName()));
+            this.load(arrayOperand.getIndexOperands().get(0));
+            this.code.arrayLoad(isReference(arrayOperand.getType()));
+            return;
+        }
+
+        Descriptor descriptor = this.variable(operand.getName());
+        this.code.load(isReference(descriptor.getVarType()), descriptor.getVirtualReg());
+    }
+
+    private void store(Operand operand) {
+        Descriptor descriptor = this.variable(operand.getName());
+        this.code.store(isReference(descriptor.getVarType()), descriptor.getVirtualReg());
+    }
+}
@@ -0,0 +1,196 @@
+package pt.up.fe.comp2023;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An on-disk cache of compiled classes, so that a source that did not change skips every stage of the compiler.
+ * Entries are keyed by a hash of the source and of the options that change the generated code, and each one keeps
+ * the class file and its Jasmin code. Past the size bound, the least recently used entries are evicted.
+ * The symbol table is not kept. On a hit no stage runs, so nothing would read it, and the class file already
+ * describes the fields and methods of the class to the programs that use it.
+ */
+public class CompilationCache {
+    /* bump when the generated code changes, so entries made by older versions of the compiler are not reused */
+    private static final String FORMAT_VERSION = "3";
+
+    /* the options that change the generated code */
+    private static final List<String> CONFIG_KEYS = List.of("optimize", "registerAllocation", "peephole");
+
+    private static final String ENTRY_FILE = "entry.json";
+
+    /* the folders entries are written to before being moved in place, which eviction leaves alone */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    public static final String DEFAULT_DIR = ".jmm-cache";
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final File dir;
+    private final long maxBytes;
+
+    public record Entry(String className, byte[] classFile, String jasminCode) {
+    }
+
+    public CompilationCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The cache given by the config, or null when caching is off.
+     */
+    public static CompilationCache fromConfig(Map<String, String> config) {
+        if (!config.containsKey("cacheDir")) return null;
+
+        long maxBytes = Long.parseLong(config.getOrDefault("cacheSize", String.valueOf(DEFAULT_MAX_BYTES)));
+
+        return new CompilationCache(new File(config.get("cacheDir")), maxBytes);
+    }
+
+    public static String key(String source, Map<String, String> config) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+
+        digest.update(("jmm-cache " + FORMAT_VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+
+        for (String configKey : CONFIG_KEYS) {
+            digest.update((configKey + "=" + config.getOrDefault(configKey, "") + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * The entry with the given key, or null if there is none. Entries that cannot be read count as missing.
+     */
+    public synchronized Entry get(String key) {
+        File entryDir = new File(this.dir, key);
+        File entryFile = new File(entryDir, ENTRY_FILE);
+
+        if (!entryFile.isFile()) return null;
+
+        try {
+            JsonObject json = JsonParser.parseString(Files.readString(entryFile.toPath())).getAsJsonObject();
+            String className = json.get("className").getAsString();
+
+            byte[] classFile = Files.readAllBytes(new File(entryDir, className + ".class").toPath());
+            String jasminCode = Files.readString(new File(entryDir, className + ".j").toPath());
+
+            /* the modification time of an entry is when it was last used */
+            entryDir.setLastModified(System.currentTimeMillis());
+
+            return new Entry(className, classFile, jasminCode);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores an entry, then evicts the least recently used ones until the cache fits its size bound.
+     * The entry is written to a temporary folder of its own and moved in place, so a partly written entry is never
+     * read, and compilers storing the same entry at once do not write into the same folder.
+     */
+    public synchronized void put(String key, Entry entry) {
+        File entryDir = new File(this.dir, key);
+        if (entryDir.isDirectory()) return;
+
+        File tempDir = null;
+
+        try {
+            Files.createDirectories(this.dir.toPath());
+            tempDir = Files.createTempDirectory(this.dir.toPath(), key + TEMP_SUFFIX).toFile();
+
+            Files.write(new File(tempDir, entry.className() + ".class").toPath(), entry.classFile());
+            Files.writeString(new File(tempDir, entry.className() + ".j").toPath(), entry.jasminCode());
+
+            JsonObject json = new JsonObject();
+            json.addProperty("className", entry.className());
+            Files.writeString(new File(tempDir, ENTRY_FILE).toPath(), json.toString());
+
+            try {
+                Files.move(tempDir.toPath(), entryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempDir.toPath(), entryDir.toPath());
+            }
+        } catch (IOException e) {
+            if (tempDir != null) deleteRecursive(tempDir);
+
+            /* another compiler stored the same entry first, which fails the move in ways that depend on the system */
+            if (!entryDir.isDirectory()) {
+                throw new RuntimeException("Could not write the cache entry " + entryDir, e);
+            }
+        }
+
+        this.evict();
+    }
+
+    private void evict() {
+        File[] entryDirs = this.dir.listFiles(file -> file.isDirectory() && !file.getName().contains(TEMP_SUFFIX));
+        if (entryDirs == null) return;
+
+        List<File> entries = new ArrayList<>(List.of(entryDirs));
+        long total = 0;
+
+        for (File entryDir : entries) {
+            total += size(entryDir);
+        }
+
+        entries.sort(Comparator.comparingLong(File::lastModified));
+
+        for (File entryDir : entries) {
+            if (total <= this.maxBytes) break;
+
+            total -= size(entryDir);
+            deleteRecursive(entryDir);
+        }
+    }
+
+    private static long size(File entryDir) {
+        File[] files = entryDir.listFiles();
+        if (files == null) return 0;
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+
+        return size;
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+
+        file.delete();
+    }
+}
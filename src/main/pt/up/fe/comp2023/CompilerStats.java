@@ -0,0 +1,135 @@
+package pt.up.fe.comp2023;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of each stage of a compilation.
+ * A compilation is recorded by the thread that runs it, between start and stop, so the stages only have to call
+ * measure and the compilations of a batch are recorded apart. When no compilation is being recorded, measure just runs
+ * the stage.
+ */
+public class CompilerStats {
+    private static final ThreadLocal<CompilerStats> CURRENT = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /* depth is how many stages enclose this one, e.g. each optimization pass is inside the optimization stage */
+    public record Measurement(String stage, int depth, long wallNanos, long cpuNanos, long allocatedBytes) {
+    }
+
+    private final String unit;
+    private final List<Measurement> measurements = new ArrayList<>();
+    private int depth = 0;
+
+    private CompilerStats(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Starts recording the compilation of the given unit in this thread.
+     */
+    public static CompilerStats start(String unit) {
+        CompilerStats stats = new CompilerStats(unit);
+        CURRENT.set(stats);
+
+        return stats;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    public static void measure(String stage, Runnable work) {
+        measure(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T measure(String stage, Supplier<T> work) {
+        CompilerStats stats = CURRENT.get();
+        if (stats == null) return work.get();
+
+        /* the slot is taken before running, so the stages are listed in the order they started */
+        int index = stats.measurements.size();
+        stats.measurements.add(null);
+        stats.depth++;
+
+        long wall = System.nanoTime();
+        long cpu = cpuTime();
+        long allocated = allocatedBytes();
+
+        try {
+            return work.get();
+        } finally {
+            stats.depth--;
+            stats.measurements.set(index, new Measurement(stage, stats.depth,
+                    System.nanoTime() - wall, cpuTime() - cpu, allocatedBytes() - allocated));
+        }
+    }
+
+    public List<Measurement> getMeasurements() {
+        return this.measurements;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        JsonArray stages = new JsonArray();
+        long wall = 0, cpu = 0, allocated = 0;
+
+        for (Measurement measurement : this.measurements) {
+            JsonObject stage = new JsonObject();
+            stage.addProperty("stage", measurement.stage());
+            stage.addProperty("depth", measurement.depth());
+            stage.addProperty("wallNanos", measurement.wallNanos());
+            stage.addProperty("cpuNanos", measurement.cpuNanos());
+            stage.addProperty("allocatedBytes", measurement.allocatedBytes());
+            stages.add(stage);
+
+            /* the nested stages are already counted in the ones enclosing them */
+            if (measurement.depth() == 0) {
+                wall += measurement.wallNanos();
+                cpu += measurement.cpuNanos();
+                allocated += measurement.allocatedBytes();
+            }
+        }
+
+        JsonObject total = new JsonObject();
+        total.addProperty("wallNanos", wall);
+        total.addProperty("cpuNanos", cpu);
+        total.addProperty("allocatedBytes", allocated);
+
+        json.addProperty("unit", this.unit);
+        json.add("stages", stages);
+        json.add("total", total);
+
+        return json;
+    }
+
+    public static String toJson(List<CompilerStats> units) {
+        JsonArray json = new JsonArray();
+        units.forEach(stats -> json.add(stats.toJson()));
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    /* the same -1 at both ends when the JVM cannot measure it, so the stage reports 0 */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+
+        return -1;
+    }
+}
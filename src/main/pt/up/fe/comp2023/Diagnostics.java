@@ -0,0 +1,58 @@
+package pt.up.fe.comp2023;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Prints the diagnostics of the compiler, such as the trees and the code made by each stage, when their level is enabled.
+ * Messages are given as suppliers, so a message that is not printed is never built: dumping a tree or the OLLIR code of
+ * a big program costs more than compiling it. The level comes from the config, 'debug=true' enables every diagnostic.
+ */
+public class Diagnostics {
+    public enum Level {
+        /* problems in the input, always printed */
+        WARN,
+        /* progress of the compilation */
+        INFO,
+        /* the trees and the code made by each stage */
+        DEBUG
+    }
+
+    private final Level level;
+
+    public Diagnostics(Level level) {
+        this.level = level;
+    }
+
+    public static Diagnostics fromConfig(Map<String, String> config) {
+        if (config.getOrDefault("debug", "false").equals("true")) return new Diagnostics(Level.DEBUG);
+
+        return new Diagnostics(Level.valueOf(config.getOrDefault("logLevel", Level.WARN.name()).toUpperCase()));
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) <= 0;
+    }
+
+    public void warn(String stage, Supplier<String> message) {
+        this.log(Level.WARN, stage, message);
+    }
+
+    public void info(String stage, Supplier<String> message) {
+        this.log(Level.INFO, stage, message);
+    }
+
+    public void debug(String stage, Supplier<String> message) {
+        this.log(Level.DEBUG, stage, message);
+    }
+
+    public void log(Level level, String stage, Supplier<String> message) {
+        if (!this.isEnabled(level)) return;
+
+        /* dumps of code or trees start on a line of their own */
+        String text = message.get();
+        String header = "[" + level.name().toLowerCase() + "] " + stage + ":";
+
+        System.out.println(text.contains("\n") ? header + "\n" + text : header + " " + text);
+    }
+}
@@ -1,4 +0,0 @@
-package pt.up.fe.comp2023;
-
-public record ExprCodeResult(String prefixCode, String value) {
-}
@@ -0,0 +1,66 @@
+package pt.up.fe.comp2023;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Output sink shared by every instruction handler of the Jasmin backend.
+ * Code is appended straight into the underlying buffer or writer, so no intermediate strings are built per instruction.
+ */
+public class JasminEmitter {
+    private final Appendable out;
+
+    /* the labels made by the backend itself are numbered per emitter, and every method body has an emitter of its own */
+    private int labelCounter = 0;
+
+    public JasminEmitter(Appendable out) {
+        this.out = out;
+    }
+
+    /* an emitter writing to the same output, whose labels are numbered from the start as every method's are */
+    public JasminEmitter forMethod() {
+        return new JasminEmitter(this.out);
+    }
+
+    public int nextLabel() {
+        return this.labelCounter++;
+    }
+
+    public JasminEmitter append(CharSequence s) {
+        try {
+            this.out.append(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this;
+    }
+
+    public JasminEmitter append(char c) {
+        try {
+            this.out.append(c);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this;
+    }
+
+    public JasminEmitter append(int i) {
+        /* avoid the temporary string when writing into a builder */
+        if (this.out instanceof StringBuilder builder) {
+            builder.append(i);
+
+            return this;
+        }
+
+        return this.append(String.valueOf(i));
+    }
+
+    /**
+     * Appends a local variable instruction, choosing the short form (e.g. 'iload_1') for registers 0 to 3.
+     */
+    public JasminEmitter appendRegister(String instruction, int register) {
+        return this.append('\t').append(instruction).append(register < 4 ? '_' : ' ').append(register).append('\n');
+    }
+}
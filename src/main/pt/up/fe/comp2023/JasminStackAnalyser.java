@@ -0,0 +1,165 @@
+package pt.up.fe.comp2023;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the exact operand stack depth needed by a method from the Jasmin instructions emitted for its body.
+ * The instructions are walked along every control-flow edge (fall-through and branch targets), starting with an empty
+ * stack, and the deepest point reached is the value for '.limit stack'.
+ * An instruction whose effect is not known makes the whole method fall back to a limit that holds for any code of its
+ * length, so that the class still verifies.
+ */
+public class JasminStackAnalyser {
+    /* the stack effect of an instruction the analyser does not know */
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+
+    /* no instruction pushes more than two slots, e.g. 'dup2' or a call returning a long */
+    private static final int MAX_PUSH = 2;
+
+    /* the operand stack size is stored in 16 bits of the Code attribute */
+    private static final int MAX_LIMIT = 0xFFFF;
+
+    private final List<String> instructions = new ArrayList<>();
+    private final Map<String, Integer> labels = new HashMap<>();
+
+    public JasminStackAnalyser(CharSequence body) {
+        for (String line : body.toString().split("\n")) {
+            String trimmed = line.trim();
+
+            if (trimmed.isEmpty()) continue;
+
+            /* a label refers to the instruction that follows it */
+            if (trimmed.endsWith(":")) {
+                this.labels.put(trimmed.substring(0, trimmed.length() - 1), this.instructions.size());
+            }
+            else {
+                this.instructions.add(trimmed);
+            }
+        }
+    }
+
+    public int maxStack() {
+        int size = this.instructions.size();
+        int[] depths = new int[size];
+        Arrays.fill(depths, -1);
+
+        Deque<Integer> worklist = new ArrayDeque<>();
+        int max = 0;
+
+        if (size > 0) {
+            depths[0] = 0;
+            worklist.push(0);
+        }
+
+        while (!worklist.isEmpty()) {
+            int index = worklist.pop();
+            String instruction = this.instructions.get(index);
+            String opcode = opcode(instruction);
+
+            int effect = stackEffect(opcode, instruction);
+            if (effect == UNKNOWN) return this.conservativeLimit();
+
+            int after = depths[index] + effect;
+            max = Math.max(max, Math.max(depths[index], after));
+
+            /* the verifier requires the same depth on every path, so the first one to reach an instruction is kept */
+            if (isBranch(opcode)) {
+                int target = this.target(instruction);
+
+                if (target != -1 && target < size && depths[target] == -1) {
+                    depths[target] = after;
+                    worklist.push(target);
+                }
+            }
+
+            if (fallsThrough(opcode) && index + 1 < size && depths[index + 1] == -1) {
+                depths[index + 1] = after;
+                worklist.push(index + 1);
+            }
+        }
+
+        return max;
+    }
+
+    /* the stack is as deep on every path to an instruction, and no path without loops is longer than the code */
+    private int conservativeLimit() {
+        return (int) Math.min(MAX_LIMIT, (long) MAX_PUSH * this.instructions.size());
+    }
+
+    private int target(String instruction) {
+        String label = instruction.substring(instruction.indexOf(' ') + 1).trim();
+
+        /* a jump to a missing label is left for the assembler to report */
+        return this.labels.getOrDefault(label, -1);
+    }
+
+    private static String opcode(String instruction) {
+        int space = instruction.indexOf(' ');
+        String opcode = space == -1 ? instruction : instruction.substring(0, space);
+
+        /* short forms such as 'iload_1' or 'iconst_m1' have the same effect as the long ones */
+        int underscore = opcode.indexOf('_');
+        if (underscore != -1 && !opcode.startsWith("if_")) {
+            opcode = opcode.substring(0, underscore);
+        }
+
+        return opcode;
+    }
+
+    private static boolean isBranch(String opcode) {
+        return opcode.equals("goto") || opcode.startsWith("if");
+    }
+
+    private static boolean fallsThrough(String opcode) {
+        return switch (opcode) {
+            case "goto", "return", "ireturn", "areturn", "athrow" -> false;
+            default -> true;
+        };
+    }
+
+    private static int stackEffect(String opcode, String instruction) {
+        return switch (opcode) {
+            case "iconst", "aconst", "bipush", "sipush", "ldc", "iload", "aload", "new", "dup" -> 1;
+            case "dup2" -> 2;
+            case "newarray", "anewarray", "arraylength", "checkcast", "instanceof", "getfield", "goto", "return",
+                    "iinc", "nop", "ineg", "swap" -> 0;
+            case "istore", "astore", "pop", "ireturn", "areturn", "athrow",
+                    "iadd", "isub", "imul", "idiv", "irem", "iand", "ior", "ixor", "ishl", "ishr", "iushr",
+                    "iaload", "aaload", "ifeq", "ifne", "iflt", "ifge", "ifgt", "ifle", "ifnull", "ifnonnull" -> -1;
+            case "pop2", "putfield", "if_icmpeq", "if_icmpne", "if_icmplt", "if_icmpge", "if_icmpgt", "if_icmple",
+                    "if_acmpeq", "if_acmpne" -> -2;
+            case "iastore", "aastore" -> -3;
+            case "invokestatic" -> invokeEffect(instruction, false);
+            case "invokevirtual", "invokespecial" -> invokeEffect(instruction, true);
+            default -> UNKNOWN;
+        };
+    }
+
+    /**
+     * Pops the arguments (and the object reference, for instance calls) and pushes the result, if any.
+     */
+    private static int invokeEffect(String instruction, boolean hasReceiver) {
+        int open = instruction.indexOf('(');
+        int close = instruction.indexOf(')', open);
+
+        int arguments = 0;
+        for (int i = open + 1; i < close; i++) {
+            char c = instruction.charAt(i);
+
+            if (c == '[') continue;
+            if (c == 'L') i = instruction.indexOf(';', i);
+
+            arguments++;
+        }
+
+        boolean returnsValue = instruction.charAt(close + 1) != 'V';
+
+        return (returnsValue ? 1 : 0) - arguments - (hasReceiver ? 1 : 0);
+    }
+}
@@ -6,18 +6,18 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.regex.Pattern;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp2023.optimization.Optimizer;
 import pt.up.fe.comp2023.optimization.ollir.Liveness;
-import pt.up.fe.comp2023.visitors.ProgramVisitor;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsLogs;
 import pt.up.fe.specs.util.SpecsSystem;
@@ -33,6 +33,12 @@ public class Launcher {
         // Parse arguments as a map with predefined options
         var config = parseArgs(args);
 
+        // Several inputs, or a directory, are compiled together in batch mode
+        if (config.get("batch").equals("true")) {
+            runBatch(config);
+            return;
+        }
+
         // Get input file
         File inputFile = new File(config.get("inputFile"));
 
@@ -44,6 +50,25 @@ public class Launcher {
         // Read contents of input file
         String code = SpecsIo.read(inputFile);
 
+        // The trees and the code of each stage are only built and printed when debugging
+        Diagnostics diagnostics = Diagnostics.fromConfig(config);
+
+        // With --stats, the time and memory taken by each stage are recorded
+        CompilerStats stats = config.containsKey("stats") ? CompilerStats.start(inputFile.getPath()) : null;
+
+        // With a cache, a source that was already compiled with the same options skips every stage
+        CompilationCache cache = CompilationCache.fromConfig(config);
+        String cacheKey = cache == null ? null : CompilationCache.key(code, config);
+        CompilationCache.Entry cached = cache == null ? null : CompilerStats.measure("cacheLookup", () -> cache.get(cacheKey));
+
+        if (cached != null) {
+            diagnostics.debug("jasmin", cached::jasminCode);
+
+            if (stats != null) writeStats(config, List.of(stats));
+            writeAndRun(config, cached.className(), cached.classFile());
+            return;
+        }
+
         // Instantiate JmmParser
         SimpleParser parser = new SimpleParser();
 
@@ -53,85 +78,187 @@ public class Launcher {
         // Check if there are parsing errors
         TestUtils.noErrors(parserResult.getReports());
 
-        // Testing the generated code
-        Generator gen = new Generator();
-        String generatedCode = gen.visit(parserResult.getRootNode(), "");
-        System.out.println(generatedCode);
-
-        MySymbolTable symbolTable = gen.getSymbolTable();
+        // Analysis stage, which also builds the symbol table
+        Analysis analysis = new Analysis();
 
+        JmmSemanticsResult semanticsResult = analysis.semanticAnalysis(parserResult);
 
         // System.out.println("Printing Symbol Table...");
-        // symbolTable.printSymbolTable();
-
-        ArrayList<Report> reports = new ArrayList<>();
+        // ((MySymbolTable) semanticsResult.getSymbolTable()).printSymbolTable();
 
-        ProgramVisitor visitor = new ProgramVisitor(symbolTable, reports);
+        diagnostics.debug("ast", () -> semanticsResult.getRootNode().toTree());
 
-        visitor.visit(parserResult.getRootNode(), "");
-
-        Analysis analysis = new Analysis();
-
-        JmmSemanticsResult semanticsResult = analysis.semanticAnalysis(parserResult);
-
-        System.out.println(semanticsResult.getRootNode().toTree());
+        List<Report> reports = semanticsResult.getReports();
 
         TestUtils.noErrors(reports);
 
-        int counter = 1;
-
         if (reports.isEmpty()) {
-            System.out.println("All good! No reports were found.");
+            diagnostics.info("analysis", () -> "All good! No reports were found.");
         }
 
-        for (Report report : reports) {
-            System.out.println("- Report no. " + counter + ": " + report.toString());
-            counter++;
+        for (int i = 0; i < reports.size(); i++) {
+            Report report = reports.get(i);
+            int counter = i + 1;
+            diagnostics.warn("analysis", () -> "Report no. " + counter + ": " + report);
         }
 
-        System.out.println("Starting the optimization process...");
+        diagnostics.info("optimization", () -> "Starting the optimization process...");
         Optimizer optimizer = new Optimizer();
         JmmSemanticsResult optimized = optimizer.optimize(semanticsResult);
 
         //System.out.println(optimized.getRootNode().toTree());
 
-        MyJmmOptimization optimization = new MyJmmOptimization();
-        OllirResult ollirResult = optimization.toOllir(semanticsResult);
+        // The OLLIR class is built directly from the AST; the OLLIR code is only printed from it when debugging
+        // With --parallel-codegen the methods are built concurrently
+        boolean parallel = config.getOrDefault("parallelCodegen", "false").equals("true");
+
+        ClassUnit ollirClass = CompilerStats.measure("ollir",
+                () -> new OllirBuilder((MySymbolTable) optimized.getSymbolTable(), parallel).build(optimized.getRootNode()));
+        diagnostics.debug("ollir", () -> new OllirPrinter().print(ollirClass));
+        List<Report> optimizationReports = new ArrayList<>();
+        CompilerStats.measure("optimization", () -> optimizer.optimize(ollirClass, config, optimizationReports));
 
-        Liveness liveness = new Liveness(ollirResult);
+        diagnostics.debug("liveness", () -> new Liveness(ollirClass).describe());
 
-        liveness.in();
+        TestUtils.noErrors(optimizationReports);
 
-        TestUtils.noErrors(ollirResult);
+        // The class file is written directly, the Jasmin code is only printed when debugging
+        // The code of both goes through the peephole rules, unless --no-peephole is given
+        ClassFileBackend backend = ClassFileBackend.fromConfig(config);
+        String jasminCode = diagnostics.isEnabled(Diagnostics.Level.DEBUG) || cache != null
+                ? CompilerStats.measure("jasmin", () -> MyJasminBackend.fromConfig(config).toJasmin(ollirClass).getJasminCode()) : null;
+
+        diagnostics.debug("jasmin", () -> jasminCode);
+
+        byte[] classFile = CompilerStats.measure("classFile", () -> backend.toClassFile(ollirClass));
+
+        if (backend.getPeephole() != null) {
+            diagnostics.info("peephole", backend.getPeephole()::describe);
+        }
+
+        if (cache != null) {
+            CompilationCache.Entry entry = new CompilationCache.Entry(ollirClass.getClassName(), classFile, jasminCode);
+            CompilerStats.measure("cacheStore", () -> cache.put(cacheKey, entry));
+        }
 
-        // TESTING OLLIR TO JASIMIN
+        if (stats != null) writeStats(config, List.of(stats));
 
-        //System.out.println("OLLIR -> JASMIN");
-        //String ollirCode = SpecsIo.read(inputFile);
-        //OllirResult ollirResult = new OllirResult(ollirCode, Collections.emptyMap());
-        MyJasminBackend jasminBackend = new MyJasminBackend();
-        JasminResult myJasminResult = jasminBackend.toJasmin(ollirResult);
-        System.out.println(myJasminResult.getJasminCode());
-        myJasminResult.compile();
-        myJasminResult.run();
+        writeAndRun(config, ollirClass.getClassName(), classFile);
 
         // ... add remaining stages
     }
 
-    private static Map<String, String> parseArgs(String[] args) {
-        SpecsLogs.info("Executing with args: " + Arrays.toString(args));
+    private static void writeAndRun(Map<String, String> config, String className, byte[] classFile) {
+        // The class file is only written when an output folder is given, the worker JVM loads it from memory
+        if (config.containsKey("outputDir")) {
+            ClassFileBackend.writeClassFile(className, classFile, new File(config.get("outputDir")));
+        }
 
-        // Check if there is at least one argument
-        if (args.length != 1) {
-            throw new RuntimeException("Expected a single argument, a path to an existing input file.");
+        System.out.print(new WorkerJvmRunner().run(className, classFile));
+    }
+
+    private static void writeStats(Map<String, String> config, List<CompilerStats> stats) {
+        CompilerStats.stop();
+        String json = CompilerStats.toJson(stats);
+
+        // --stats prints the statistics, --stats=<file> writes them to a file
+        if (config.get("stats").isEmpty()) {
+            System.err.println(json);
+        }
+        else {
+            SpecsIo.write(new File(config.get("stats")), json);
         }
+    }
+
+    private static void runBatch(Map<String, String> config) {
+        List<String> paths = Arrays.asList(config.get("inputFiles").split(Pattern.quote(File.pathSeparator)));
+        List<BatchCompiler.Input> inputs = BatchCompiler.collectInputs(paths);
+
+        BatchCompiler compiler = new BatchCompiler(config);
+
+        long start = System.nanoTime();
+        List<BatchCompiler.UnitResult> results = compiler.compile(inputs);
+        long wallTime = System.nanoTime() - start;
+
+        BatchCompiler.printSummary(results, wallTime);
+
+        if (config.containsKey("stats")) {
+            writeStats(config, results.stream().map(BatchCompiler.UnitResult::stats).filter(Objects::nonNull).toList());
+        }
+
+        if (results.stream().anyMatch(result -> !result.success())) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        SpecsLogs.info("Executing with args: " + Arrays.toString(args));
 
         // Create config
         Map<String, String> config = new HashMap<>();
-        config.put("inputFile", args[0]);
-        config.put("optimize", "false");
-        config.put("registerAllocation", "-1");
-        config.put("debug", "false");
+        List<String> inputs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                config.put("threads", arg.substring("--threads=".length()));
+            }
+            else if (arg.startsWith("--out=")) {
+                config.put("outputDir", arg.substring("--out=".length()));
+            }
+            else if (arg.equals("-o")) {
+                config.put("optimize", "true");
+            }
+            else if (arg.startsWith("-r=")) {
+                config.put("registerAllocation", arg.substring("-r=".length()));
+            }
+            else if (arg.equals("--cache")) {
+                config.put("cacheDir", CompilationCache.DEFAULT_DIR);
+            }
+            else if (arg.startsWith("--cache=")) {
+                config.put("cacheDir", arg.substring("--cache=".length()));
+            }
+            else if (arg.startsWith("--cache-size=")) {
+                config.put("cacheSize", arg.substring("--cache-size=".length()));
+            }
+            else if (arg.equals("--stats")) {
+                config.put("stats", "");
+            }
+            else if (arg.startsWith("--stats=")) {
+                config.put("stats", arg.substring("--stats=".length()));
+            }
+            else if (arg.equals("-d")) {
+                config.put("debug", "true");
+            }
+            else if (arg.equals("--parallel-analysis")) {
+                config.put("parallelAnalysis", "true");
+            }
+            else if (arg.equals("--parallel-codegen")) {
+                config.put("parallelCodegen", "true");
+            }
+            else if (arg.equals("--no-peephole")) {
+                config.put("peephole", "false");
+            }
+            else if (arg.startsWith("--log=")) {
+                config.put("logLevel", arg.substring("--log=".length()));
+            }
+            else {
+                inputs.add(arg);
+            }
+        }
+
+        // Check if there is at least one input
+        if (inputs.isEmpty()) {
+            throw new RuntimeException("Expected at least one argument, a path to an existing input file or directory.");
+        }
+
+        boolean batch = inputs.size() > 1 || new File(inputs.get(0)).isDirectory();
+
+        config.put("inputFile", inputs.get(0));
+        config.put("inputFiles", String.join(File.pathSeparator, inputs));
+        config.put("batch", String.valueOf(batch));
+        config.putIfAbsent("optimize", "false");
+        config.putIfAbsent("registerAllocation", "-1");
+        config.putIfAbsent("debug", "false");
 
         return config;
     }
@@ -3,6 +3,7 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 
@@ -12,6 +13,8 @@ public class MethodInfo {
     private Type returnType;
     private List<Symbol> parameters = new ArrayList<>();
     private List<Symbol> localVariables = new ArrayList<>();
+    /* parameters and locals by name, locals hiding parameters with the same name */
+    private HashMap<String, VariableBinding> scope = new HashMap<>();
 
     public MethodInfo(String name, Type returnType) {
         this.name = name;
@@ -38,10 +41,22 @@ public class MethodInfo {
 
     public void addParameter(Symbol parameter) {
         this.parameters.add(parameter);
+        this.scope.putIfAbsent(parameter.getName(),
+                new VariableBinding(parameter, VariableBinding.Kind.PARAMETER, this.parameters.size()));
     }
 
     public void addLocalVariable(Symbol localVariable) {
         this.localVariables.add(localVariable);
+
+        VariableBinding previous = this.scope.get(localVariable.getName());
+        if (previous == null || previous.kind() == VariableBinding.Kind.PARAMETER) {
+            this.scope.put(localVariable.getName(),
+                    new VariableBinding(localVariable, VariableBinding.Kind.LOCAL, this.localVariables.size() - 1));
+        }
+    }
+
+    public VariableBinding lookup(String name) {
+        return this.scope.get(name);
     }
 }
 
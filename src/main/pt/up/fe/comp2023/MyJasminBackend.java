@@ -4,56 +4,127 @@ import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.optimization.peephole.PeepholeOptimizer;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class MyJasminBackend implements JasminBackend {
     private String className;
     private AccessModifiers accessLevel;
     private String superClass;
-    private int currStackSize = 0;
 
-    private int maxStackSize = 0;
+    /* whether the methods are generated concurrently; labels are numbered per method, so the code is the same */
+    private final boolean parallel;
 
-    private int labelCounter = 0;
+    /* rewrites the body of each method once it is emitted, null when 'peephole=false' */
+    private final PeepholeOptimizer peephole;
+
+    public MyJasminBackend() {
+        this(false);
+    }
+
+    public MyJasminBackend(boolean parallel) {
+        this(parallel, true);
+    }
+
+    public MyJasminBackend(boolean parallel, boolean peephole) {
+        this.parallel = parallel;
+        this.peephole = peephole ? new PeepholeOptimizer() : null;
+    }
+
+    public static MyJasminBackend fromConfig(Map<String, String> config) {
+        return new MyJasminBackend(config.getOrDefault("parallelCodegen", "false").equals("true"),
+                !config.getOrDefault("peephole", "true").equals("false"));
+    }
 
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
-        ClassUnit ollirClass = ollirResult.getOllirClass();
+        /* the backend made from config.properties has the default options, the config may still change them */
+        Map<String, String> config = ollirResult.getConfig();
+        boolean parallel = this.parallel || config.getOrDefault("parallelCodegen", "false").equals("true");
+        boolean peephole = this.peephole != null && !config.getOrDefault("peephole", "true").equals("false");
+
+        MyJasminBackend backend = parallel == this.parallel && peephole == (this.peephole != null) ? this
+                : new MyJasminBackend(parallel, peephole);
+        JasminResult result = backend.toJasmin(ollirResult.getOllirClass());
+
+        if (backend.peephole != null) {
+            Diagnostics.fromConfig(config).info("peephole", backend.peephole::describe);
+        }
+
+        return result;
+    }
+
+    /* how many times each peephole rule fired over every method generated so far, or null if they are off */
+    public PeepholeOptimizer getPeephole() {
+        return this.peephole;
+    }
+
+    /* for classes built directly by OllirBuilder, which have no OLLIR text to wrap in an OllirResult */
+    public JasminResult toJasmin(ClassUnit ollirClass) {
         StringBuilder jasminCode = new StringBuilder();
 
-        jasminCode.append(generateClassStructure(ollirClass));
-        jasminCode.append(generateMethodsStructure(ollirClass));
+        this.generateClass(ollirClass, new JasminEmitter(jasminCode));
 
         return new JasminResult(jasminCode.toString());
     }
 
-    private String generateStacklimits() {
-        return "\t .limit stack " + (this.maxStackSize + 4) + "\n";
+    /**
+     * Writes the Jasmin code straight into the given writer, without keeping the whole class in memory.
+     * The writer is flushed, but not closed.
+     */
+    public void toJasmin(OllirResult ollirResult, Writer writer) {
+        this.generateClass(ollirResult.getOllirClass(), new JasminEmitter(writer));
+
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void toJasmin(OllirResult ollirResult, OutputStream outputStream) {
+        this.toJasmin(ollirResult, new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
     }
 
-    private String generateLocalLimits(Method method) {
-        if (method.isConstructMethod()) return "";
+    private void generateClass(ClassUnit ollirClass, JasminEmitter code) {
+        generateClassStructure(ollirClass, code);
+        generateMethodsStructure(ollirClass, code);
+    }
+
+    private void generateStacklimits(StringBuilder body, JasminEmitter code) {
+        code.append("\t .limit stack ").append(new JasminStackAnalyser(body).maxStack()).append('\n');
+    }
 
-        int locals = (int) method.getVarTable()
+    private void generateLocalLimits(Method method, JasminEmitter code) {
+        if (method.isConstructMethod()) return;
+
+        /* registers may be shared after allocation, so the highest one used sets the limit */
+        int locals = method.getVarTable()
                 .values()
                 .stream()
-                .map(Descriptor::getVirtualReg)
-                .distinct()
-                .count();
+                .mapToInt(Descriptor::getVirtualReg)
+                .max()
+                .orElse(-1) + 1;
 
         if (!method.isStaticMethod()) {
-            locals++;
+            locals = Math.max(locals, 1);
         }
-        return "\t .limit locals " + locals + "\n";
+        code.append("\t .limit locals ").append(locals).append('\n');
     }
 
 
-    private String generateClassStructure(ClassUnit ollirClass) {
-        StringBuilder code = new StringBuilder();
-
+    private void generateClassStructure(ClassUnit ollirClass, JasminEmitter code) {
         this.className = ollirClass.getClassName();
         this.accessLevel = ollirClass.getClassAccessModifier();
         this.superClass = ollirClass.getSuperClass();
@@ -62,82 +133,116 @@ public class MyJasminBackend implements JasminBackend {
         code.append(".class public ");
         if (ollirClass.isStaticClass())
             code.append("static ");
-        code.append(this.className).append("\n");
+        code.append(this.className).append('\n');
 
-        code.append(".super ").append(this.superClass).append("\n");
+        code.append(".super ").append(this.superClass).append('\n');
 
         for (Field field : ollirClass.getFields()) {
             code.append(".field public ");
             if (field.isStaticField())
                 code.append("static ");
-            code.append(field.getFieldName()).append(" ");
-            code.append(convertType(field.getFieldType()));
-            code.append("\n");
+            code.append(field.getFieldName()).append(' ');
+            convertType(field.getFieldType(), code);
+            code.append('\n');
         }
-
-        return code.toString();
     }
 
-    private static String convertType(Type type) {
+    private static void convertType(Type type, JasminEmitter code) {
         switch (type.getTypeOfElement()) {
             case INT32:
-                return "I";
+                code.append('I');
+                break;
             case BOOLEAN:
-                return "Z";
+                code.append('Z');
+                break;
             case ARRAYREF:
-                return "[I";
+                code.append("[I");
+                break;
             case OBJECTREF, CLASS: {
                 var objectRef = (ClassType) type;
-                return "L" + objectRef.getName() + ";";
+                code.append('L').append(objectRef.getName()).append(';');
+                break;
             }
             case STRING:
-                return "Ljava/lang/String;";
+                code.append("Ljava/lang/String;");
+                break;
             case VOID:
-                return "V";
+                code.append('V');
+                break;
             default:
                 throw new NotImplementedException(type.getTypeOfElement());
         }
     }
 
-    private String generateMethodsStructure(ClassUnit ollirClass) {
-        StringBuilder code = new StringBuilder();
-
-        for (Method method : ollirClass.getMethods()) {
-
-            if (method.isConstructMethod()) {
-                code.append("\n.method public <init>()V\n");
-                code.append(generateMethodBody(method));
-                code.append("\treturn\n");
-                code.append(".end method\n\n");
-            } else if (method.getMethodName().equals("main")) {
-                code.append(".method public static main([Ljava/lang/String;)V\n");
-                code.append(generateStacklimits());
-                code.append(generateLocalLimits(method));
-                code.append(generateMethodBody(method));
-                code.append(".end method\n\n");
-            } else {
-                code.append(".method public ");
-                code.append(method.getMethodName() + "(");
-                for (Element element : method.getParams()) {
-                    code.append(convertType(element.getType()));
-                }
-                code.append(")" + convertType(method.getReturnType()) + "\n");
-                code.append(generateStacklimits());
-                code.append(generateLocalLimits(method));
-                code.append(generateMethodBody(method));
-                code.append(".end method\n\n");
+    /**
+     * Each method only reads the class. When they are generated concurrently, each one goes into a buffer of its own
+     * and the buffers are written in declaration order; otherwise they are written straight to the output.
+     */
+    private void generateMethodsStructure(ClassUnit ollirClass, JasminEmitter code) {
+        List<Method> methods = ollirClass.getMethods();
 
+        if (!this.parallel) {
+            for (Method method : methods) {
+                this.generateMethod(method, code.forMethod());
             }
-            this.currStackSize = 0;
-            this.maxStackSize = 0;
 
+            return;
         }
-        return code.toString();
+
+        List<String> methodsCode = methods.parallelStream()
+                .map(method -> {
+                    StringBuilder methodCode = new StringBuilder();
+                    this.generateMethod(method, new JasminEmitter(methodCode));
+
+                    return methodCode.toString();
+                })
+                .toList();
+
+        methodsCode.forEach(code::append);
     }
 
-    private String generateMethodBody(Method method) {
-        StringBuilder code = new StringBuilder();
+    private void generateMethod(Method method, JasminEmitter code) {
+        if (method.isConstructMethod()) {
+            code.append("\n.method public <init>()V\n");
+            generateMethodBody(method, code);
+            code.append("\treturn\n");
+            code.append(".end method\n\n");
+        } else if (method.getMethodName().equals("main")) {
+            code.append(".method public static main([Ljava/lang/String;)V\n");
+            generateLimitsAndBody(method, code);
+            code.append(".end method\n\n");
+        } else {
+            code.append(".method public ");
+            code.append(method.getMethodName()).append('(');
+            for (Element element : method.getParams()) {
+                convertType(element.getType(), code);
+            }
+            code.append(')');
+            convertType(method.getReturnType(), code);
+            code.append('\n');
+            generateLimitsAndBody(method, code);
+            code.append(".end method\n\n");
+        }
+    }
 
+    /**
+     * The stack limit depends on the whole body, so the body is generated into its own buffer first,
+     * rewritten by the peephole rules, and only written after the limits.
+     */
+    private void generateLimitsAndBody(Method method, JasminEmitter code) {
+        StringBuilder body = new StringBuilder();
+        generateMethodBody(method, new JasminEmitter(body));
+
+        if (this.peephole != null) {
+            body = new StringBuilder(this.peephole.optimize(body, PeepholeOptimizer.temporaryRegisters(method)));
+        }
+
+        generateStacklimits(body, code);
+        generateLocalLimits(method, code);
+        code.append(body);
+    }
+
+    private void generateMethodBody(Method method, JasminEmitter code) {
         List<Instruction> instructions = method.getInstructions();
 
 /*
@@ -151,18 +256,14 @@ public class MyJasminBackend implements JasminBackend {
 */
 
         for (Instruction instruction : instructions) {
-            code.append(getInstructions(instruction, method));
+            getInstructions(instruction, method, code);
             if (instruction.getInstType() == InstructionType.CALL && ((CallInstruction) (instruction)).getReturnType().getTypeOfElement() != ElementType.VOID) {
-                updateStackSize(-1);
-                code.append("\t").append("pop").append("\n");
+                code.append("\tpop\n");
             }
         }
-        return code.toString();
     }
 
-    private String getInstructions(Instruction instruction, Method method) {
-        StringBuilder code = new StringBuilder();
-
+    private void getInstructions(Instruction instruction, Method method, JasminEmitter code) {
         List<String> labels = method.getLabels(instruction);
         for (String label : labels) {
             code.append(label).append(":\n\t");
@@ -170,88 +271,69 @@ public class MyJasminBackend implements JasminBackend {
 
         switch (instruction.getInstType()) {
             case RETURN:
-                code.append(getReturnInstruction((ReturnInstruction) instruction, method));
+                getReturnInstruction((ReturnInstruction) instruction, method, code);
                 break;
             case PUTFIELD:
-                code.append(getPutFieldInstruction((PutFieldInstruction) instruction, method));
+                getPutFieldInstruction((PutFieldInstruction) instruction, method, code);
                 break;
             case CALL:
-                code.append(getCallInstruction((CallInstruction) instruction, method));
+                getCallInstruction((CallInstruction) instruction, method, code);
                 break;
             case GETFIELD:
-                code.append(getGetFieldInstruction((GetFieldInstruction) instruction, method));
+                getGetFieldInstruction((GetFieldInstruction) instruction, method, code);
                 break;
             case UNARYOPER:
-                code.append(getUnaryOpInstruction((UnaryOpInstruction) instruction, method));
+                getUnaryOpInstruction((UnaryOpInstruction) instruction, method, code);
                 break;
             case BINARYOPER:
-                code.append(getBinaryOpInstruction((BinaryOpInstruction) instruction, method));
+                getBinaryOpInstruction((BinaryOpInstruction) instruction, method, code);
                 break;
             case NOPER:
-                code.append(getLoad(((SingleOpInstruction) instruction).getSingleOperand(), method));
+                getLoad(((SingleOpInstruction) instruction).getSingleOperand(), method, code);
                 break;
             case ASSIGN:
-                code.append(getAssignInstruction((AssignInstruction) instruction, method));
+                getAssignInstruction((AssignInstruction) instruction, method, code);
                 break;
             case BRANCH:
-                code.append(getBranchInstruction((CondBranchInstruction) instruction, method));
+                getBranchInstruction((CondBranchInstruction) instruction, method, code);
                 break;
             case GOTO:
-                code.append(getGoToInstruction((GotoInstruction) instruction));
+                getGoToInstruction((GotoInstruction) instruction, code);
                 break;
         }
-        ;
-
-        this.maxStackSize = Integer.max(this.maxStackSize, this.currStackSize);
-        return code.toString();
     }
 
-    private String getGoToInstruction(GotoInstruction instruction) {
-        return "\tgoto " + instruction.getLabel() + "\n";
+    private void getGoToInstruction(GotoInstruction instruction, JasminEmitter code) {
+        code.append("\tgoto ").append(instruction.getLabel()).append('\n');
     }
 
-    private String getBranchInstruction(CondBranchInstruction instruction, Method method) {
-        StringBuilder code = new StringBuilder();
-
+    private void getBranchInstruction(CondBranchInstruction instruction, Method method, JasminEmitter code) {
         if (instruction instanceof SingleOpCondInstruction) {
             Element operand = ((SingleOpCondInstruction) instruction).getCondition().getSingleOperand();
-            code.append(getLoad(operand, method));
-
-            // Use ifeq or ifne based on the condition type
-            if (operand.isLiteral()) {
-                LiteralElement literal = (LiteralElement) operand;
-                if (Integer.parseInt(literal.getLiteral()) == 0) {
-                    updateStackSize(-1);
-                    code.append("\tifeq " + instruction.getLabel() + "\n");
-                } else {
-                    updateStackSize(-1);
-                    code.append("\tifne " + instruction.getLabel() + "\n");
-                }
-            } else {
-                // Default to using ifne
-                updateStackSize(-1);
-                code.append("\tifne " + instruction.getLabel() + "\n");
-            }
+            getLoad(operand, method, code);
+
+            /* the condition holds when the loaded value is not 0, literal or not */
+            code.append("\tifne ").append(instruction.getLabel()).append('\n');
         } else if (instruction instanceof OpCondInstruction) {
             OpInstruction opInstruction = ((OpCondInstruction) instruction).getCondition();
-            code.append(handleOpCondition(opInstruction, instruction, method));
+            handleOpCondition(opInstruction, instruction, method, code);
         }
-
-        return code.toString();
     }
 
-    private String handleOpCondition(OpInstruction opInstruction, CondBranchInstruction condBranchInstruction, Method method) {
+    private void handleOpCondition(OpInstruction opInstruction, CondBranchInstruction condBranchInstruction, Method method, JasminEmitter code) {
         OperationType type;
-        StringBuilder code = new StringBuilder();
 
         if (opInstruction instanceof BinaryOpInstruction binaryOpInstruction) {
             type = binaryOpInstruction.getOperation().getOpType();
-            code.append(getLoad(binaryOpInstruction.getLeftOperand(), method)).append("\n");
-            code.append(getLoad(binaryOpInstruction.getRightOperand(), method)).append("\n");
+            getLoad(binaryOpInstruction.getLeftOperand(), method, code);
+            code.append('\n');
+            getLoad(binaryOpInstruction.getRightOperand(), method, code);
+            code.append('\n');
         }
         else if (opInstruction instanceof UnaryOpInstruction unaryOpInstruction) {
             type = unaryOpInstruction.getOperation().getOpType();
-            code.append(getLoad(unaryOpInstruction.getOperand(), method)).append("\n");
+            getLoad(unaryOpInstruction.getOperand(), method, code);
+            code.append('\n');
         }
         else {
             throw new RuntimeException("Invalid operation type");
@@ -259,50 +341,37 @@ public class MyJasminBackend implements JasminBackend {
 
         switch (type) {
             case EQ -> {
-                updateStackSize(-2);
-                code.append("\tif_icmpeq " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tif_icmpeq ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case NEQ -> {
-                updateStackSize(-2);
-                code.append("\tif_icmpne " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tif_icmpne ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case LTH -> {
-                updateStackSize(-2);
-                code.append("\tif_icmplt " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tif_icmplt ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case GTH -> {
-                updateStackSize(-2);
-                code.append("\tif_icmpgt " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tif_icmpgt ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case LTE -> {
-                updateStackSize(-2);
-                code.append("\tif_icmple " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tif_icmple ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case GTE -> {
-                updateStackSize(-2);
-                code.append("\tif_icmpge " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tif_icmpge ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case AND, ANDB -> {
-                updateStackSize(-1);
-                updateStackSize(-1);
-                code.append("\tiand\n").append("\tifne " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tiand\n").append("\tifne ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case OR, ORB -> {
-                updateStackSize(-1);
-                updateStackSize(-1);
-                code.append("\tior\n").append("\tifne " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tior\n").append("\tifne ").append(condBranchInstruction.getLabel()).append('\n');
             }
             case NOT, NOTB -> {
-                updateStackSize(-1);
-                code.append("\tifeq " + condBranchInstruction.getLabel() + "\n");
+                code.append("\tifeq ").append(condBranchInstruction.getLabel()).append('\n');
             }
         }
-        return code.toString();
     }
 
 
-    private String getCallInstruction(CallInstruction instruction, Method method) {
-        StringBuilder code = new StringBuilder();
+    private void getCallInstruction(CallInstruction instruction, Method method, JasminEmitter code) {
         Operand firstArg = (Operand) instruction.getFirstArg();
         LiteralElement secondArg = (LiteralElement) instruction.getSecondArg();
 
@@ -310,31 +379,32 @@ public class MyJasminBackend implements JasminBackend {
         switch (callType) {
             case invokestatic, invokevirtual -> {
                 if (callType == CallType.invokevirtual) {
-                    code.append(getLoad(firstArg, method)).append("\n");
+                    getLoad(firstArg, method, code);
+                    code.append('\n');
                 }
                 for (Element element : instruction.getListOfOperands()) {
-                    code.append(getLoad(element, method)).append("\n");
+                    getLoad(element, method, code);
+                    code.append('\n');
                 }
                 if (callType == CallType.invokestatic) {
                     code.append("\tinvokestatic ");
-                    code.append(firstArg.getName()).append("/").append(secondArg.getLiteral().replace("\"", "")).append("(");
+                    code.append(firstArg.getName()).append('/');
                 } else {
                     code.append("\tinvokevirtual ");
                     ClassType classType = (ClassType) firstArg.getType();
-                    code.append(classType.getName()).append("/").append(secondArg.getLiteral().replace("\"", "")).append("(");
-                }
-                for (Element element : instruction.getListOfOperands()) {
-                    code.append(convertType(element.getType()));
+                    code.append(classType.getName()).append('/');
                 }
-                code.append(")").append(convertType(instruction.getReturnType())).append("\n");
+                appendMethodSignature(secondArg, instruction, code);
                 break;
             }
             case invokespecial -> {
                 if (firstArg.getName().equals("this")) {
-                    code.append(getLoad(firstArg, method)).append("\n");
+                    getLoad(firstArg, method, code);
+                    code.append('\n');
                 }
                 for (Element element : instruction.getListOfOperands()) {
-                    code.append(getLoad(element, method)).append("\n");
+                    getLoad(element, method, code);
+                    code.append('\n');
                 }
                 code.append("\tinvokespecial ");
                 if (method.isConstructMethod() && firstArg.getName().equals("this")) {
@@ -347,150 +417,147 @@ public class MyJasminBackend implements JasminBackend {
                     ClassType classType1 = (ClassType) firstArg.getType();
                     code.append(classType1.getName());
                 }
-                code.append("/").append(secondArg.getLiteral().replace("\"", "")).append("(");
-                for (Element element : instruction.getListOfOperands()) {
-                    code.append(convertType(element.getType()));
-                }
-                code.append(")").append(convertType(instruction.getReturnType())).append("\n");
+                code.append('/');
+                appendMethodSignature(secondArg, instruction, code);
                 break;
             }
 
             case NEW -> {
-                updateStackSize(1);
                 ElementType elementType = firstArg.getType().getTypeOfElement();
                 if (elementType == ElementType.OBJECTREF || elementType == ElementType.CLASS) {
-                    code.append("\tnew ").append(firstArg.getName()).append("\n");
+                    code.append("\tnew ").append(firstArg.getName()).append('\n');
                     code.append("\tdup\n");
                 } else if (elementType == ElementType.ARRAYREF) {
                     // TODO
                     ArrayList<Element> operands = instruction.getListOfOperands();
                     if (operands.size() < 1) {
-                        return "";
+                        return;
                     }
-                    code.append(getLoad(operands.get(0), method)).append("\n");
+                    getLoad(operands.get(0), method, code);
+                    code.append('\n');
                     code.append("\tnewarray int \n");
                 }
                 break;
             }
             case arraylength -> {
-                code.append(getLoad(instruction.getFirstArg(), method));
+                getLoad(instruction.getFirstArg(), method, code);
                 code.append("\tarraylength\n");
             }
             case ldc -> {
-                code.append(getLoad(firstArg, method)).append("\n");
+                getLoad(firstArg, method, code);
+                code.append('\n');
                 break;
             }
         }
-        return code.toString();
     }
 
-    private String getPutFieldInstruction(PutFieldInstruction instruction, Method method) {
-        updateStackSize(-2);
+    /**
+     * Appends the method name (without the OLLIR quotes) followed by its descriptor, e.g. 'foo(I[I)Z'.
+     */
+    private void appendMethodSignature(LiteralElement methodName, CallInstruction instruction, JasminEmitter code) {
+        String literal = methodName.getLiteral();
+
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c != '"') code.append(c);
+        }
+
+        code.append('(');
+        for (Element element : instruction.getListOfOperands()) {
+            convertType(element.getType(), code);
+        }
+        code.append(')');
+        convertType(instruction.getReturnType(), code);
+        code.append('\n');
+    }
+
+    private void getPutFieldInstruction(PutFieldInstruction instruction, Method method, JasminEmitter code) {
         Element firstOp = instruction.getFirstOperand();
         Element secondOp = instruction.getSecondOperand();
 
-        if (firstOp.isLiteral() || secondOp.isLiteral()) return "";
+        if (firstOp.isLiteral() || secondOp.isLiteral()) return;
 
-        StringBuilder code = new StringBuilder();
         Element newOp = instruction.getThirdOperand();
 
-        code.append(getLoad(firstOp, method)).append("\n");
-        code.append(getLoad(newOp, method)).append("\n");
+        getLoad(firstOp, method, code);
+        code.append('\n');
+        getLoad(newOp, method, code);
+        code.append('\n');
         code.append("\tputfield ");
 
         ClassType classType = (ClassType) firstOp.getType();
 
-        code.append(classType.getName()).append("/").append(((Operand) secondOp).getName());
-        code.append(" ").append(convertType(secondOp.getType())).append("\n");
-        return code.toString();
+        code.append(classType.getName()).append('/').append(((Operand) secondOp).getName());
+        code.append(' ');
+        convertType(secondOp.getType(), code);
+        code.append('\n');
     }
 
-    private String getGetFieldInstruction(GetFieldInstruction instruction, Method method) {
+    private void getGetFieldInstruction(GetFieldInstruction instruction, Method method, JasminEmitter code) {
         Element firstOp = instruction.getFirstOperand();
         Element secondOp = instruction.getSecondOperand();
 
-        if (firstOp.isLiteral() || secondOp.isLiteral()) return "";
+        if (firstOp.isLiteral() || secondOp.isLiteral()) return;
 
-        StringBuilder code = new StringBuilder();
-
-        code.append(getLoad(firstOp, method)).append("\n");
+        getLoad(firstOp, method, code);
+        code.append('\n');
         code.append("\tgetfield ");
 
         ClassType classType = (ClassType) firstOp.getType();
 
-        code.append(classType.getName()).append("/").append(((Operand) secondOp).getName());
-        code.append(" ").append(convertType(secondOp.getType())).append("\n");
-        return code.toString();
+        code.append(classType.getName()).append('/').append(((Operand) secondOp).getName());
+        code.append(' ');
+        convertType(secondOp.getType(), code);
+        code.append('\n');
     }
 
-    private String getBinaryOpInstruction(BinaryOpInstruction instruction, Method method) {
-        StringBuilder code = new StringBuilder();
+    private void getBinaryOpInstruction(BinaryOpInstruction instruction, Method method, JasminEmitter code) {
         Element leftElement = instruction.getLeftOperand();
         Element rightElement = instruction.getRightOperand();
         OperationType operationType = instruction.getOperation().getOpType();
 
-        code.append(getLoad(leftElement, method)).append(getLoad(rightElement, method)).append("\t");
+        getLoad(leftElement, method, code);
+        getLoad(rightElement, method, code);
+        code.append('\t');
         switch (operationType) {
             case ADD: {
-                updateStackSize(-1);
                 code.append("iadd");
                 break;
             }
             case SUB: {
-                updateStackSize(-1);
                 code.append("isub");
                 break;
             }
             case MUL: {
-                updateStackSize(-1);
                 code.append("imul");
                 break;
             }
             case DIV: {
-                updateStackSize(-1);
                 code.append("idiv");
                 break;
             }
             case LTH: {
-                updateStackSize(-2);
-                String operationStr = "LESS_THAN";
-                String operation = "if_icmplt " + operationStr + "_" + this.labelCounter;
-                code.append(getIf(operationStr, operation));
+                getIf("LESS_THAN", "if_icmplt", code);
                 break;
             }
             case GTH: {
-                updateStackSize(-2);
-                String operationStr = "GREATER_THAN";
-                String operation = "if_icmpgt " + operationStr + "_" + this.labelCounter;
-                code.append(getIf(operationStr, operation));
+                getIf("GREATER_THAN", "if_icmpgt", code);
                 break;
             }
             case LTE: {
-                updateStackSize(-2);
-                String operationStr = "LESS_THAN_OR_EQUAL";
-                String operation = "if_icmple " + operationStr + "_" + this.labelCounter;
-                code.append(getIf(operationStr, operation));
+                getIf("LESS_THAN_OR_EQUAL", "if_icmple", code);
                 break;
             }
             case GTE: {
-                updateStackSize(-2);
-                String operationStr = "GREATER_THAN_OR_EQUAL";
-                String operation = "if_icmpge " + operationStr + "_" + this.labelCounter;
-                code.append(getIf(operationStr, operation));
+                getIf("GREATER_THAN_OR_EQUAL", "if_icmpge", code);
                 break;
             }
             case EQ: {
-                updateStackSize(-2);
-                String operationStr = "EQUAL";
-                String operation = "if_icmpeq " + operationStr + "_" + this.labelCounter;
-                code.append(getIf(operationStr, operation));
+                getIf("EQUAL", "if_icmpeq", code);
                 break;
             }
             case NEQ: {
-                updateStackSize(-2);
-                String operationStr = "NOT_EQUAL";
-                String operation = "if_icmpne " + operationStr + "_" + this.labelCounter;
-                code.append(getIf(operationStr, operation));
+                getIf("NOT_EQUAL", "if_icmpne", code);
                 break;
             }
 /*
@@ -513,104 +580,90 @@ public class MyJasminBackend implements JasminBackend {
             }
 */
             case AND, ANDB: {
-                updateStackSize(-1);
                 code.append("iand");
                 break;
             }
             case OR, ORB: {
-                updateStackSize(-1);
                 code.append("ior");
                 break;
             }
-            default: code.append(""); // code.append(getIf("if_icpmpeq"));
+            default: break; // code.append(getIf("if_icpmpeq"));
         }
-        code.append("\n");
-        return code.toString();
+        code.append('\n');
     }
 
-    private String getUnaryOpInstruction(UnaryOpInstruction instruction, Method method) {
-        StringBuilder code = new StringBuilder();
+    private void getUnaryOpInstruction(UnaryOpInstruction instruction, Method method, JasminEmitter code) {
         OperationType operationType = instruction.getOperation().getOpType();
         Element element = instruction.getOperand();
 
         if (operationType == OperationType.NOT || operationType == OperationType.NOTB) {
 //            code.append(getLoad(element, method)).append("\n\tifeq\n");
-            code.append(getLoad(element, method));
-            code.append("\ticonst_1\n");
+            /* a boolean is 0 or 1, so flipping its lowest bit negates it */
+            getLoad(element, method, code);
+            code.append("\ticonst_1\n\tixor\n");
         }
-        return code.toString();
     }
 
 
 
-    private String getReturnInstruction(ReturnInstruction instruction, Method method) {
-        StringBuilder code = new StringBuilder();
-
-        if (instruction.hasReturnValue()) code.append(getLoad(instruction.getOperand(), method));
+    private void getReturnInstruction(ReturnInstruction instruction, Method method, JasminEmitter code) {
+        if (instruction.hasReturnValue()) getLoad(instruction.getOperand(), method, code);
 
         ElementType returnType = instruction.getReturnType().getTypeOfElement();
 
-        code.append("\t");
+        code.append('\t');
         switch (returnType) {
             case BOOLEAN, INT32, OBJECTREF, CLASS, STRING, ARRAYREF:
 
                 if (returnType == ElementType.BOOLEAN || returnType == ElementType.INT32) {
-                    updateStackSize(-1);
                     code.append("ireturn\n");
                 }
                 else {
-                    updateStackSize(-1);
                     code.append("areturn\n");
                 }
                 break;
             case VOID: code.append("return\n");
         }
-
-        return code.toString();
     }
 
 
-    private String getAssignInstruction(AssignInstruction instruction, Method method) {
+    private void getAssignInstruction(AssignInstruction instruction, Method method, JasminEmitter code) {
         Element dest = instruction.getDest();
 
         if (dest.isLiteral()) {
-            return "";
+            return;
         }
 
         if (dest instanceof ArrayOperand arrayOperand) {
-            StringBuilder code = new StringBuilder();
             Descriptor arrayDescriptor = method.getVarTable().get(arrayOperand.getName());
-            updateStackSize(1);
-            code.append("\taload" + (arrayDescriptor.getVirtualReg() < 4 ? "_" : " ") + arrayDescriptor.getVirtualReg() + "\n");
+            code.appendRegister("aload", arrayDescriptor.getVirtualReg());
 
             Element index = arrayOperand.getIndexOperands().get(0);
-            code.append(getLoad(index, method));
+            getLoad(index, method, code);
 
-            code.append((getInstructions(instruction.getRhs(), method)));
+            getInstructions(instruction.getRhs(), method, code);
 
             ElementType elementType = instruction.getTypeOfAssign().getTypeOfElement();
 
             switch (elementType) {
                 case THIS, OBJECTREF, CLASS, STRING, ARRAYREF -> {
-                    updateStackSize(-3);
                     code.append("\taastore\n");
                 }
                 case INT32, BOOLEAN -> {
-                    updateStackSize(-3);
                     code.append("\tiastore\n");
                 }
             }
-            return code.toString();
+            return;
         }
 
         Instruction rhs = instruction.getRhs();
 
-        return getInstructions(rhs, method) + getStore(dest, method) + "\n";
-
+        getInstructions(rhs, method, code);
+        getStore(dest, method, code);
+        code.append('\n');
     }
 
-    private String getLoad(Element element, Method method) {
-        updateStackSize(1);
+    private void getLoad(Element element, Method method, JasminEmitter code) {
         if (element.isLiteral()) {
             LiteralElement literalElement = (LiteralElement) element;
             String literal = literalElement.getLiteral();
@@ -618,30 +671,32 @@ public class MyJasminBackend implements JasminBackend {
 
             switch (literalElement.getType().getTypeOfElement()) {
                 case INT32, BOOLEAN: {
-                    if (literalInt == -1) return "\ticonst_m1\n";
-                    if (literalInt >= 0 && literalInt <= 5) return "\ticonst_" + literalInt + "\n";
-                    if (literalInt >= -128 && literalInt <= 127) return "\tbipush " + literalInt + "\n";
-                    if (literalInt >= -32768 && literalInt <= 32767) return "\tsipush " + literalInt + "\n";
-                    updateStackSize(1);
-                    return "\tldc " + literalInt + "\n";
+                    if (literalInt == -1) code.append("\ticonst_m1\n");
+                    else if (literalInt >= 0 && literalInt <= 5) code.append("\ticonst_").append(literalInt).append('\n');
+                    else if (literalInt >= -128 && literalInt <= 127) code.append("\tbipush ").append(literalInt).append('\n');
+                    else if (literalInt >= -32768 && literalInt <= 32767) code.append("\tsipush ").append(literalInt).append('\n');
+                    else {
+                        code.append("\tldc ").append(literalInt).append('\n');
+                    }
+                    return;
                 }
-                default: return "";
+                default: return;
             }
         }
         else {
             Operand operand = (Operand) element;
             Descriptor operandDescriptor = method.getVarTable().get(operand.getName());
 
-            if (operandDescriptor.getVirtualReg() < 0) return "";
+            if (operandDescriptor.getVirtualReg() < 0) return;
 
             switch (operandDescriptor.getVarType().getTypeOfElement()) {
                 case INT32, BOOLEAN: {
-                    updateStackSize(1);
-                    return "\tiload" + (operandDescriptor.getVirtualReg() < 4 ? "_" : " ") + operandDescriptor.getVirtualReg() + "\n";
+                    code.appendRegister("iload", operandDescriptor.getVirtualReg());
+                    return;
                 }
                 case CLASS, OBJECTREF, THIS, STRING: {
-                    updateStackSize(1);
-                    return "\taload" + (operandDescriptor.getVirtualReg() < 4 ? "_" : " ") + operandDescriptor.getVirtualReg() + "\n";
+                    code.appendRegister("aload", operandDescriptor.getVirtualReg());
+                    return;
                 }
                 case ARRAYREF: {/*
                     StringBuilder code = new StringBuilder();
@@ -649,7 +704,6 @@ public class MyJasminBackend implements JasminBackend {
 
                     ArrayOperand arrayOperand = (ArrayOperand) operand;
 
-                    updateStackSize(1);
                     code.append("\taload" + (arrayDescriptor.getVirtualReg() < 4 ? "_" : "") + "\n");
 
                     Element index = arrayOperand.getIndexOperands().get(0);
@@ -657,45 +711,40 @@ public class MyJasminBackend implements JasminBackend {
 
                     switch (element.getType().getTypeOfElement()) {
                         case THIS, OBJECTREF, CLASS, STRING, ARRAYREF -> {
-                            updateStackSize(-1);
                             code.append("\taaload");
                         }
                         case INT32, BOOLEAN -> {
-                            updateStackSize(-1);
                             code.append("\tiaload");
                         }
                     }
 */
 
-                    StringBuilder code = new StringBuilder();
-
-                    updateStackSize(1);
-                code.append("\t").append("aload").append((operandDescriptor.getVirtualReg() < 4 ? "_" : " ")).append(operandDescriptor.getVirtualReg()).append("\n");
+                    code.appendRegister("aload", operandDescriptor.getVirtualReg());
 
                     if (element instanceof ArrayOperand) {
                         ArrayOperand arrayOperand = (ArrayOperand) operand;
-                        code.append("\n");
+                        code.append('\n');
 
                         ArrayList<Element> indexes = arrayOperand.getIndexOperands();
                         Element index = indexes.get(0);
 
-                        code.append(getLoad(index, method)).append("\n");
+                        getLoad(index, method, code);
+                        code.append('\n');
 
-                        updateStackSize(-1);
                         code.append("\tiaload\n");
 
                     }
-                    return code.toString();
+                    return;
                 }
-               default: return "";
+               default: return;
             }
         }
     }
 
-    private String getStore(Element element, Method method) {
+    private void getStore(Element element, Method method, JasminEmitter code) {
 
 
-        if (element.isLiteral()) return "";
+        if (element.isLiteral()) return;
         else {
             Operand operand = (Operand) element;
             Descriptor operandDescriptor = method.getVarTable().get(operand.getName());
@@ -704,44 +753,40 @@ public class MyJasminBackend implements JasminBackend {
                 case INT32, BOOLEAN: {
                     if (element instanceof ArrayOperand) {
                         ArrayOperand arrayOperand = (ArrayOperand) operand;
-                        StringBuilder code = new StringBuilder();
-                        updateStackSize(1);
-                        code.append("aload").append((operandDescriptor.getVirtualReg() < 4 ? "_" : " ")).append(operandDescriptor.getVirtualReg()).append("\n");
+                        code.append("aload").append(operandDescriptor.getVirtualReg() < 4 ? '_' : ' ').append(operandDescriptor.getVirtualReg()).append('\n');
 
                         ArrayList<Element> indexes = arrayOperand.getIndexOperands();
                         Element index = indexes.get(0);
 
-                        code.append(getLoad(index, method));
-                        return code.toString();
+                        getLoad(index, method, code);
+                        return;
                     }
 
-                    updateStackSize(-1);
-                    return "\tistore" + (operandDescriptor.getVirtualReg() < 4 ? "_" : " ") + operandDescriptor.getVirtualReg() + "\n";
+                    code.appendRegister("istore", operandDescriptor.getVirtualReg());
+                    return;
                 }
                 case CLASS, OBJECTREF, THIS, STRING: {
-                    updateStackSize(-1);
-                    return "\tastore" + (operandDescriptor.getVirtualReg() < 4 ? "_" : " ") + operandDescriptor.getVirtualReg() + "\n";
+                    code.appendRegister("astore", operandDescriptor.getVirtualReg());
+                    return;
                 }
 
                 case ARRAYREF: {
-                    StringBuilder code = new StringBuilder();
-
                     if (element instanceof ArrayOperand) {
                         ArrayOperand arrayOperand = (ArrayOperand) operand;
-                        updateStackSize(1);
-                        code.append("\taload").append((operandDescriptor.getVirtualReg() < 4 ? "_" : " ")).append(operandDescriptor.getVirtualReg()).append("\n");
+                        code.appendRegister("aload", operandDescriptor.getVirtualReg());
 
                         ArrayList<Element> indexes = arrayOperand.getIndexOperands();
                         Element index = indexes.get(0);
 
-                        code.append(getLoad(index, method)).append("\n");
+                        getLoad(index, method, code);
+                        code.append('\n');
                     } else {
                         code.append("\tastore_").append(operandDescriptor.getVirtualReg());
                     }
 
-                    return code.toString();
+                    return;
                 }
-                default: return "";
+                default: return;
             }
         }
     }
@@ -789,22 +834,15 @@ public class MyJasminBackend implements JasminBackend {
         return ((Operand) element).getName();
     }
 
-    private String getIf(String operationStr, String operation) {
-        StringBuilder code = new StringBuilder();
+    private void getIf(String operationStr, String instruction, JasminEmitter code) {
+        int label = code.nextLabel();
 
-        code.append(operation).append("\n");
+        code.append(instruction).append(' ').append(operationStr).append('_').append(label).append('\n');
         code.append("\tldc 0\n");
-        code.append("\tgoto NOT_" + operationStr + "_" + this.labelCounter + "\n");
-        code.append("\t" + operationStr + "_" + this.labelCounter + ":\n");
+        code.append("\tgoto NOT_").append(operationStr).append('_').append(label).append('\n');
+        code.append('\t').append(operationStr).append('_').append(label).append(":\n");
         code.append("\tldc 1\n");
-        code.append("\tNOT_" + operationStr + "_" + this.labelCounter + ":\n");
-        this.labelCounter++;
-        return code.toString();
-    }
-
-    private void updateStackSize(int size) {
-            this.currStackSize += size;
-            this.maxStackSize = Math.max(this.maxStackSize, this.currStackSize);
+        code.append("\tNOT_").append(operationStr).append('_').append(label).append(":\n");
     }
 }
 
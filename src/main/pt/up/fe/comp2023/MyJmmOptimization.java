@@ -1,5 +1,6 @@
 package pt.up.fe.comp2023;
 
+import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
@@ -8,11 +9,13 @@ public class MyJmmOptimization implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult jmmSemanticsResult) {
-        System.out.println("Generating OLLIR code... ");
+        Diagnostics diagnostics = Diagnostics.fromConfig(jmmSemanticsResult.getConfig());
+        diagnostics.info("ollir", () -> "Generating OLLIR code...");
 
-        OllirGenerator ollirGenerator = new OllirGenerator((MySymbolTable) jmmSemanticsResult.getSymbolTable());
-        ExprCodeResult ollirText = ollirGenerator.visit(jmmSemanticsResult.getRootNode(),"");
-        System.out.println(ollirText.value());
-        return new OllirResult(ollirText.value(), jmmSemanticsResult.getConfig());
+        /* the OLLIR code is printed from the class OllirBuilder builds, the one lowering of the AST */
+        ClassUnit ollirClass = new OllirBuilder((MySymbolTable) jmmSemanticsResult.getSymbolTable()).build(jmmSemanticsResult.getRootNode());
+        String ollirText = new OllirPrinter().print(ollirClass);
+        diagnostics.debug("ollir", () -> ollirText);
+        return new OllirResult(ollirText, jmmSemanticsResult.getConfig());
     }
 }
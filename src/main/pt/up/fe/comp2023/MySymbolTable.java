@@ -16,6 +16,11 @@ public class MySymbolTable implements SymbolTable {
     private List<Symbol> fields = new ArrayList<>();
     private HashMap<String, MethodInfo> methods = new HashMap<>();
     private String extension;
+    /* fields by name and imports by simple name, kept up to date by addField and addImport */
+    private HashMap<String, VariableBinding> fieldIndex = new HashMap<>();
+    private HashMap<String, String> importIndex = new HashMap<>();
+    /* once frozen, the table is only read, so it can be shared by the threads of the semantic analysis */
+    private boolean frozen = false;
 
 
     @Override
@@ -74,23 +79,51 @@ public class MySymbolTable implements SymbolTable {
         }
     }
 
+    /**
+     * Makes the table read-only. Called once it is complete, before it is shared between threads.
+     */
+    public void freeze() {
+        this.frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (this.frozen) {
+            throw new RuntimeException("The symbol table of class " + this.name + " can no longer be changed");
+        }
+    }
+
     public void setName(String name) {
+        this.checkNotFrozen();
         this.name = name;
     }
 
     public void setExtension(String extension) {
+        this.checkNotFrozen();
         this.extension = extension;
     }
 
     public boolean addImport(String importName) {
+        this.checkNotFrozen();
+        this.importIndex.putIfAbsent(simpleName(importName), importName);
         return this.imports.add(importName);
     }
 
     public boolean addField(Symbol field) {
+        this.checkNotFrozen();
+        this.fieldIndex.putIfAbsent(field.getName(), new VariableBinding(field, VariableBinding.Kind.FIELD, this.fields.size()));
         return this.fields.add(field);
     }
 
+    private static String simpleName(String importName) {
+        if (importName.endsWith(".")) {
+            importName = importName.substring(0, importName.length() - 1);
+        }
+
+        return importName.substring(importName.lastIndexOf('.') + 1);
+    }
+
     public boolean addMethod(String methodName, Type returnType) {
+        this.checkNotFrozen();
         if (this.methods.get(methodName) != null) return false;
         MethodInfo method = new MethodInfo(methodName, returnType);
         this.methods.put(methodName, method);
@@ -98,6 +131,7 @@ public class MySymbolTable implements SymbolTable {
     }
 
     public boolean addReturnType(String methodName, Type returnType) {
+        this.checkNotFrozen();
         // if the method doesn't exist, add an entry on the hashtable
         if (this.methods.get(methodName) == null)
             addMethod(methodName, new Type("", false));
@@ -113,6 +147,7 @@ public class MySymbolTable implements SymbolTable {
     }
 
     public boolean addParameter(String methodName, Symbol parameter) {
+        this.checkNotFrozen();
         // if the method doesn't exist, add an entry on the hashtable
         if (this.methods.get(methodName) == null)
             addMethod(methodName, new Type("", false));
@@ -128,6 +163,7 @@ public class MySymbolTable implements SymbolTable {
     }
 
     public boolean addLocalVariable(String methodName, Symbol localVariable) {
+        this.checkNotFrozen();
         // if the method doesn't exist, add an entry on the hashtable
         if (this.methods.get(methodName) == null)
             addMethod(methodName, new Type("", false));
@@ -142,100 +178,46 @@ public class MySymbolTable implements SymbolTable {
         return true;
     }
 
-    public Symbol findVariable(String method, String variable){
-        Symbol myVar;
-        List<Symbol> local=  getLocalVariables(method);
-        if (local != null){
-            for(Symbol symbol : local){
-                if (symbol.getName().equals(variable)){
-                    myVar = symbol;
-                    return myVar;
-                }
-            }
-        }
-        List<Symbol> para = getParameters(method);
-        if (para != null){
-            for(Symbol symbol : para){
-                if(symbol.getName().equals(variable)){
-                    myVar = symbol;
-                    return myVar;
-                }
-            }
-        }
-        List<Symbol> field = getFields();
-        if (field!=null){
-            for(Symbol symbol : field){
-                if(symbol.getName().equals(variable)){
-                    myVar = symbol;
-                    return myVar;
-                }
-            }
+    /**
+     * Resolves a variable name inside a method: locals first, then parameters, then fields.
+     * Returns null when the name is not a variable there.
+     */
+    public VariableBinding resolve(String method, String variable) {
+        MethodInfo info = this.methods.get(method);
+
+        if (info != null) {
+            VariableBinding binding = info.lookup(variable);
+            if (binding != null) return binding;
         }
-        return null;
+
+        return this.fieldIndex.get(variable);
+    }
+
+    public Symbol findVariable(String method, String variable){
+        VariableBinding binding = resolve(method, variable);
+
+        return binding == null ? null : binding.symbol();
+    }
+
+    /* whether a class with this simple name was imported */
+    public boolean hasImport(String name) {
+        return this.importIndex.containsKey(name);
     }
 
     public boolean isImport(String method, String variable){
-        if(findVariable(method,variable) != null){
-            return false;
-        }
-        for (String imp : this.getImports()){;
-            if (imp.charAt(imp.length()-1)=='.'){
-                imp = imp.substring(0,imp.length()-1);
-            }
-            if(imp.endsWith(variable)){
-                return true;
-            }
-        }
-        return false;
+        return resolve(method, variable) == null && hasImport(variable);
     }
 
     public boolean isField(String method, String variable){
-        List<Symbol> local=  getLocalVariables(method);
-        if (local != null){
-            for(Symbol symbol : local){
-                if (symbol.getName().equals(variable)){
-                    return false;
-                }
-            }
-        }
-        List<Symbol> para = getParameters(method);
-        if (para != null){
-            for(Symbol symbol : para){
-                if(symbol.getName().equals(variable)){
-                    return false;
-                }
-            }
-        }
-        List<Symbol> field = getFields();
-        if (field!=null){
-            for(Symbol symbol : field){
-                if(symbol.getName().equals(variable)){
-                    return true;
-                }
-            }
-        }
-        return false;
+        VariableBinding binding = resolve(method, variable);
+
+        return binding != null && binding.kind() == VariableBinding.Kind.FIELD;
     }
+
     public int isParameter(String method, String variable){
-        List<Symbol> local=  getLocalVariables(method);
-        if (local != null){
-            for(Symbol symbol : local){
-                if (symbol.getName().equals(variable)){
-                    return 0;
-                }
-            }
-        }
-        List<Symbol> para = getParameters(method);
-        int i = 0;
-        if (para != null){
-            for(Symbol symbol : para){
-                    i++;
-                if(symbol.getName().equals(variable)){
-                    return i;
-                }
-            }
-        }
-        return 0;
+        VariableBinding binding = resolve(method, variable);
+
+        return binding != null && binding.kind() == VariableBinding.Kind.PARAMETER ? binding.slot() : 0;
     }
 
     public void printSymbolTable() {
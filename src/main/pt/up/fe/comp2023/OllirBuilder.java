@@ -0,0 +1,750 @@
+package pt.up.fe.comp2023;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the OLLIR class of a program straight from the annotated AST, without printing OLLIR code and parsing it back.
+ * The objects are built the way the OLLIR parser builds them, so the backend and the optimizations see the same
+ * class as they would from the OLLIR code that OllirPrinter prints from it. An expression returns the instruction computing its value: a SingleOpInstruction for operands,
+ * or the negation or call itself, which only becomes an operand if it is used as one.
+ */
+public class OllirBuilder extends AJmmVisitor<String, Instruction> {
+    private final MySymbolTable symbolTable;
+
+    private final ClassUnit classUnit;
+
+    /* whether the methods are built concurrently, each by a builder of its own */
+    private final boolean parallel;
+
+    /* the method being built, and the labels waiting for its next instruction */
+    private Method method;
+    private final List<String> labels = new ArrayList<>();
+
+    private int temporaryVariableNumber = 0;
+    private int temporaryLabelNumber = 0;
+
+    public OllirBuilder(MySymbolTable symbolTable) {
+        this(symbolTable, false);
+    }
+
+    public OllirBuilder(MySymbolTable symbolTable, boolean parallel) {
+        this(symbolTable, new ClassUnit(), parallel);
+    }
+
+    private OllirBuilder(MySymbolTable symbolTable, ClassUnit classUnit, boolean parallel) {
+        this.symbolTable = symbolTable;
+        this.classUnit = classUnit;
+        this.parallel = parallel;
+    }
+
+    public ClassUnit build(JmmNode root) {
+        visit(root, "");
+
+        this.classUnit.buildVarTables();
+
+        return this.classUnit;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit("Program", this::dealWithProgram);
+        addVisit("ImportDeclaration", this::dealWithImportDeclaration);
+        addVisit("ClassDeclaration", this::dealWithClassDeclaration);
+        addVisit("Method", this::dealWithMethod);
+        addVisit("Main", this::dealWithMain);
+
+        /* statements */
+        addVisit("IfStatement", this::dealWithChild);
+        addVisit("ElseStatement", this::dealWithChild);
+        addVisit("Condition", this::dealWithChild);
+        addVisit("CodeBlock", this::dealWithCodeBlock);
+        addVisit("Conditional", this::dealWithConditional);
+        addVisit("While", this::dealWithWhile);
+        addVisit("ExprStmt", this::dealWithExprStmt);
+        addVisit("Assignment", this::dealWithAssignment);
+        addVisit("ArrayAssignment", this::dealWithArrayAssignment);
+
+        /* expressions */
+        addVisit("Negation", this::dealWithNegation);
+        addVisit("ArrayAccess", this::dealWithArrayAccess);
+        addVisit("ArrayLength", this::dealWithArrayLength);
+        addVisit("MethodInvocation", this::dealWithMethodInvocation);
+        addVisit("ArrayInstantiation", this::dealWithArrayInstantiation);
+        addVisit("CustomInstantiation", this::dealWithCustomInstantiation);
+        addVisit("Parenthesis", this::dealWithChild);
+        addVisit("BinaryOp", this::dealWithBinaryOp);
+        addVisit("Integer", this::dealWithInteger);
+        addVisit("True", this::dealWithTrue);
+        addVisit("False", this::dealWithFalse);
+        addVisit("Identifier", this::dealWithIdentifier);
+        addVisit("This", this::dealWithThis);
+    }
+
+    /* the OLLIR type of a Java-- type */
+    private static Type toOllirType(String name, boolean isArray) {
+        ElementType elementType = switch (name) {
+            case "int" -> ElementType.INT32;
+            case "boolean" -> ElementType.BOOLEAN;
+            case "String" -> ElementType.STRING;
+            case "void" -> ElementType.VOID;
+            default -> ElementType.OBJECTREF;
+        };
+
+        if (isArray) {
+            ArrayType arrayType = new ArrayType();
+            arrayType.setNumDimensions(1);
+            arrayType.setTypeOfElements(elementType);
+
+            if (elementType == ElementType.OBJECTREF || elementType == ElementType.STRING) {
+                arrayType.setElementClass(name);
+            }
+
+            return arrayType;
+        }
+
+        if (elementType == ElementType.OBJECTREF) return new ClassType(ElementType.OBJECTREF, name);
+
+        return new Type(elementType);
+    }
+
+    /* the OLLIR type of a Literal or CustomType node */
+    private static Type typeOf(JmmNode typeNode) {
+        String name = typeNode.getKind().equals("Literal") ? typeNode.get("keyword") : typeNode.get("name");
+
+        if (name.endsWith("[]")) return toOllirType(name.substring(0, name.length() - 2), true);
+
+        return toOllirType(name, false);
+    }
+
+    private static Type typeOf(VariableBinding binding) {
+        return toOllirType(binding.symbol().getType().getName(), binding.symbol().getType().isArray());
+    }
+
+    private Operand thisOperand() {
+        return new Operand("this", new ClassType(ElementType.THIS, this.classUnit.getClassName()));
+    }
+
+    private Operand newTemporary(Type type) {
+        Operand temporary = new Operand("t" + this.temporaryVariableNumber, type);
+        this.temporaryVariableNumber++;
+
+        return temporary;
+    }
+
+    private static Operand copyOf(Operand operand) {
+        return new Operand(operand.getName(), operand.getType());
+    }
+
+    private static Instruction valueOf(Element element) {
+        return new SingleOpInstruction(element);
+    }
+
+    private void addInstruction(Instruction instruction) {
+        for (String label : this.labels) {
+            this.method.addLabel(label, instruction);
+        }
+
+        this.labels.clear();
+        this.method.addInstr(instruction);
+    }
+
+    /**
+     * The operand holding a value. Negations and calls are only operands once they are stored in a temporary.
+     */
+    private Element toElement(Instruction value) {
+        if (value instanceof SingleOpInstruction singleOp) return singleOp.getSingleOperand();
+
+        Type type = value instanceof OpInstruction op ? op.getOperation().getTypeInfo() : ((CallInstruction) value).getReturnType();
+        Operand temporary = this.newTemporary(type);
+
+        this.addInstruction(new AssignInstruction(temporary, type, value));
+
+        return copyOf(temporary);
+    }
+
+    private CondBranchInstruction branch(Instruction condition, String label) {
+        CondBranchInstruction branch;
+
+        if (condition instanceof OpInstruction op) {
+            branch = new OpCondInstruction(op);
+        }
+        else {
+            branch = new SingleOpCondInstruction(new SingleOpInstruction(this.toElement(condition)));
+        }
+
+        branch.setLabel(label);
+
+        return branch;
+    }
+
+    /**
+     * Adds the jumps to the label taken when the condition evaluates to 'when', falling through otherwise.
+     * '&&', '||' and '!' become chains of jumps and comparisons are the conditions of the jumps themselves, so a
+     * condition needs no boolean temporaries, and its right side is only evaluated when the left one does not decide it.
+     */
+    private void jumpIf(JmmNode condition, boolean when, String label) {
+        JmmNode node = unwrapCondition(condition);
+
+        if (node.getKind().equals("Negation")) {
+            this.jumpIf(node.getJmmChild(0), !when, label);
+            return;
+        }
+
+        String op = node.getKind().equals("BinaryOp") ? node.get("op") : "";
+
+        if (op.equals("&&") || op.equals("||")) {
+            /* the value of the left side that decides the result on its own */
+            boolean decides = op.equals("||");
+
+            if (when == decides) {
+                this.jumpIf(node.getJmmChild(0), when, label);
+                this.jumpIf(node.getJmmChild(1), when, label);
+            }
+            else {
+                String skipLabel = "cond_skip_" + this.temporaryLabelNumber;
+                this.temporaryLabelNumber++;
+
+                this.jumpIf(node.getJmmChild(0), decides, skipLabel);
+                this.jumpIf(node.getJmmChild(1), when, label);
+                this.labels.add(skipLabel);
+            }
+        }
+        else if (op.equals("<") || op.equals(">")) {
+            Element left = this.toElement(visit(node.getJmmChild(0), ""));
+            Element right = this.toElement(visit(node.getJmmChild(1), ""));
+
+            /* jumping when the comparison fails is jumping when the opposite one holds */
+            OperationType opType = op.equals("<") ? (when ? OperationType.LTH : OperationType.GTE)
+                    : (when ? OperationType.GTH : OperationType.LTE);
+            Type type = new Type(ElementType.BOOLEAN);
+
+            this.addInstruction(this.branch(new BinaryOpInstruction(left, new Operation(opType, type), right), label));
+        }
+        else {
+            Instruction value = visit(node, "");
+
+            if (!when) {
+                value = new UnaryOpInstruction(new Operation(OperationType.NOTB, new Type(ElementType.BOOLEAN)), this.toElement(value));
+            }
+
+            this.addInstruction(this.branch(value, label));
+        }
+    }
+
+    static JmmNode unwrapCondition(JmmNode node) {
+        while (node.getKind().equals("Condition") || node.getKind().equals("Parenthesis")) {
+            node = node.getJmmChild(0);
+        }
+
+        return node;
+    }
+
+    /**
+     * Whether evaluating the expression may call a method or throw. The right side of an '&&' or '||' like that must
+     * not run when the left side decides the result, so its value is computed with jumps instead of ANDB or ORB.
+     */
+    static boolean mayHaveEffects(JmmNode node) {
+        switch (node.getKind()) {
+            case "MethodInvocation", "ArrayAccess", "ArrayLength", "ArrayInstantiation", "CustomInstantiation" -> {
+                return true;
+            }
+            case "BinaryOp" -> {
+                if (node.get("op").equals("/")) return true;
+            }
+        }
+
+        for (JmmNode child : node.getChildren()) {
+            if (mayHaveEffects(child)) return true;
+        }
+
+        return false;
+    }
+
+    private Instruction dealWithProgram(JmmNode node, String s) {
+        for (JmmNode child : node.getChildren()) {
+            visit(child, "");
+        }
+
+        return null;
+    }
+
+    private Instruction dealWithImportDeclaration(JmmNode node, String s) {
+        String importName = node.get("name");
+
+        /* the pack attribute is the list of the following names, printed as "[a, b]" */
+        if (node.hasAttribute("pack") && !node.get("pack").equals("[]")) {
+            String importPack = node.get("pack").replace("[", "").replace("]", "").replace(" ", "");
+
+            importName += '.' + String.join(".", Arrays.asList(importPack.split(",")));
+        }
+
+        this.classUnit.addImport(importName);
+
+        return null;
+    }
+
+    private Instruction dealWithClassDeclaration(JmmNode node, String s) {
+        String className = node.get("name");
+
+        this.classUnit.setClassName(className);
+
+        if (node.hasAttribute("extension")) {
+            this.classUnit.setSuperClass(node.get("extension"));
+        }
+
+        for (JmmNode child : node.getChildren()) {
+            if (child.getKind().equals("ClassField")) {
+                JmmNode varNode = child.getJmmChild(0);
+
+                Field field = new Field();
+                field.setFieldAccessModifier(AccessModifiers.PUBLIC);
+                field.setFieldName(varNode.get("var"));
+                field.setFieldType(typeOf(varNode.getJmmChild(0)));
+
+                this.classUnit.addField(field);
+            }
+        }
+
+        /* the default constructor only calls the one of the superclass */
+        this.method = new Method(this.classUnit);
+        this.method.setConstructMethod();
+        this.addInstruction(new CallInstruction(CallType.invokespecial, this.thisOperand(),
+                new LiteralElement("\"<init>\"", new Type(ElementType.STRING)), new ArrayList<>(), new Type(ElementType.VOID)));
+        this.method.setReturnType(new Type(ElementType.VOID));
+        this.method.setMethodName(className);
+        this.classUnit.addMethod(this.method);
+
+        List<JmmNode> methodNodes = node.getChildren().stream()
+                .filter(child -> child.getKind().equals("Method") || child.getKind().equals("Main"))
+                .toList();
+
+        /* each method is built by a builder of its own, so its temporaries and labels are numbered from 0 and the
+           methods can be built concurrently; they are added in declaration order either way */
+        List<Method> methods = (this.parallel ? methodNodes.parallelStream() : methodNodes.stream())
+                .map(child -> new OllirBuilder(this.symbolTable, this.classUnit, false).buildMethod(child))
+                .toList();
+
+        methods.forEach(this.classUnit::addMethod);
+
+        return null;
+    }
+
+    private Method buildMethod(JmmNode node) {
+        visit(node, "");
+
+        return this.method;
+    }
+
+    private void startMethod(String name, Type returnType) {
+        this.method = new Method(this.classUnit);
+        this.method.setMethodName(name);
+        this.method.setReturnType(returnType);
+        this.labels.clear();
+    }
+
+    private Instruction dealWithMain(JmmNode node, String s) {
+        this.startMethod("main", new Type(ElementType.VOID));
+        this.method.setMethodAccessModifier(AccessModifiers.PUBLIC);
+        this.method.setStaticMethod();
+
+        Operand args = new Operand("args", toOllirType("String", true));
+        args.setParamId(0);
+        this.method.addParam(args);
+
+        for (JmmNode child : node.getChildren()) {
+            if (child.getKind().equals("MethodStatement")) {
+                visit(child.getJmmChild(0), "");
+            }
+        }
+
+        ReturnInstruction ret = new ReturnInstruction();
+        ret.setReturnType(new Type(ElementType.VOID));
+        this.addInstruction(ret);
+
+        return null;
+    }
+
+    private Instruction dealWithMethod(JmmNode node, String s) {
+        Type returnType = new Type(ElementType.VOID);
+
+        for (JmmNode child : node.getChildren()) {
+            if (child.getKind().equals("ReturnType")) {
+                returnType = typeOf(child.getJmmChild(0));
+            }
+        }
+
+        this.startMethod(node.get("name"), returnType);
+
+        if (node.hasAttribute("modifier")) {
+            this.method.setMethodAccessModifier(node.get("modifier").equals("private") ? AccessModifiers.PRIVATE : AccessModifiers.PUBLIC);
+        }
+
+        if (node.hasAttribute("isStatic")) {
+            this.method.setStaticMethod();
+        }
+
+        int paramId = this.method.isStaticMethod() ? 0 : 1;
+
+        for (JmmNode child : node.getChildren()) {
+            if (child.getKind().equals("Argument")) {
+                Operand param = new Operand(child.get("parameter"), typeOf(child.getJmmChild(0)));
+                param.setParamId(paramId);
+                paramId++;
+
+                this.method.addParam(param);
+            }
+            else if (child.getKind().equals("MethodStatement")) {
+                visit(child.getJmmChild(0), "");
+            }
+            else if (child.getKind().equals("ReturnStatement")) {
+                JmmNode realChild = child.getJmmChild(0);
+                ReturnInstruction ret;
+
+                if (realChild.getKind().equals("This")) {
+                    ret = new ReturnInstruction(new Operand("this", new ClassType(ElementType.OBJECTREF, this.symbolTable.getClassName())));
+                }
+                else {
+                    ret = new ReturnInstruction(this.toElement(visit(realChild, "")));
+                }
+
+                ret.setReturnType(returnType);
+                this.addInstruction(ret);
+            }
+        }
+
+        return null;
+    }
+
+    private Instruction dealWithChild(JmmNode node, String s) {
+        return visit(node.getJmmChild(0), "");
+    }
+
+    private Instruction dealWithCodeBlock(JmmNode node, String s) {
+        for (JmmNode child : node.getChildren()) {
+            visit(child, "");
+        }
+
+        return null;
+    }
+
+    private Instruction dealWithConditional(JmmNode node, String s) {
+        int value = this.temporaryLabelNumber;
+        this.temporaryLabelNumber++;
+        String initialLabel = "if_then_" + value;
+        String finalLabel = "if_end_" + value;
+
+        this.jumpIf(node.getJmmChild(0), true, initialLabel);
+
+        /* the else branch falls through from the condition, so it comes first */
+        visit(node.getJmmChild(2), "");
+
+        this.addInstruction(new GotoInstruction(finalLabel));
+        this.labels.add(initialLabel);
+
+        visit(node.getJmmChild(1), "");
+
+        this.labels.add(finalLabel);
+
+        return null;
+    }
+
+    private Instruction dealWithWhile(JmmNode node, String s) {
+        int value = this.temporaryLabelNumber;
+        this.temporaryLabelNumber++;
+        String condLabel = "while_cond_" + value;
+        String bodyLabel = "while_body_" + value;
+
+        this.addInstruction(new GotoInstruction(condLabel));
+        this.labels.add(bodyLabel);
+
+        if (node.getJmmChild(1).getKind().equals("CodeBlock")) {
+            visit(node.getJmmChild(1), "");
+        }
+
+        this.labels.add(condLabel);
+
+        /* the condition is computed after the body, right before the jump back */
+        this.jumpIf(node.getJmmChild(0), true, bodyLabel);
+
+        return null;
+    }
+
+    private Instruction dealWithExprStmt(JmmNode node, String s) {
+        Instruction value = visit(node.getJmmChild(0), "");
+
+        /* only a call has an effect; any other value is dropped */
+        if (value instanceof CallInstruction) {
+            this.addInstruction(value);
+        }
+
+        return null;
+    }
+
+    private Instruction dealWithAssignment(JmmNode node, String s) {
+        String name = node.get("var");
+        VariableBinding binding = VariableBinding.of(node);
+        Type type = typeOf(binding);
+
+        Instruction value = visit(node.getJmmChild(0), "");
+
+        if (binding.kind() == VariableBinding.Kind.FIELD) {
+            this.addInstruction(new PutFieldInstruction(this.thisOperand(), new Operand(name, type), this.toElement(value),
+                    new Type(ElementType.VOID)));
+        }
+        else {
+            this.addInstruction(new AssignInstruction(new Operand(name, type), type, value));
+        }
+
+        return null;
+    }
+
+    private Instruction dealWithArrayAssignment(JmmNode node, String s) {
+        Instruction index = visit(node.getJmmChild(0), "");
+        Instruction assigned = visit(node.getJmmChild(1), "");
+        String name = node.get("var");
+        VariableBinding binding = VariableBinding.of(node);
+        Type type = toOllirType(binding.symbol().getType().getName(), false);
+
+        /* an array field is read into a temporary, which is then written through */
+        if (binding.kind() == VariableBinding.Kind.FIELD) {
+            Type arrayType = typeOf(binding);
+            Operand array = this.newTemporary(arrayType);
+
+            this.addInstruction(new AssignInstruction(array, arrayType,
+                    new GetFieldInstruction(this.thisOperand(), new Operand(name, arrayType), arrayType)));
+
+            name = array.getName();
+        }
+
+        ArrayList<Element> indexes = new ArrayList<>();
+        indexes.add(this.toElement(index));
+
+        this.addInstruction(new AssignInstruction(new ArrayOperand(name, type, indexes), type, assigned));
+
+        return null;
+    }
+
+    /* as a value, e.g. 'a = this' or 'o.f(this)', 'this' is an object of the class, not the receiver of a call */
+    private Instruction dealWithThis(JmmNode node, String s) {
+        return valueOf(new Operand("this", new ClassType(ElementType.OBJECTREF, this.classUnit.getClassName())));
+    }
+
+    private Instruction dealWithIdentifier(JmmNode node, String s) {
+        String name = node.get("value");
+        VariableBinding binding = VariableBinding.of(node);
+        Type type = typeOf(binding);
+
+        if (binding.kind() == VariableBinding.Kind.FIELD) {
+            Operand value = this.newTemporary(type);
+
+            this.addInstruction(new AssignInstruction(value, type,
+                    new GetFieldInstruction(this.thisOperand(), new Operand(name, type), type)));
+
+            return valueOf(copyOf(value));
+        }
+
+        Operand operand = new Operand(name, type);
+
+        if (binding.kind() == VariableBinding.Kind.PARAMETER && binding.slot() > 0) {
+            operand.setParamId(binding.slot());
+        }
+
+        return valueOf(operand);
+    }
+
+    private Instruction dealWithFalse(JmmNode node, String s) {
+        return valueOf(new LiteralElement("0", new Type(ElementType.BOOLEAN)));
+    }
+
+    private Instruction dealWithTrue(JmmNode node, String s) {
+        return valueOf(new LiteralElement("1", new Type(ElementType.BOOLEAN)));
+    }
+
+    private Instruction dealWithInteger(JmmNode node, String s) {
+        return valueOf(new LiteralElement(node.get("value"), new Type(ElementType.INT32)));
+    }
+
+    private Instruction dealWithBinaryOp(JmmNode node, String s) {
+        String op = node.get("op");
+        if ((op.equals("&&") || op.equals("||")) && mayHaveEffects(node.getJmmChild(1))) {
+            return this.dealWithShortCircuit(node);
+        }
+
+        Instruction lhs = visit(node.getJmmChild(0), "");
+        Instruction rhs = visit(node.getJmmChild(1), "");
+
+        OperationType opType = switch (op) {
+            case "+" -> OperationType.ADD;
+            case "-" -> OperationType.SUB;
+            case "*" -> OperationType.MUL;
+            case "/" -> OperationType.DIV;
+            case "<" -> OperationType.LTH;
+            case ">" -> OperationType.GTH;
+            case "&&" -> OperationType.ANDB;
+            case "||" -> OperationType.ORB;
+            default -> throw new RuntimeException("Unknown binary operator '" + op + "'.");
+        };
+
+        boolean arithmetic = opType == OperationType.ADD || opType == OperationType.SUB
+                || opType == OperationType.MUL || opType == OperationType.DIV;
+        Type type = new Type(arithmetic ? ElementType.INT32 : ElementType.BOOLEAN);
+
+        Element left = this.toElement(lhs);
+        Element right = this.toElement(rhs);
+        Operand value = this.newTemporary(type);
+
+        this.addInstruction(new AssignInstruction(value, type, new BinaryOpInstruction(left, new Operation(opType, type), right)));
+
+        return valueOf(copyOf(value));
+    }
+
+    /* 't := 0; if (!a) goto end; if (!b) goto end; t := 1; end:' for '&&', and the opposite for '||' */
+    private Instruction dealWithShortCircuit(JmmNode node) {
+        boolean decides = node.get("op").equals("||");
+        Type type = new Type(ElementType.BOOLEAN);
+        Operand value = this.newTemporary(type);
+        String endLabel = "cond_end_" + this.temporaryLabelNumber;
+        this.temporaryLabelNumber++;
+
+        this.addInstruction(new AssignInstruction(value, type, valueOf(new LiteralElement(decides ? "1" : "0", type))));
+        this.jumpIf(node.getJmmChild(0), decides, endLabel);
+        this.jumpIf(node.getJmmChild(1), decides, endLabel);
+        this.addInstruction(new AssignInstruction(copyOf(value), type, valueOf(new LiteralElement(decides ? "0" : "1", type))));
+        this.labels.add(endLabel);
+
+        return valueOf(copyOf(value));
+    }
+
+    private Instruction dealWithCustomInstantiation(JmmNode node, String s) {
+        Type type = typeOf(node.getJmmChild(0));
+        String className = type instanceof ClassType classType ? classType.getName() : "";
+        Operand value = this.newTemporary(type);
+
+        this.addInstruction(new AssignInstruction(value, type,
+                new CallInstruction(CallType.NEW, new Operand(className, new ClassType(ElementType.OBJECTREF, className)), new ArrayList<>(), type)));
+        this.addInstruction(new CallInstruction(CallType.invokespecial, copyOf(value),
+                new LiteralElement("\"<init>\"", new Type(ElementType.STRING)), new ArrayList<>(), new Type(ElementType.VOID)));
+
+        return valueOf(copyOf(value));
+    }
+
+    private Instruction dealWithArrayInstantiation(JmmNode node, String s) {
+        Operand size = this.newTemporary(new Type(ElementType.INT32));
+        JmmNode typeNode = node.getJmmChild(0);
+        String elementType = typeNode.getKind().equals("Literal") ? typeNode.get("keyword") : typeNode.get("name");
+        Operand temp = this.newTemporary(toOllirType(elementType, true));
+
+        Instruction sizeExpr = visit(node.getJmmChild(1), "");
+        this.addInstruction(new AssignInstruction(size, size.getType(), sizeExpr));
+
+        ArrayList<Element> arguments = new ArrayList<>();
+        arguments.add(copyOf(size));
+
+        this.addInstruction(new AssignInstruction(temp, temp.getType(),
+                new CallInstruction(CallType.NEW, new Operand("array", new ArrayType()), arguments, temp.getType())));
+
+        return valueOf(copyOf(temp));
+    }
+
+    private Instruction dealWithMethodInvocation(JmmNode node, String s) {
+        String methodName = node.get("method");
+        String className = this.symbolTable.getClassName();
+
+        JmmNode invoker = node.getJmmChild(0);
+        while (invoker.getKind().equals("Parenthesis")) {
+            invoker = invoker.getJmmChild(0);
+        }
+
+        CallType invokeType = CallType.invokevirtual;
+        Element caller;
+        String callerClass;
+
+        if (invoker.getKind().equals("This")) {
+            caller = this.thisOperand();
+            callerClass = className;
+        }
+        else if (invoker.getKind().equals("Identifier")) {
+            String name = invoker.get("value");
+            VariableBinding binding = VariableBinding.of(invoker);
+
+            if (binding != null) {
+                /* the object is named directly, without a temporary */
+                caller = new Operand(name, toOllirType(binding.symbol().getType().getName(), false));
+                callerClass = binding.symbol().getType().getName();
+            }
+            else {
+                /* an imported class, or this class itself */
+                invokeType = CallType.invokestatic;
+                caller = new Operand(name, new ClassType(ElementType.CLASS, className));
+                callerClass = name;
+            }
+        }
+        else {
+            caller = this.toElement(visit(invoker, ""));
+            callerClass = caller.getType() instanceof ClassType classType ? classType.getName() : "";
+        }
+
+        /* only the methods of this class have a known return type */
+        Type returnType = new Type(ElementType.VOID);
+
+        if (callerClass.equals(className)) {
+            var declared = this.symbolTable.getReturnType(methodName);
+
+            if (declared != null) returnType = toOllirType(declared.getName(), declared.isArray());
+        }
+
+        ArrayList<Element> arguments = new ArrayList<>();
+        for (int idx = 1; idx < node.getNumChildren(); idx++) {
+            arguments.add(this.toElement(visit(node.getJmmChild(idx), "")));
+        }
+
+        CallInstruction call = new CallInstruction(invokeType, caller,
+                new LiteralElement("\"" + methodName + "\"", new Type(ElementType.STRING)), arguments, returnType);
+
+        /* a call without a value is the value itself, the statement using it adds it */
+        if (returnType.getTypeOfElement() == ElementType.VOID) return call;
+
+        Operand value = this.newTemporary(returnType);
+        this.addInstruction(new AssignInstruction(value, returnType, call));
+
+        return valueOf(copyOf(value));
+    }
+
+    private Instruction dealWithArrayLength(JmmNode node, String s) {
+        Operand value = this.newTemporary(new Type(ElementType.INT32));
+        Element array = this.toElement(visit(node.getJmmChild(0), ""));
+
+        this.addInstruction(new AssignInstruction(value, value.getType(), new CallInstruction(CallType.arraylength, array, value.getType())));
+
+        return valueOf(copyOf(value));
+    }
+
+    private Instruction dealWithArrayAccess(JmmNode node, String s) {
+        Element accessed = this.toElement(visit(node.getJmmChild(0), ""));
+        Element index = this.toElement(visit(node.getJmmChild(1), ""));
+        Operand array = (Operand) accessed;
+
+        ArrayList<Element> indexes = new ArrayList<>();
+        indexes.add(index);
+
+        ArrayOperand element = new ArrayOperand(array.getName(), new Type(ElementType.INT32), indexes);
+        if (array.isParameter()) element.setParamId(array.getParamId());
+
+        Operand value = this.newTemporary(new Type(ElementType.INT32));
+        this.addInstruction(new AssignInstruction(value, value.getType(), valueOf(element)));
+
+        return valueOf(copyOf(value));
+    }
+
+    private Instruction dealWithNegation(JmmNode node, String s) {
+        Element operand = this.toElement(visit(node.getJmmChild(0), ""));
+
+        return new UnaryOpInstruction(new Operation(OperationType.NOTB, new Type(ElementType.BOOLEAN)), operand);
+    }
+}
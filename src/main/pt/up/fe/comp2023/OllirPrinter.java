@@ -0,0 +1,196 @@
+package pt.up.fe.comp2023;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Prints an OLLIR class as OLLIR code, which the OLLIR parser reads back into the same class.
+ * This is how the classes built by OllirBuilder become OLLIR code, for an OllirResult or to be looked at when debugging.
+ */
+public class OllirPrinter {
+    private final StringBuilder code = new StringBuilder();
+
+    public String print(ClassUnit classUnit) {
+        for (String importName : classUnit.getImports()) {
+            this.code.append("import ").append(importName).append(";\n");
+        }
+
+        this.code.append(classUnit.getClassName());
+        if (classUnit.getSuperClass() != null) this.code.append(" extends ").append(classUnit.getSuperClass());
+        this.code.append(" {\n");
+
+        for (Field field : classUnit.getFields()) {
+            this.code.append("\t.field ").append(modifier(field.getFieldAccessModifier())).append(field.getFieldName())
+                    .append(type(field.getFieldType())).append(";\n");
+        }
+
+        for (Method method : classUnit.getMethods()) {
+            this.code.append('\n');
+            this.printMethod(method);
+        }
+
+        this.code.append("}\n");
+
+        return this.code.toString();
+    }
+
+    private void printMethod(Method method) {
+        this.code.append('\t').append(method.isConstructMethod() ? ".construct " : ".method ")
+                .append(modifier(method.getMethodAccessModifier()));
+
+        if (method.isStaticMethod()) this.code.append("static ");
+
+        String params = method.getParams().stream().map(OllirPrinter::param).collect(Collectors.joining(", "));
+        this.code.append(method.getMethodName()).append('(').append(params).append(')')
+                .append(type(method.getReturnType())).append(" {\n");
+
+        /* the labels of each instruction, which Method.getLabels(instruction) would not see change after it is called */
+        Map<Instruction, List<String>> labels = new IdentityHashMap<>();
+        for (Map.Entry<String, Instruction> label : method.getLabels().entrySet()) {
+            labels.computeIfAbsent(label.getValue(), k -> new ArrayList<>()).add(label.getKey());
+        }
+
+        for (Instruction instruction : method.getInstructions()) {
+            for (String label : labels.getOrDefault(instruction, List.of())) {
+                this.code.append('\t').append(label).append(":\n");
+            }
+
+            this.code.append("\t\t").append(instruction(instruction)).append(";\n");
+        }
+
+        this.code.append("\t}\n");
+    }
+
+    private static String modifier(AccessModifiers modifier) {
+        return switch (modifier) {
+            case PUBLIC -> "public ";
+            case PRIVATE -> "private ";
+            case PROTECTED -> "protected ";
+            default -> "";
+        };
+    }
+
+    /* a parameter is declared without its '$n.' prefix */
+    private static String param(Element param) {
+        return ((Operand) param).getName() + type(param.getType());
+    }
+
+    private static String instruction(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+
+                yield element(assign.getDest()) + " :=" + type(assign.getTypeOfAssign()) + " " + instruction(assign.getRhs());
+            }
+            case NOPER -> element(((SingleOpInstruction) instruction).getSingleOperand());
+            case UNARYOPER -> {
+                UnaryOpInstruction unaryOp = (UnaryOpInstruction) instruction;
+
+                yield operation(unaryOp.getOperation()) + " " + element(unaryOp.getOperand());
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) instruction;
+
+                yield element(binaryOp.getLeftOperand()) + " " + operation(binaryOp.getOperation()) + " "
+                        + element(binaryOp.getRightOperand());
+            }
+            case CALL -> call((CallInstruction) instruction);
+            case GETFIELD -> {
+                GetFieldInstruction getField = (GetFieldInstruction) instruction;
+
+                yield "getfield(" + element(getField.getFirstOperand()) + ", " + element(getField.getSecondOperand()) + ")"
+                        + type(getField.getFieldType());
+            }
+            case PUTFIELD -> {
+                PutFieldInstruction putField = (PutFieldInstruction) instruction;
+
+                yield "putfield(" + element(putField.getFirstOperand()) + ", " + element(putField.getSecondOperand()) + ", "
+                        + element(putField.getThirdOperand()) + ").V";
+            }
+            case BRANCH -> {
+                CondBranchInstruction branch = (CondBranchInstruction) instruction;
+
+                yield "if (" + instruction(branch.getCondition()) + ") goto " + branch.getLabel();
+            }
+            case GOTO -> "goto " + ((GotoInstruction) instruction).getLabel();
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+
+                yield "ret" + type(ret.getReturnType()) + (ret.hasReturnValue() ? " " + element(ret.getOperand()) : "");
+            }
+        };
+    }
+
+    private static String call(CallInstruction call) {
+        List<Element> operands = call.getListOfOperands() == null ? List.of() : call.getListOfOperands();
+        String args = operands.stream().map(operand -> ", " + element(operand)).collect(Collectors.joining());
+
+        return switch (call.getInvocationType()) {
+            /* 'new(array, size)' or 'new(Class)', named without a type */
+            case NEW -> "new(" + ((Operand) call.getFirstArg()).getName() + args + ")" + type(call.getReturnType());
+            case arraylength -> "arraylength(" + element(call.getFirstArg()) + ")" + type(call.getReturnType());
+            default -> call.getInvocationType() + "(" + element(call.getFirstArg()) + ", "
+                    + ((LiteralElement) call.getSecondArg()).getLiteral() + args + ")" + type(call.getReturnType());
+        };
+    }
+
+    private static String operation(Operation operation) {
+        String symbol = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case AND -> "&";
+            case OR -> "|";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOT, NOTB -> "!";
+            case LTH -> "<";
+            case GTH -> ">";
+            case LTE -> "<=";
+            case GTE -> ">=";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            default -> throw new RuntimeException("Cannot print the operation " + operation.getOpType() + " as OLLIR code.");
+        };
+
+        return symbol + type(operation.getTypeInfo());
+    }
+
+    private static String element(Element element) {
+        if (element.isLiteral()) return ((LiteralElement) element).getLiteral() + type(element.getType());
+
+        Operand operand = (Operand) element;
+
+        /* 'this' and the classes of static calls are named without a type */
+        if (element.getType().getTypeOfElement() == ElementType.THIS || element.getType().getTypeOfElement() == ElementType.CLASS) {
+            return operand.getName();
+        }
+
+        String prefix = operand.isParameter() ? "$" + operand.getParamId() + "." : "";
+
+        if (element instanceof ArrayOperand array) {
+            String indexes = array.getIndexOperands().stream().map(index -> "[" + element(index) + "]").collect(Collectors.joining());
+
+            return prefix + array.getName() + indexes + type(array.getType());
+        }
+
+        return prefix + operand.getName() + type(operand.getType());
+    }
+
+    private static String type(Type type) {
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> ".i32";
+            case BOOLEAN -> ".bool";
+            case STRING -> ".String";
+            case VOID -> ".V";
+            case ARRAYREF -> ".array" + type(((ArrayType) type).getElementType());
+            default -> "." + ((ClassType) type).getName();
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp2023;
+
+import pt.up.fe.comp2023.classfile.InMemoryClassLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the programs of a WorkerJvmRunner in a JVM of their own, one after the other. Each request names the folder with the libs-jmm
+ * classes and carries the class files of the program, its main class, its arguments and its input; the reply is
+ * what the program printed, standard output followed by standard error.
+ * A program that calls System.exit ends the worker, after its output is sent with a flag telling the runner so.
+ */
+class ProgramWorker {
+    /* the reply of the program being run, sent by the shutdown hook if the program exits the JVM */
+    private static ByteArrayOutputStream stdout;
+    private static ByteArrayOutputStream stderr;
+    private static DataOutputStream replies;
+    private static boolean replied = true;
+    private static boolean exiting = true;
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream requests = new DataInputStream(new BufferedInputStream(System.in));
+        replies = new DataOutputStream(new BufferedOutputStream(System.out));
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            synchronized (ProgramWorker.class) {
+                exiting = true;
+                reply();
+            }
+        }));
+
+        while (true) {
+            File libsDir;
+            Map<String, byte[]> classes = new HashMap<>();
+            String mainClass;
+            String[] programArgs;
+            byte[] input;
+
+            try {
+                libsDir = new File(requests.readUTF());
+
+                int classCount = requests.readInt();
+                for (int i = 0; i < classCount; i++) {
+                    classes.put(requests.readUTF(), readBytes(requests));
+                }
+
+                mainClass = requests.readUTF();
+                programArgs = new String[requests.readInt()];
+                for (int i = 0; i < programArgs.length; i++) {
+                    programArgs[i] = requests.readUTF();
+                }
+
+                input = readBytes(requests);
+            } catch (EOFException e) {
+                /* the runner closed the connection */
+                return;
+            }
+
+            run(new InMemoryClassLoader(classes, libsDir), mainClass, programArgs, input);
+            reply();
+        }
+    }
+
+    private static void run(ClassLoader loader, String mainClass, String[] args, byte[] input) {
+        synchronized (ProgramWorker.class) {
+            stdout = new ByteArrayOutputStream();
+            stderr = new ByteArrayOutputStream();
+            replied = false;
+            exiting = false;
+        }
+
+        PrintStream out = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+
+        System.setOut(out);
+        System.setErr(err);
+        System.setIn(new ByteArrayInputStream(input));
+        Thread.currentThread().setContextClassLoader(loader);
+
+        try {
+            Method main = loader.loadClass(mainClass).getMethod("main", String[].class);
+            main.invoke(null, (Object) args);
+        } catch (InvocationTargetException e) {
+            err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace(err);
+        } catch (NoSuchMethodException e) {
+            err.println("Error: Main method not found in class " + mainClass);
+        } catch (Throwable e) {
+            /* the class could not be loaded, e.g. it did not pass verification */
+            err.println("Error: Unable to initialize main class " + mainClass);
+            err.println("Caused by: " + e);
+        }
+    }
+
+    /* sends the output of the program, once */
+    private static synchronized void reply() {
+        if (replied) return;
+        replied = true;
+
+        try {
+            replies.writeBoolean(exiting);
+            replies.writeInt(stdout.size());
+            stdout.writeTo(replies);
+            replies.writeInt(stderr.size());
+            stderr.writeTo(replies);
+            replies.flush();
+        } catch (IOException e) {
+            /* the runner is gone, nobody is waiting for the output */
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+
+        return bytes;
+    }
+}
@@ -2,17 +2,24 @@ package pt.up.fe.comp2023;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.tree.ParseTree;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrToJmmNodeConverter;
+import pt.up.fe.comp.jmm.ast.antlr.JmmNodeCleanup;
 import pt.up.fe.comp.jmm.ast.antlr.ThrowingErrorListener;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.specs.util.SpecsSystem;
 
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -48,13 +55,14 @@ public class SimpleParser implements JmmParser {
             // Transforms tokens into a parse tree
             var parser = new pt.up.fe.comp2023.JavammParser(tokens);
 
-            // Convert ANTLR CST to JmmNode AST
-            JmmParserResult parserResult = AntlrParser.parse(lex, parser, startingRule)
-                    // If there were no errors and a root node was generated, create a JmmParserResult with the node
-                    .map(root -> new JmmParserResult(root, Collections.emptyList(), config))
-                    // If there were errors, create an error JmmParserResult without root node
-                    .orElseGet(() -> JmmParserResult.newError(new Report(ReportType.WARNING, Stage.SYNTATIC, -1,
-                            "There were syntax errors during parsing, terminating")));
+            // Setup listeners so that an exception is thrown where there is a lexical error
+            lex.removeErrorListeners();
+            lex.addErrorListener(new ThrowingErrorListener());
+
+            // Lex, parse and convert the ANTLR CST to a JmmNode AST as separate steps, the same AntlrParser.parse
+            // takes, so that each one is measured
+            CompilerStats.measure("lex", tokens::fill);
+            ParseTree tree = CompilerStats.measure("parse", () -> (ParseTree) SpecsSystem.invoke(parser, startingRule));
 
             // check for parsing errors
             int syntaxErrors = parser.getNumberOfSyntaxErrors();
@@ -64,10 +72,26 @@ public class SimpleParser implements JmmParser {
                 throw new Exception("An error occurred during the parsing phase, with a total of " + syntaxErrors + " syntax " + (syntaxErrors == 1 ? "error." : "errors."));
             }
 
+            // If there were no errors, create a JmmParserResult with the AST
+            JmmNode root = CompilerStats.measure("ast", () -> toAst(tree, parser));
+            JmmParserResult parserResult = new JmmParserResult(root, Collections.emptyList(), config);
+
             return parserResult;
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e));
         }
     }
+
+    private static JmmNode toAst(ParseTree tree, Parser parser) {
+        JmmNode root = AntlrToJmmNodeConverter.convert(tree, parser);
+
+        // Remove the nodes the grammar asks to ignore
+        List<String> ignoreList = AntlrParser.getIgnoreList(parser);
+        if (!ignoreList.isEmpty()) {
+            new JmmNodeCleanup(ignoreList).visit(root);
+        }
+
+        return root;
+    }
 }
@@ -1,11 +1,106 @@
 package pt.up.fe.comp2023;
 
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 
-public class SymbolTableBuilder extends AJmmVisitor {
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Fills a MySymbolTable in a single walk over the declarations of the program. Method bodies are not visited.
+ * The visit data is the name of the enclosing method, null outside of methods.
+ */
+public class SymbolTableBuilder extends AJmmVisitor<String, String> {
+    private MySymbolTable symbolTable = new MySymbolTable();
 
     @Override
     protected void buildVisitor() {
+        addVisit("Program", this::dealWithProgram);
+        addVisit("ImportDeclaration", this::dealWithImportDeclaration);
+        addVisit("ClassDeclaration", this::dealWithClassDeclaration);
+        addVisit("ClassField", this::dealWithClassField);
+        addVisit("Method", this::dealWithMethod);
+        addVisit("Main", this::dealWithMain);
+        addVisit("Argument", this::dealWithArgument);
+        addVisit("VarDeclaration", this::dealWithVarDeclaration);
+
+        /* statements and expressions declare nothing */
+        setDefaultVisit((node, method) -> null);
+    }
+
+    public MySymbolTable getSymbolTable() {
+        return this.symbolTable;
+    }
+
+    private static Type typeOf(JmmNode typeNode) {
+        String name = typeNode.getKind().equals("Literal") ? typeNode.get("keyword") : typeNode.get("name");
+
+        if (name.endsWith("[]")) {
+            return new Type(name.substring(0, name.length() - 2), true);
+        }
+
+        return new Type(name, false);
+    }
+
+    private String dealWithProgram(JmmNode node, String method) {
+        return visitAllChildren(node, null);
+    }
+
+    private String dealWithImportDeclaration(JmmNode node, String method) {
+        String importPack = node.hasAttribute("pack") ? node.get("pack") : "";
+
+        /* the pack attribute is the list of the following names, printed as "[a, b]" */
+        ArrayList<String> list = new ArrayList<>(Arrays.asList(importPack.replace("[", "").replace("]", "").replace(" ", "").split(",")));
+
+        this.symbolTable.addImport(node.get("name") + '.' + String.join(".", list));
+
+        return null;
+    }
+
+    private String dealWithClassDeclaration(JmmNode node, String method) {
+        this.symbolTable.setName(node.get("name"));
+        this.symbolTable.setExtension(node.hasAttribute("extension") ? node.get("extension") : "");
+
+        return visitAllChildren(node, null);
+    }
+
+    private String dealWithClassField(JmmNode node, String method) {
+        JmmNode varNode = node.getJmmChild(0);
+
+        this.symbolTable.addField(new Symbol(typeOf(varNode.getJmmChild(0)), varNode.get("var")));
+
+        return null;
+    }
+
+    private String dealWithMethod(JmmNode node, String method) {
+        String methodName = node.get("name");
+
+        /* the first child is the return type */
+        this.symbolTable.addMethod(methodName, typeOf(node.getJmmChild(0).getJmmChild(0)));
+
+        return visitAllChildren(node, methodName);
+    }
+
+    private String dealWithMain(JmmNode node, String method) {
+        this.symbolTable.addMethod("main", new Type("void", false));
+
+        return visitAllChildren(node, "main");
+    }
+
+    private String dealWithArgument(JmmNode node, String method) {
+        /* main's argument is always a String[], whatever its declared type */
+        Type type = node.getJmmParent().getKind().equals("Main") ? new Type("String", true) : typeOf(node.getJmmChild(0));
+
+        this.symbolTable.addParameter(method, new Symbol(type, node.get("parameter")));
+
+        return null;
+    }
+
+    private String dealWithVarDeclaration(JmmNode node, String method) {
+        this.symbolTable.addLocalVariable(method, new Symbol(typeOf(node.getJmmChild(0)), node.get("var")));
 
+        return null;
     }
 }
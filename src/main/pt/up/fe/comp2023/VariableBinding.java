@@ -0,0 +1,24 @@
+package pt.up.fe.comp2023;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/* what a variable name refers to inside a method; the slot is 1-based for parameters and 0-based otherwise */
+public record VariableBinding(Symbol symbol, Kind kind, int slot) {
+    public enum Kind {
+        LOCAL,
+        PARAMETER,
+        FIELD
+    }
+
+    private static final String ATTRIBUTE = "binding";
+
+    public void annotate(JmmNode node) {
+        node.putObject(ATTRIBUTE, this);
+    }
+
+    /* the binding NameResolver attached to the node, or null if the name it uses is not a variable */
+    public static VariableBinding of(JmmNode node) {
+        return node.getOptionalObject(ATTRIBUTE).map(VariableBinding.class::cast).orElse(null);
+    }
+}
@@ -0,0 +1,237 @@
+package pt.up.fe.comp2023;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs compiled programs in a worker JVM, instead of writing their class files to a folder and starting a new JVM for
+ * each. The worker (see ProgramWorker) is started on the first run and reused, and the programs run in it one at a
+ * time, with their classes defined from memory by an InMemoryClassLoader. What a program prints is captured and
+ * returned, standard output followed by standard error, as JasminResult.run does.
+ * The programs do not run in the calling JVM, so that one that does not finish in time can be stopped by killing the
+ * worker, and one that calls System.exit only ends the worker; either way the next program gets a new one.
+ */
+public class WorkerJvmRunner {
+    /* the worker runs one program at a time */
+    private static final Object RUN_LOCK = new Object();
+
+    /* the Jasmin assembler keeps static state, so assembling must not run concurrently */
+    private static final Object ASSEMBLER_LOCK = new Object();
+
+    /* the same limit JasminResult gives the programs it runs */
+    private static final long TIMEOUT_MS = 5_000;
+
+    /* guarded by RUN_LOCK, null until the first run and after the worker ends */
+    private static Process worker;
+
+    private final File libsDir;
+
+    /* a class file, with the binary name of its class */
+    public record CompiledClass(String name, byte[] bytes) {
+    }
+
+    /* what a program printed, and whether it exited the JVM, which ends the worker */
+    private record Reply(String output, String errors, boolean exiting) {
+    }
+
+    public WorkerJvmRunner() {
+        this(new File(TestUtils.getLibsClasspath()));
+    }
+
+    public WorkerJvmRunner(File libsDir) {
+        this.libsDir = libsDir;
+    }
+
+    /**
+     * Assembles Jasmin code into its class file, without writing it.
+     */
+    public static CompiledClass assemble(String jasminCode) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String className;
+
+        synchronized (ASSEMBLER_LOCK) {
+            try {
+                ClassFile classFile = new ClassFile();
+                classFile.readJasmin(new StringReader(jasminCode), "", true);
+
+                if (classFile.errorCount() > 0) {
+                    throw new RuntimeException("Found " + classFile.errorCount() + " errors while compiling Jasmin code.");
+                }
+
+                classFile.write(bytes);
+                className = classFile.getClassName().replace('/', '.');
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Exception while assembling Jasmin code: " + e.getMessage() + "\nCode: " + jasminCode, e);
+            }
+        }
+
+        return new CompiledClass(className, bytes.toByteArray());
+    }
+
+    /* the class is named by its Jasmin code, the name kept by the JasminResult may be a placeholder */
+    public String run(JasminResult jasminResult) {
+        CompiledClass compiled = assemble(jasminResult.getJasminCode());
+
+        return this.run(compiled.name(), compiled.bytes());
+    }
+
+    public String run(String className, byte[] classFile) {
+        return this.run(Map.of(className, classFile), className, Collections.emptyList(), null);
+    }
+
+    /**
+     * Runs the main method of a class.
+     *
+     * @param classes the class files of the program, by class name
+     * @param input what the program reads from the standard input, may be null
+     * @return the output of the program, followed by its errors
+     */
+    public String run(Map<String, byte[]> classes, String mainClass, List<String> args, String input) {
+        String output;
+        String errors;
+
+        synchronized (RUN_LOCK) {
+            Process process = startWorker();
+
+            try {
+                DataOutputStream request = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+                request.writeUTF(this.libsDir.getAbsolutePath());
+                request.writeInt(classes.size());
+
+                for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                    request.writeUTF(entry.getKey());
+                    writeBytes(request, entry.getValue());
+                }
+
+                request.writeUTF(mainClass);
+                request.writeInt(args.size());
+                for (String arg : args) request.writeUTF(arg);
+
+                writeBytes(request, input == null ? new byte[0] : input.getBytes(StandardCharsets.UTF_8));
+                request.flush();
+            } catch (IOException e) {
+                stopWorker();
+                throw new RuntimeException("Could not send the program to the worker JVM", e);
+            }
+
+            /* the reply is read by another thread, so that waiting for it can time out */
+            FutureTask<Reply> reply = new FutureTask<>(() -> readReply(process));
+            Thread reader = new Thread(reply, "WorkerJvmRunner reply");
+            reader.setDaemon(true);
+            reader.start();
+
+            boolean exited = true;
+
+            try {
+                Reply result = reply.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                output = result.output();
+                errors = result.errors();
+                exited = result.exiting();
+            } catch (TimeoutException e) {
+                /* the output printed so far is lost with the worker */
+                output = "";
+                errors = "Program did not finish in " + TIMEOUT_MS + " ms\n";
+            } catch (ExecutionException e) {
+                output = "";
+                errors = "Error: The worker JVM ended without finishing the program (" + e.getCause() + ")\n";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                output = "";
+                errors = "";
+            }
+
+            if (exited) {
+                /* killing the worker closes its output, which ends the reader if it still waits */
+                stopWorker();
+            }
+
+            joinQuietly(reader);
+        }
+
+        if (errors.isEmpty()) return output;
+        if (!output.isEmpty() && !output.endsWith("\n")) output += "\n";
+
+        return output + errors;
+    }
+
+    private static Process startWorker() {
+        if (worker != null && worker.isAlive()) return worker;
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), ProgramWorker.class.getName());
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        try {
+            worker = builder.start();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not start the worker JVM", e);
+        }
+
+        return worker;
+    }
+
+    private static void stopWorker() {
+        if (worker == null) return;
+
+        worker.destroyForcibly();
+
+        try {
+            worker.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        worker = null;
+    }
+
+    private static Reply readReply(Process process) throws IOException {
+        /* not buffered, so that nothing past the reply is read */
+        DataInputStream reply = new DataInputStream(process.getInputStream());
+
+        boolean exiting = reply.readBoolean();
+        String output = new String(readBytes(reply), StandardCharsets.UTF_8);
+        String errors = new String(readBytes(reply), StandardCharsets.UTF_8);
+
+        return new Reply(output, errors, exiting);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+
+        return bytes;
+    }
+
+    private static void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
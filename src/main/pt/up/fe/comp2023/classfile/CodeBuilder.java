@@ -0,0 +1,887 @@
+package pt.up.fe.comp2023.classfile;
+
+import pt.up.fe.comp2023.optimization.peephole.PeepholeInstruction;
+import pt.up.fe.comp2023.optimization.peephole.PeepholeOptimizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Builds the Code attribute of one method. The instructions are recorded with labels as branch targets, and once the
+ * method is complete a dataflow over them infers the verifier types at the start of each basic block. The maximum stack depth
+ * and the StackMapTable frames are taken from those types, as the Jasmin assembler would need them written by hand.
+ */
+public class CodeBuilder {
+    public static final int NOP = 0x00;
+    public static final int ICONST_M1 = 0x02;
+    public static final int ICONST_0 = 0x03;
+    public static final int ICONST_5 = 0x08;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC = 0x12;
+    public static final int LDC_W = 0x13;
+    public static final int ILOAD = 0x15;
+    public static final int ALOAD = 0x19;
+    public static final int IALOAD = 0x2e;
+    public static final int AALOAD = 0x32;
+    public static final int ISTORE = 0x36;
+    public static final int ASTORE = 0x3a;
+    public static final int IASTORE = 0x4f;
+    public static final int AASTORE = 0x53;
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int IADD = 0x60;
+    public static final int ISUB = 0x64;
+    public static final int IMUL = 0x68;
+    public static final int IDIV = 0x6c;
+    public static final int IAND = 0x7e;
+    public static final int IOR = 0x80;
+    public static final int IXOR = 0x82;
+    public static final int IINC = 0x84;
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9a;
+    public static final int IFLT = 0x9b;
+    public static final int IFGE = 0x9c;
+    public static final int IFGT = 0x9d;
+    public static final int IFLE = 0x9e;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+    public static final int IRETURN = 0xac;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+    public static final int GETFIELD = 0xb4;
+    public static final int PUTFIELD = 0xb5;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int NEW = 0xbb;
+    public static final int NEWARRAY = 0xbc;
+    public static final int ANEWARRAY = 0xbd;
+    public static final int ARRAYLENGTH = 0xbe;
+    public static final int ATHROW = 0xbf;
+    public static final int WIDE = 0xc4;
+
+    private static final int T_INT = 10;
+
+    /* the short forms of the loads and stores of the first four registers */
+    private static final int ILOAD_0 = 0x1a;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ISTORE_0 = 0x3b;
+    private static final int ASTORE_0 = 0x4b;
+
+    /* the opcodes of the instructions the peephole rules may make, by name */
+    private static final Map<String, Integer> OPCODES = new HashMap<>();
+
+    static {
+        for (int opcode : new int[]{NOP, IADD, ISUB, IMUL, IDIV, IAND, IOR, IXOR, ARRAYLENGTH, POP, DUP, IRETURN, ARETURN, RETURN,
+                ATHROW, IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE, IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE, GOTO}) {
+            OPCODES.put(mnemonic(opcode), opcode);
+        }
+    }
+
+    public static final class Label {
+        private int index = -1;
+    }
+
+    /**
+     * A recorded instruction. The operand is a register, a constant or a constant pool index, depending on the opcode,
+     * and the increment is the constant an 'iinc' adds to its register.
+     * Pops and push describe its effect on the stack, except for the instructions the dataflow handles by themselves.
+     */
+    private record Op(int opcode, int operand, Label target, int pops, VerificationType push, boolean init, int increment) {
+    }
+
+    private record Frame(VerificationType[] locals, VerificationType[] stack) {
+    }
+
+    private final ConstantPool pool;
+    private final String className;
+    private final String superClass;
+    private final List<VerificationType> parameters;
+    private final List<Op> code = new ArrayList<>();
+    private final List<Label> labels = new ArrayList<>();
+    private final Map<Integer, VerificationType> declaredTypes = new HashMap<>();
+    private int maxLocals;
+
+    /**
+     * @param parameters the types of the first registers when the method starts, 'this' included
+     */
+    public CodeBuilder(ConstantPool pool, String className, String superClass, List<VerificationType> parameters) {
+        this.pool = pool;
+        this.className = className;
+        this.superClass = superClass;
+        this.parameters = parameters;
+        this.maxLocals = parameters.size();
+    }
+
+    /**
+     * Records the declared type of the variable kept in a register, used when two different object types meet in it.
+     * Registers shared by variables of different types fall back to the common superclass.
+     */
+    public void declareLocal(int register, VerificationType type) {
+        if (this.declaredTypes.containsKey(register) && !type.equals(this.declaredTypes.get(register))) {
+            this.declaredTypes.put(register, null);
+            return;
+        }
+
+        this.declaredTypes.put(register, type);
+    }
+
+    public Label newLabel() {
+        return new Label();
+    }
+
+    /* the label marks the next instruction added */
+    public void placeLabel(Label label) {
+        label.index = this.code.size();
+        this.labels.add(label);
+    }
+
+    private void add(int opcode, int operand, Label target, int pops, VerificationType push) {
+        this.code.add(new Op(opcode, operand, target, pops, push, false, 0));
+    }
+
+    public void iconst(int value) {
+        if (value >= -1 && value <= 5) this.add(ICONST_0 + value, 0, null, 0, VerificationType.INTEGER);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) this.add(BIPUSH, value, null, 0, VerificationType.INTEGER);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) this.add(SIPUSH, value, null, 0, VerificationType.INTEGER);
+        else this.add(LDC, this.pool.integer(value), null, 0, VerificationType.INTEGER);
+    }
+
+    public void ldcString(String value) {
+        this.add(LDC, this.pool.string(value), null, 0, VerificationType.object("java/lang/String"));
+    }
+
+    public void load(boolean reference, int register) {
+        this.maxLocals = Math.max(this.maxLocals, register + 1);
+        this.add(reference ? ALOAD : ILOAD, register, null, 0, null);
+    }
+
+    public void store(boolean reference, int register) {
+        this.maxLocals = Math.max(this.maxLocals, register + 1);
+        this.add(reference ? ASTORE : ISTORE, register, null, 1, null);
+    }
+
+    public void iinc(int register, int increment) {
+        this.maxLocals = Math.max(this.maxLocals, register + 1);
+        this.code.add(new Op(IINC, register, null, 0, null, false, increment));
+    }
+
+    public void arrayLoad(boolean reference) {
+        /* the element type of aaload is taken from the array on the stack */
+        this.add(reference ? AALOAD : IALOAD, 0, null, 2, reference ? null : VerificationType.INTEGER);
+    }
+
+    public void arrayStore(boolean reference) {
+        this.add(reference ? AASTORE : IASTORE, 0, null, 3, null);
+    }
+
+    /* the instructions without operands */
+    public void simple(int opcode) {
+        switch (opcode) {
+            case IADD, ISUB, IMUL, IDIV, IAND, IOR, IXOR -> this.add(opcode, 0, null, 2, VerificationType.INTEGER);
+            case ARRAYLENGTH -> this.add(opcode, 0, null, 1, VerificationType.INTEGER);
+            case POP, IRETURN, ARETURN, ATHROW -> this.add(opcode, 0, null, 1, null);
+            case DUP, RETURN, NOP -> this.add(opcode, 0, null, 0, null);
+            default -> throw new RuntimeException("Opcode " + opcode + " takes an operand");
+        }
+    }
+
+    public void branch(int opcode, Label target) {
+        int pops;
+
+        if (opcode == GOTO) pops = 0;
+        else if (opcode >= IFEQ && opcode <= IFLE) pops = 1;
+        else if (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE) pops = 2;
+        else throw new RuntimeException("Opcode " + opcode + " is not a branch");
+
+        this.add(opcode, 0, target, pops, null);
+    }
+
+    public void invoke(int opcode, String owner, String name, String descriptor) {
+        int pops = argumentCount(descriptor) + (opcode == INVOKESTATIC ? 0 : 1);
+        String returnType = descriptor.substring(descriptor.indexOf(')') + 1);
+        VerificationType push = returnType.equals("V") ? null : fromDescriptor(returnType);
+
+        this.code.add(new Op(opcode, this.pool.methodRef(owner, name, descriptor), null, pops, push,
+                opcode == INVOKESPECIAL && name.equals("<init>"), 0));
+    }
+
+    public void field(int opcode, String owner, String name, String descriptor) {
+        int index = this.pool.fieldRef(owner, name, descriptor);
+
+        if (opcode == GETFIELD) this.add(opcode, index, null, 1, fromDescriptor(descriptor));
+        else this.add(opcode, index, null, 2, null);
+    }
+
+    public void newObject(String className) {
+        this.add(NEW, this.pool.classRef(className), null, 0, VerificationType.uninitialized(className, this.code.size()));
+    }
+
+    /* the descriptor is the one of the array, e.g. '[I' or '[Ljava/lang/String;' */
+    public void newArray(String descriptor) {
+        VerificationType array = VerificationType.object(descriptor);
+
+        if (descriptor.equals("[I")) {
+            this.add(NEWARRAY, T_INT, null, 1, array);
+            return;
+        }
+
+        String element = descriptor.substring(1);
+        if (element.startsWith("L")) element = element.substring(1, element.length() - 1);
+
+        this.add(ANEWARRAY, this.pool.classRef(element), null, 1, array);
+    }
+
+    /* ----- peephole ----- */
+
+    /**
+     * Rewrites the instructions recorded so far with the peephole rules, the same that rewrite the Jasmin code.
+     * The instructions the rules keep are recorded again as they were, and the ones they make are added as new.
+     */
+    public void optimize(PeepholeOptimizer peephole, Set<Integer> temporaries) {
+        /* the rules know labels by name, each is named after its place in the code */
+        List<Label> placed = this.labels.stream().distinct().sorted(Comparator.comparingInt(label -> label.index)).toList();
+        Map<Label, String> names = new IdentityHashMap<>();
+        Map<String, Label> labels = new HashMap<>();
+
+        for (Label label : placed) {
+            String name = "L" + names.size();
+            names.put(label, name);
+            labels.put(name, label);
+        }
+
+        List<PeepholeInstruction> lines = new ArrayList<>();
+        int nextLabel = 0;
+
+        for (int idx = 0; idx <= this.code.size(); idx++) {
+            for (; nextLabel < placed.size() && placed.get(nextLabel).index == idx; nextLabel++) {
+                lines.add(PeepholeInstruction.label(names.get(placed.get(nextLabel))));
+            }
+
+            if (idx < this.code.size()) lines.add(read(this.code.get(idx), names));
+        }
+
+        List<PeepholeInstruction> optimized = peephole.optimize(lines, temporaries);
+
+        this.code.clear();
+        this.labels.clear();
+        /* the registers of the temporaries the rules removed are no longer counted */
+        this.maxLocals = this.parameters.size();
+
+        for (PeepholeInstruction line : optimized) {
+            if (line.isLabel()) this.placeLabel(labels.get(line.label()));
+            else this.write(line, labels);
+        }
+    }
+
+    private static PeepholeInstruction read(Op op, Map<Label, String> names) {
+        int opcode = op.opcode();
+        String mnemonic = mnemonic(opcode);
+
+        if (op.target() != null) {
+            String target = names.get(op.target());
+            if (target == null) throw new RuntimeException("Branch to a label that does not mark an instruction");
+
+            return PeepholeInstruction.jump(mnemonic, target, op);
+        }
+
+        return switch (opcode) {
+            case ILOAD, ALOAD, ISTORE, ASTORE -> PeepholeInstruction.access(mnemonic, op.operand(), op);
+            case IINC -> PeepholeInstruction.iinc(op.operand(), op.increment(), op);
+            case BIPUSH, SIPUSH -> PeepholeInstruction.push(mnemonic, op.operand(), op);
+            default -> opcode >= ICONST_M1 && opcode <= ICONST_5 ? PeepholeInstruction.push(mnemonic, opcode - ICONST_0, op)
+                    : PeepholeInstruction.instruction(mnemonic, op);
+        };
+    }
+
+    private void write(PeepholeInstruction line, Map<String, Label> labels) {
+        if (line.source() instanceof Op op && !line.isJump()) {
+            /* an uninitialized object is known by the index of its 'new', which may have moved */
+            if (op.opcode() == NEW) {
+                op = new Op(NEW, op.operand(), null, 0, VerificationType.uninitialized(op.push().className(), this.code.size()), false, 0);
+            }
+
+            if (op.opcode() == ILOAD || op.opcode() == ALOAD || op.opcode() == ISTORE || op.opcode() == ASTORE || op.opcode() == IINC) {
+                this.maxLocals = Math.max(this.maxLocals, op.operand() + 1);
+            }
+
+            this.code.add(op);
+            return;
+        }
+
+        /* jumps are recorded again, since a rule may have changed their label */
+        if (line.isJump()) this.branch(OPCODES.get(line.opcode()), labels.get(line.target()));
+        else if (line.isIinc()) this.iinc(line.register(), line.increment());
+        else if (line.isLoad()) this.load(line.opcode().equals("aload"), line.register());
+        else if (line.isStore()) this.store(line.opcode().equals("astore"), line.register());
+        else this.simple(OPCODES.get(line.opcode()));
+    }
+
+    /* the name of each opcode in Jasmin, the constants 'iconst_m1' to 'iconst_5' all being 'iconst' */
+    private static String mnemonic(int opcode) {
+        return switch (opcode) {
+            case NOP -> "nop";
+            case ICONST_M1, ICONST_0, ICONST_0 + 1, ICONST_0 + 2, ICONST_0 + 3, ICONST_0 + 4, ICONST_5 -> "iconst";
+            case BIPUSH -> "bipush";
+            case SIPUSH -> "sipush";
+            case LDC -> "ldc";
+            case LDC_W -> "ldc_w";
+            case ILOAD -> "iload";
+            case ALOAD -> "aload";
+            case IALOAD -> "iaload";
+            case AALOAD -> "aaload";
+            case ISTORE -> "istore";
+            case ASTORE -> "astore";
+            case IASTORE -> "iastore";
+            case AASTORE -> "aastore";
+            case POP -> "pop";
+            case DUP -> "dup";
+            case IADD -> "iadd";
+            case ISUB -> "isub";
+            case IMUL -> "imul";
+            case IDIV -> "idiv";
+            case IAND -> "iand";
+            case IOR -> "ior";
+            case IXOR -> "ixor";
+            case IINC -> "iinc";
+            case IFEQ -> "ifeq";
+            case IFNE -> "ifne";
+            case IFLT -> "iflt";
+            case IFGE -> "ifge";
+            case IFGT -> "ifgt";
+            case IFLE -> "ifle";
+            case IF_ICMPEQ -> "if_icmpeq";
+            case IF_ICMPNE -> "if_icmpne";
+            case IF_ICMPLT -> "if_icmplt";
+            case IF_ICMPGE -> "if_icmpge";
+            case IF_ICMPGT -> "if_icmpgt";
+            case IF_ICMPLE -> "if_icmple";
+            case GOTO -> "goto";
+            case IRETURN -> "ireturn";
+            case ARETURN -> "areturn";
+            case RETURN -> "return";
+            case GETFIELD -> "getfield";
+            case PUTFIELD -> "putfield";
+            case INVOKEVIRTUAL -> "invokevirtual";
+            case INVOKESPECIAL -> "invokespecial";
+            case INVOKESTATIC -> "invokestatic";
+            case NEW -> "new";
+            case NEWARRAY -> "newarray";
+            case ANEWARRAY -> "anewarray";
+            case ARRAYLENGTH -> "arraylength";
+            case ATHROW -> "athrow";
+            case WIDE -> "wide";
+            default -> throw new RuntimeException("Unknown opcode " + opcode);
+        };
+    }
+
+    private static int argumentCount(String descriptor) {
+        int count = 0;
+        int idx = 1;
+
+        while (descriptor.charAt(idx) != ')') {
+            while (descriptor.charAt(idx) == '[') idx++;
+            if (descriptor.charAt(idx) == 'L') idx = descriptor.indexOf(';', idx);
+            idx++;
+            count++;
+        }
+
+        return count;
+    }
+
+    private static VerificationType fromDescriptor(String descriptor) {
+        return switch (descriptor.charAt(0)) {
+            case 'I', 'Z', 'B', 'C', 'S' -> VerificationType.INTEGER;
+            case 'L' -> VerificationType.object(descriptor.substring(1, descriptor.length() - 1));
+            case '[' -> VerificationType.object(descriptor);
+            default -> throw new RuntimeException("Unsupported type descriptor '" + descriptor + "'");
+        };
+    }
+
+    private static boolean isUnconditional(int opcode) {
+        return opcode == GOTO || opcode == IRETURN || opcode == ARETURN || opcode == RETURN || opcode == ATHROW;
+    }
+
+    private int targetOf(Op op) {
+        if (op.target().index < 0 || op.target().index >= this.code.size()) {
+            throw new RuntimeException("Branch to a label that does not mark an instruction");
+        }
+
+        return op.target().index;
+    }
+
+    /* ----- dataflow ----- */
+
+    /**
+     * The result of the dataflow: the types on entry to each basic block, which instructions are ever reached,
+     * and the deepest the stack gets.
+     */
+    private record Dataflow(Frame[] frames, boolean[] reachable, int maxStack) {
+    }
+
+    /**
+     * Infers the types on entry to each basic block. Frames are only kept where blocks start, and each block is
+     * executed on a single mutable frame, so methods with many registers do not keep a copy of them per instruction.
+     */
+    private Dataflow computeFrames() {
+        if (this.code.isEmpty()) throw new RuntimeException("A method must have at least one instruction");
+
+        boolean[] leaders = this.findLeaders();
+        Frame[] frames = new Frame[this.code.size()];
+        boolean[] reachable = new boolean[this.code.size()];
+        VerificationType[] declared = this.declaredArray();
+        int maxStack = 0;
+
+        VerificationType[] entry = new VerificationType[this.maxLocals];
+        Arrays.fill(entry, VerificationType.TOP);
+        for (int idx = 0; idx < this.parameters.size(); idx++) {
+            entry[idx] = this.parameters.get(idx);
+        }
+
+        /* blocks waiting to be executed, in code order so that loops converge in few passes */
+        BitSet worklist = new BitSet(this.code.size());
+        frames[0] = new Frame(entry, new VerificationType[0]);
+        worklist.set(0);
+
+        for (int leader = worklist.nextSetBit(0); leader >= 0; leader = worklist.nextSetBit(0)) {
+            worklist.clear(leader);
+
+            VerificationType[] locals = frames[leader].locals().clone();
+            List<VerificationType> stack = new ArrayList<>(Arrays.asList(frames[leader].stack()));
+
+            for (int idx = leader; ; idx++) {
+                Op op = this.code.get(idx);
+                reachable[idx] = true;
+
+                this.execute(idx, locals, stack);
+                maxStack = Math.max(maxStack, stack.size());
+
+                if (op.target() != null) {
+                    this.mergeInto(frames, this.targetOf(op), locals, stack, declared, worklist);
+                }
+
+                if (isUnconditional(op.opcode())) break;
+                if (idx + 1 >= this.code.size()) throw new RuntimeException("Execution falls off the end of the code");
+
+                if (leaders[idx + 1]) {
+                    this.mergeInto(frames, idx + 1, locals, stack, declared, worklist);
+                    break;
+                }
+            }
+        }
+
+        return new Dataflow(frames, reachable, maxStack);
+    }
+
+    /* the first instruction, branch targets and the instructions after a branch start a basic block */
+    private boolean[] findLeaders() {
+        boolean[] leaders = new boolean[this.code.size() + 1];
+        leaders[0] = true;
+
+        for (int idx = 0; idx < this.code.size(); idx++) {
+            Op op = this.code.get(idx);
+
+            if (op.target() != null) {
+                leaders[this.targetOf(op)] = true;
+                leaders[idx + 1] = true;
+            }
+            else if (isUnconditional(op.opcode())) {
+                leaders[idx + 1] = true;
+            }
+        }
+
+        return leaders;
+    }
+
+    /* the declared type of each register, looked up on every merge */
+    private VerificationType[] declaredArray() {
+        VerificationType[] declared = new VerificationType[this.maxLocals];
+
+        for (Map.Entry<Integer, VerificationType> entry : this.declaredTypes.entrySet()) {
+            if (entry.getKey() < declared.length) declared[entry.getKey()] = entry.getValue();
+        }
+
+        return declared;
+    }
+
+    /* applies the effect of an instruction to the frame before it */
+    private void execute(int idx, VerificationType[] locals, List<VerificationType> stack) {
+        Op op = this.code.get(idx);
+
+        switch (op.opcode()) {
+            case ILOAD -> stack.add(VerificationType.INTEGER);
+            case ALOAD -> stack.add(locals[op.operand()]);
+            case ISTORE -> {
+                pop(stack, idx);
+                locals[op.operand()] = VerificationType.INTEGER;
+            }
+            case ASTORE -> locals[op.operand()] = pop(stack, idx);
+            case DUP -> {
+                VerificationType top = pop(stack, idx);
+                stack.add(top);
+                stack.add(top);
+            }
+            case AALOAD -> {
+                pop(stack, idx);
+                stack.add(elementOf(pop(stack, idx)));
+            }
+            default -> {
+                if (op.init()) {
+                    for (int arg = 1; arg < op.pops(); arg++) pop(stack, idx);
+
+                    VerificationType receiver = pop(stack, idx);
+                    VerificationType initialized = VerificationType.object(receiver.tag() == VerificationType.UNINITIALIZED_THIS_TAG ? this.className : receiver.className());
+
+                    /* every copy of the object is initialized at once */
+                    for (int local = 0; local < locals.length; local++) {
+                        if (locals[local].equals(receiver)) locals[local] = initialized;
+                    }
+                    stack.replaceAll(type -> type.equals(receiver) ? initialized : type);
+                }
+                else {
+                    for (int pop = 0; pop < op.pops(); pop++) pop(stack, idx);
+                }
+
+                if (op.push() != null) stack.add(op.push());
+            }
+        }
+    }
+
+    private static VerificationType pop(List<VerificationType> stack, int idx) {
+        if (stack.isEmpty()) throw new RuntimeException("Stack underflow at instruction " + idx);
+
+        return stack.remove(stack.size() - 1);
+    }
+
+    private static VerificationType elementOf(VerificationType array) {
+        if (array.tag() != VerificationType.OBJECT_TAG || !array.className().startsWith("[")) return VerificationType.NULL;
+
+        return fromDescriptor(array.className().substring(1));
+    }
+
+    private void mergeInto(Frame[] frames, int idx, VerificationType[] locals, List<VerificationType> stack,
+                           VerificationType[] declared, BitSet worklist) {
+        Frame current = frames[idx];
+
+        if (current == null) {
+            frames[idx] = new Frame(locals.clone(), stack.toArray(new VerificationType[0]));
+            worklist.set(idx);
+            return;
+        }
+
+        if (current.stack().length != stack.size()) {
+            throw new RuntimeException("Inconsistent stack height at instruction " + idx);
+        }
+
+        VerificationType[] mergedLocals = null;
+        for (int local = 0; local < locals.length; local++) {
+            VerificationType merged = this.merge(current.locals()[local], locals[local], declared[local]);
+
+            /* the frame is only copied once something in it changes */
+            if (!merged.equals(current.locals()[local])) {
+                if (mergedLocals == null) mergedLocals = current.locals().clone();
+                mergedLocals[local] = merged;
+            }
+        }
+
+        VerificationType[] mergedStack = null;
+        for (int item = 0; item < stack.size(); item++) {
+            VerificationType merged = this.merge(current.stack()[item], stack.get(item), null);
+
+            if (!merged.equals(current.stack()[item])) {
+                if (mergedStack == null) mergedStack = current.stack().clone();
+                mergedStack[item] = merged;
+            }
+        }
+
+        if (mergedLocals != null || mergedStack != null) {
+            frames[idx] = new Frame(mergedLocals != null ? mergedLocals : current.locals(), mergedStack != null ? mergedStack : current.stack());
+            worklist.set(idx);
+        }
+    }
+
+    private VerificationType merge(VerificationType a, VerificationType b, VerificationType declared) {
+        if (a.equals(b)) return a;
+        if (a.tag() == VerificationType.NULL_TAG && b.tag() == VerificationType.OBJECT_TAG) return b;
+        if (b.tag() == VerificationType.NULL_TAG && a.tag() == VerificationType.OBJECT_TAG) return a;
+
+        if (a.tag() == VerificationType.OBJECT_TAG && b.tag() == VerificationType.OBJECT_TAG) {
+            if (declared != null && declared.tag() == VerificationType.OBJECT_TAG) return declared;
+
+            /* only this class and its superclass are known to be related */
+            boolean related = (a.className().equals(this.className) && b.className().equals(this.superClass))
+                    || (b.className().equals(this.className) && a.className().equals(this.superClass));
+
+            return VerificationType.object(related ? this.superClass : "java/lang/Object");
+        }
+
+        return VerificationType.TOP;
+    }
+
+    /* ----- layout ----- */
+
+    private static int lengthOf(Op op) {
+        return switch (op.opcode()) {
+            case ILOAD, ALOAD, ISTORE, ASTORE -> op.operand() <= 3 ? 1 : op.operand() <= 0xFF ? 2 : 4;
+            case IINC -> op.operand() <= 0xFF && op.increment() >= Byte.MIN_VALUE && op.increment() <= Byte.MAX_VALUE ? 3 : 6;
+            case BIPUSH, NEWARRAY -> 2;
+            case LDC -> op.operand() <= 0xFF ? 2 : 3;
+            case SIPUSH, GETFIELD, PUTFIELD, INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC, NEW, ANEWARRAY -> 3;
+            default -> op.target() != null ? 3 : 1;
+        };
+    }
+
+    /**
+     * Writes the Code attribute, with its StackMapTable when the method branches.
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        Dataflow dataflow = this.computeFrames();
+        Frame[] frames = dataflow.frames();
+        boolean[] reachable = dataflow.reachable();
+
+        int[] offsets = new int[this.code.size() + 1];
+        for (int idx = 0; idx < this.code.size(); idx++) {
+            offsets[idx + 1] = offsets[idx] + lengthOf(this.code.get(idx));
+        }
+
+        int codeLength = offsets[this.code.size()];
+        if (codeLength > 0xFFFF) throw new RuntimeException("The code of a method is limited to 65535 bytes");
+
+        int maxStack = dataflow.maxStack();
+
+        /* frames are needed at every branch target, and where code that is never reached starts */
+        TreeMap<Integer, Frame> stackMap = new TreeMap<>();
+        Frame unreachable = new Frame(new VerificationType[0], new VerificationType[]{VerificationType.object("java/lang/Throwable")});
+
+        for (int idx = 0; idx < this.code.size(); idx++) {
+            Op op = this.code.get(idx);
+
+            if (!reachable[idx]) {
+                if (idx == 0 || reachable[idx - 1]) {
+                    stackMap.put(idx, unreachable);
+                    maxStack = Math.max(maxStack, 1);
+                }
+            }
+            else if (op.target() != null) {
+                int target = this.targetOf(op);
+                stackMap.put(target, frames[target]);
+            }
+        }
+
+        ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+        DataOutputStream codeOut = new DataOutputStream(codeBytes);
+
+        for (int idx = 0; idx < this.code.size(); idx++) {
+            if (!reachable[idx]) {
+                /* unreachable code is replaced by nops and an athrow, so that it still verifies */
+                int end = idx;
+                while (end < this.code.size() && !reachable[end]) end++;
+
+                for (int offset = offsets[idx]; offset < offsets[end] - 1; offset++) codeOut.writeByte(NOP);
+                codeOut.writeByte(ATHROW);
+
+                idx = end - 1;
+                continue;
+            }
+
+            this.writeOp(idx, offsets, codeOut);
+        }
+
+        ByteArrayOutputStream attribute = new ByteArrayOutputStream();
+        DataOutputStream attributeOut = new DataOutputStream(attribute);
+
+        attributeOut.writeShort(maxStack);
+        attributeOut.writeShort(this.maxLocals);
+        attributeOut.writeInt(codeLength);
+        codeBytes.writeTo(attributeOut);
+        attributeOut.writeShort(0);
+
+        if (stackMap.isEmpty()) {
+            attributeOut.writeShort(0);
+        }
+        else {
+            attributeOut.writeShort(1);
+            this.writeStackMap(stackMap, offsets, attributeOut);
+        }
+
+        out.writeShort(this.pool.utf8("Code"));
+        out.writeInt(attribute.size());
+        attribute.writeTo(out);
+    }
+
+    private void writeOp(int idx, int[] offsets, DataOutputStream out) throws IOException {
+        Op op = this.code.get(idx);
+        int opcode = op.opcode();
+
+        switch (opcode) {
+            case ILOAD, ALOAD, ISTORE, ASTORE -> {
+                int register = op.operand();
+
+                if (register <= 3) {
+                    int shortForm = switch (opcode) {
+                        case ILOAD -> ILOAD_0;
+                        case ALOAD -> ALOAD_0;
+                        case ISTORE -> ISTORE_0;
+                        default -> ASTORE_0;
+                    };
+                    out.writeByte(shortForm + register);
+                }
+                else if (register <= 0xFF) {
+                    out.writeByte(opcode);
+                    out.writeByte(register);
+                }
+                else {
+                    out.writeByte(WIDE);
+                    out.writeByte(opcode);
+                    out.writeShort(register);
+                }
+            }
+            case IINC -> {
+                if (lengthOf(op) == 3) {
+                    out.writeByte(IINC);
+                    out.writeByte(op.operand());
+                    out.writeByte(op.increment());
+                }
+                else {
+                    out.writeByte(WIDE);
+                    out.writeByte(IINC);
+                    out.writeShort(op.operand());
+                    out.writeShort(op.increment());
+                }
+            }
+            case BIPUSH, NEWARRAY -> {
+                out.writeByte(opcode);
+                out.writeByte(op.operand());
+            }
+            case LDC -> {
+                if (op.operand() <= 0xFF) {
+                    out.writeByte(LDC);
+                    out.writeByte(op.operand());
+                }
+                else {
+                    out.writeByte(LDC_W);
+                    out.writeShort(op.operand());
+                }
+            }
+            case SIPUSH, GETFIELD, PUTFIELD, INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC, NEW, ANEWARRAY -> {
+                out.writeByte(opcode);
+                out.writeShort(op.operand());
+            }
+            default -> {
+                out.writeByte(opcode);
+
+                if (op.target() != null) {
+                    int jump = offsets[this.targetOf(op)] - offsets[idx];
+
+                    if (jump < Short.MIN_VALUE || jump > Short.MAX_VALUE) {
+                        throw new RuntimeException("Branch offset " + jump + " does not fit in 16 bits");
+                    }
+
+                    out.writeShort(jump);
+                }
+            }
+        }
+    }
+
+    /* ----- StackMapTable ----- */
+
+    private static List<VerificationType> trimmed(VerificationType[] locals) {
+        int size = locals.length;
+        while (size > 0 && locals[size - 1].equals(VerificationType.TOP)) size--;
+
+        return Arrays.asList(locals).subList(0, size);
+    }
+
+    private void writeStackMap(TreeMap<Integer, Frame> stackMap, int[] offsets, DataOutputStream out) throws IOException {
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        DataOutputStream tableOut = new DataOutputStream(table);
+
+        VerificationType[] initial = new VerificationType[this.parameters.size()];
+        List<VerificationType> previous = trimmed(this.parameters.toArray(initial));
+        int previousOffset = -1;
+
+        tableOut.writeShort(stackMap.size());
+
+        for (Map.Entry<Integer, Frame> entry : stackMap.entrySet()) {
+            int offset = offsets[entry.getKey()];
+            int delta = offset - previousOffset - 1;
+            List<VerificationType> locals = trimmed(entry.getValue().locals());
+            VerificationType[] stack = entry.getValue().stack();
+            int difference = locals.size() - previous.size();
+
+            if (stack.length == 0 && locals.equals(previous)) {
+                if (delta < 64) {
+                    tableOut.writeByte(delta);
+                }
+                else {
+                    tableOut.writeByte(251);
+                    tableOut.writeShort(delta);
+                }
+            }
+            else if (stack.length == 1 && locals.equals(previous)) {
+                if (delta < 64) {
+                    tableOut.writeByte(64 + delta);
+                }
+                else {
+                    tableOut.writeByte(247);
+                    tableOut.writeShort(delta);
+                }
+                this.writeType(stack[0], offsets, tableOut);
+            }
+            else if (stack.length == 0 && difference < 0 && difference >= -3 && previous.subList(0, locals.size()).equals(locals)) {
+                tableOut.writeByte(251 + difference);
+                tableOut.writeShort(delta);
+            }
+            else if (stack.length == 0 && difference > 0 && difference <= 3 && locals.subList(0, previous.size()).equals(previous)) {
+                tableOut.writeByte(251 + difference);
+                tableOut.writeShort(delta);
+                for (VerificationType type : locals.subList(previous.size(), locals.size())) {
+                    this.writeType(type, offsets, tableOut);
+                }
+            }
+            else {
+                tableOut.writeByte(255);
+                tableOut.writeShort(delta);
+                tableOut.writeShort(locals.size());
+                for (VerificationType type : locals) {
+                    this.writeType(type, offsets, tableOut);
+                }
+                tableOut.writeShort(stack.length);
+                for (VerificationType type : stack) {
+                    this.writeType(type, offsets, tableOut);
+                }
+            }
+
+            previous = locals;
+            previousOffset = offset;
+        }
+
+        out.writeShort(this.pool.utf8("StackMapTable"));
+        out.writeInt(table.size());
+        table.writeTo(out);
+    }
+
+    private void writeType(VerificationType type, int[] offsets, DataOutputStream out) throws IOException {
+        out.writeByte(type.tag());
+
+        if (type.tag() == VerificationType.OBJECT_TAG) out.writeShort(this.pool.classRef(type.className()));
+        else if (type.tag() == VerificationType.UNINITIALIZED_TAG) out.writeShort(offsets[type.newIndex()]);
+    }
+}
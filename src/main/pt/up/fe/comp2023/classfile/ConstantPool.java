@@ -0,0 +1,129 @@
+package pt.up.fe.comp2023.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The constant pool of a class file. Each constant is added once, and its index is returned every time it is asked for.
+ */
+public class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream entries = new DataOutputStream(this.bytes);
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private int size = 1;
+
+    public int utf8(String value) {
+        Integer index = this.indexes.get("U" + value);
+        if (index != null) return index;
+
+        try {
+            this.entries.writeByte(UTF8);
+            /* writeUTF already uses the modified UTF-8 of the class file format, length included */
+            this.entries.writeUTF(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this.add("U" + value);
+    }
+
+    public int integer(int value) {
+        Integer index = this.indexes.get("I" + value);
+        if (index != null) return index;
+
+        this.writeEntry(INTEGER, value >>> 16, value & 0xFFFF);
+
+        return this.add("I" + value);
+    }
+
+    /* the name is an internal one, e.g. 'java/lang/Object' or '[I' */
+    public int classRef(String internalName) {
+        Integer index = this.indexes.get("C" + internalName);
+        if (index != null) return index;
+
+        this.writeEntry(CLASS, this.utf8(internalName));
+
+        return this.add("C" + internalName);
+    }
+
+    public int string(String value) {
+        Integer index = this.indexes.get("S" + value);
+        if (index != null) return index;
+
+        this.writeEntry(STRING, this.utf8(value));
+
+        return this.add("S" + value);
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return this.memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return this.memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        String key = tag + owner + '.' + name + ':' + descriptor;
+        Integer index = this.indexes.get(key);
+        if (index != null) return index;
+
+        int ownerIndex = this.classRef(owner);
+        int nameAndType = this.nameAndType(name, descriptor);
+        this.writeEntry(tag, ownerIndex, nameAndType);
+
+        return this.add(key);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + ':' + descriptor;
+        Integer index = this.indexes.get(key);
+        if (index != null) return index;
+
+        int nameIndex = this.utf8(name);
+        int descriptorIndex = this.utf8(descriptor);
+        this.writeEntry(NAME_AND_TYPE, nameIndex, descriptorIndex);
+
+        return this.add(key);
+    }
+
+    /* a tag followed by u2 values */
+    private void writeEntry(int tag, int... values) {
+        try {
+            this.entries.writeByte(tag);
+            for (int value : values) {
+                this.entries.writeShort(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int add(String key) {
+        int index = this.size++;
+        this.indexes.put(key, index);
+
+        return index;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        if (this.size > 0xFFFF) {
+            throw new RuntimeException("The constant pool has more than 65535 entries");
+        }
+
+        out.writeShort(this.size);
+        this.bytes.writeTo(out);
+    }
+}
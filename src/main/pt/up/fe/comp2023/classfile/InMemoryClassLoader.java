@@ -0,0 +1,45 @@
+package pt.up.fe.comp2023.classfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * Defines compiled classes straight from their bytes. Classes that are not among them are looked up in the libs-jmm
+ * folder and defined by this same loader, so a program and the runtime classes it uses share one namespace.
+ * Only the JDK classes come from the parent, the compiler's own classes are not visible to the programs.
+ */
+public class InMemoryClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classes;
+    private final File libsDir;
+
+    /**
+     * @param classes the class files, by binary class name (e.g. 'a.b.C')
+     * @param libsDir the folder with the compiled libs-jmm classes
+     */
+    public InMemoryClassLoader(Map<String, byte[]> classes, File libsDir) {
+        super(ClassLoader.getPlatformClassLoader());
+
+        this.classes = classes;
+        this.libsDir = libsDir;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = this.classes.get(name);
+
+        if (bytes == null) {
+            File classFile = new File(this.libsDir, name.replace('.', File.separatorChar) + ".class");
+            if (!classFile.isFile()) throw new ClassNotFoundException(name);
+
+            try {
+                bytes = Files.readAllBytes(classFile.toPath());
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
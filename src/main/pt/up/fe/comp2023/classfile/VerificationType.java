@@ -0,0 +1,37 @@
+package pt.up.fe.comp2023.classfile;
+
+/**
+ * A type of the bytecode verifier, as written in the StackMapTable frames.
+ * Uninitialized objects are identified by the index of their 'new' instruction, which only becomes an offset once the
+ * code is laid out.
+ */
+public record VerificationType(int tag, String className, int newIndex) {
+    public static final int TOP_TAG = 0;
+    public static final int INTEGER_TAG = 1;
+    public static final int NULL_TAG = 5;
+    public static final int UNINITIALIZED_THIS_TAG = 6;
+    public static final int OBJECT_TAG = 7;
+    public static final int UNINITIALIZED_TAG = 8;
+
+    public static final VerificationType TOP = new VerificationType(TOP_TAG, null, -1);
+    public static final VerificationType INTEGER = new VerificationType(INTEGER_TAG, null, -1);
+    public static final VerificationType NULL = new VerificationType(NULL_TAG, null, -1);
+
+    /* the class name is the one of the class being built */
+    public static VerificationType uninitializedThis(String className) {
+        return new VerificationType(UNINITIALIZED_THIS_TAG, className, -1);
+    }
+
+    /* the class name is an internal one, e.g. 'java/lang/String' or '[I' */
+    public static VerificationType object(String className) {
+        return new VerificationType(OBJECT_TAG, className, -1);
+    }
+
+    public static VerificationType uninitialized(String className, int newIndex) {
+        return new VerificationType(UNINITIALIZED_TAG, className, newIndex);
+    }
+
+    public boolean isUninitialized() {
+        return this.tag == UNINITIALIZED_TAG || this.tag == UNINITIALIZED_THIS_TAG;
+    }
+}
@@ -0,0 +1,400 @@
+package pt.up.fe.comp2023.generator;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates large, valid Java-- programs, to measure how the compiler scales with the size of its input.
+ * The same seed and options always give the same program. Every generated program compiles and terminates:
+ * variables are assigned before they are read, array indexes are constants below the length of every array,
+ * loops run a fixed number of times, and a method only calls methods declared before it, once and outside loops.
+ */
+public class ProgramGenerator {
+    /**
+     * @param methods        number of methods, besides main
+     * @param fields         number of int and boolean fields
+     * @param locals         number of local variables of each method
+     * @param statements     number of statements in each method body, nested blocks get half as many
+     * @param depth          how deep ifs and loops are nested
+     * @param loopDensity    chance of a statement being a loop, while it can still be nested
+     * @param expressionSize number of operands of each expression
+     */
+    public record Options(int methods, int fields, int locals, int statements, int depth, double loopDensity, int expressionSize) {
+        public static final Options DEFAULT = new Options(10, 4, 6, 6, 2, 0.25, 6);
+
+        public Options withMethods(int methods) {
+            return new Options(methods, this.fields, this.locals, this.statements, this.depth, this.loopDensity, this.expressionSize);
+        }
+    }
+
+    /* the signature of a generated method, all of them return an int */
+    private record Signature(String name, List<String> parameterTypes) {
+    }
+
+    private static final String INT = "int";
+    private static final String BOOLEAN = "boolean";
+    private static final String ARRAY = "int[]";
+    private static final String[] TYPES = {INT, BOOLEAN, ARRAY};
+
+    /* every array has this length, so constant indexes below it are always in bounds */
+    private static final int ARRAY_LENGTH = 8;
+    private static final int LOOP_ITERATIONS = 3;
+    private static final double IF_DENSITY = 0.2;
+    private static final int MAX_PARAMETERS = 3;
+
+    private final Options options;
+    private final Random random;
+    private final StringBuilder code = new StringBuilder();
+    private final List<Signature> methods = new ArrayList<>();
+
+    /* the variables the method being generated can read, by type, and those it can also assign */
+    private Map<String, List<String>> readable;
+    private Map<String, List<String>> assignable;
+    private int loopDepth;
+    private boolean canCall;
+    private int indentation;
+
+    public ProgramGenerator(Options options, long seed) {
+        this.options = options;
+        this.random = new Random(seed);
+    }
+
+    public String generate(String className) {
+        this.code.setLength(0);
+        this.methods.clear();
+
+        this.line("import io;");
+        this.line("");
+        this.line("class " + className + " {");
+        this.indentation++;
+
+        for (int i = 0; i < this.options.fields(); i++) {
+            this.line(this.fieldType(i) + " f" + i + ";");
+        }
+
+        for (int i = 0; i < this.options.methods(); i++) {
+            this.line("");
+            this.generateMethod("m" + i);
+        }
+
+        this.line("");
+        this.generateMain(className);
+
+        this.indentation--;
+        this.line("}");
+
+        return this.code.toString();
+    }
+
+    /* arrays are never fields, a field array could be read before any method assigns it */
+    private String fieldType(int index) {
+        return index % 2 == 0 ? INT : BOOLEAN;
+    }
+
+    private void generateMethod(String name) {
+        List<String> parameterTypes = new ArrayList<>();
+        int parameters = this.random.nextInt(MAX_PARAMETERS + 1);
+
+        for (int i = 0; i < parameters; i++) {
+            parameterTypes.add(TYPES[this.random.nextInt(TYPES.length)]);
+        }
+
+        this.readable = new HashMap<>(Map.of(INT, new ArrayList<>(), BOOLEAN, new ArrayList<>(), ARRAY, new ArrayList<>()));
+        this.assignable = new HashMap<>(Map.of(INT, new ArrayList<>(), BOOLEAN, new ArrayList<>(), ARRAY, new ArrayList<>()));
+        this.loopDepth = 0;
+        this.canCall = true;
+
+        for (int i = 0; i < this.options.fields(); i++) {
+            this.declare(this.fieldType(i), "f" + i);
+        }
+
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            arguments.add(parameterTypes.get(i) + " p" + i);
+            this.declare(parameterTypes.get(i), "p" + i);
+        }
+
+        this.line("public int " + name + "(" + String.join(", ", arguments) + ") {");
+        this.indentation++;
+
+        List<String> locals = new ArrayList<>();
+        for (int i = 0; i < this.options.locals(); i++) {
+            String type = TYPES[i % TYPES.length];
+            this.line(type + " v" + i + ";");
+            locals.add(type);
+        }
+
+        /* one counter for each level of loops */
+        for (int i = 0; i < this.options.depth(); i++) {
+            this.line(INT + " i" + i + ";");
+        }
+
+        for (int i = 0; i < locals.size(); i++) {
+            this.line("v" + i + " = " + this.initialValue(locals.get(i)) + ";");
+            this.declare(locals.get(i), "v" + i);
+        }
+
+        this.generateStatements(this.options.statements(), 0);
+
+        this.line("return " + this.intExpression(this.options.expressionSize()) + ";");
+
+        this.indentation--;
+        this.line("}");
+
+        /* added last, so a method never calls itself */
+        this.methods.add(new Signature(name, parameterTypes));
+    }
+
+    private void generateMain(String className) {
+        this.line("public static void main(String[] args) {");
+        this.indentation++;
+
+        this.line(className + " program;");
+        this.line("int result;");
+        this.line("program = new " + className + "();");
+
+        for (Signature method : this.methods) {
+            List<String> arguments = new ArrayList<>();
+
+            for (String type : method.parameterTypes()) {
+                arguments.add(this.initialValue(type));
+            }
+
+            this.line("result = program." + method.name() + "(" + String.join(", ", arguments) + ");");
+            this.line("io.println(result);");
+        }
+
+        this.indentation--;
+        this.line("}");
+    }
+
+    private void declare(String type, String name) {
+        this.readable.get(type).add(name);
+        this.assignable.get(type).add(name);
+    }
+
+    private String initialValue(String type) {
+        return switch (type) {
+            case INT -> String.valueOf(this.random.nextInt(100));
+            case BOOLEAN -> String.valueOf(this.random.nextBoolean());
+            default -> "new int[" + ARRAY_LENGTH + "]";
+        };
+    }
+
+    private void generateStatements(int count, int depth) {
+        for (int i = 0; i < count; i++) {
+            double choice = this.random.nextDouble();
+            boolean canNest = depth < this.options.depth();
+
+            if (canNest && choice < this.options.loopDensity()) {
+                this.generateLoop(depth);
+            }
+            else if (canNest && choice < this.options.loopDensity() + IF_DENSITY) {
+                this.generateIf(depth);
+            }
+            else {
+                this.generateAssignment();
+            }
+        }
+    }
+
+    private void generateLoop(int depth) {
+        String counter = "i" + depth;
+        int nested = Math.max(1, this.options.statements() / 2);
+
+        this.line(counter + " = 0;");
+        this.line("while (" + counter + " < " + LOOP_ITERATIONS + ") {");
+        this.indentation++;
+
+        /* the counter can be read inside the loop, but only the loop itself assigns it */
+        this.readable.get(INT).add(counter);
+        this.loopDepth++;
+        this.generateStatements(nested, depth + 1);
+        this.loopDepth--;
+        this.readable.get(INT).remove(counter);
+
+        this.line(counter + " = " + counter + " + 1;");
+        this.indentation--;
+        this.line("}");
+    }
+
+    private void generateIf(int depth) {
+        int nested = Math.max(1, this.options.statements() / 2);
+
+        this.line("if (" + this.booleanExpression(this.options.expressionSize()) + ") {");
+        this.indentation++;
+        this.generateStatements(nested, depth + 1);
+        this.indentation--;
+        this.line("} else {");
+        this.indentation++;
+        this.generateStatements(nested, depth + 1);
+        this.indentation--;
+        this.line("}");
+    }
+
+    private void generateAssignment() {
+        int size = this.options.expressionSize();
+        List<String> arrays = this.assignable.get(ARRAY);
+
+        switch (this.random.nextInt(3)) {
+            case 0 -> {
+                if (!arrays.isEmpty()) {
+                    this.line(this.pick(arrays) + "[" + this.random.nextInt(ARRAY_LENGTH) + "] = " + this.intExpression(size) + ";");
+                    return;
+                }
+            }
+            case 1 -> {
+                List<String> booleans = this.assignable.get(BOOLEAN);
+                if (!booleans.isEmpty()) {
+                    this.line(this.pick(booleans) + " = " + this.booleanExpression(size) + ";");
+                    return;
+                }
+            }
+        }
+
+        List<String> ints = this.assignable.get(INT);
+        if (!ints.isEmpty()) {
+            this.line(this.pick(ints) + " = " + this.intExpression(size) + ";");
+        }
+        else {
+            /* a method without int variables, the counters are never assigned outside their loops */
+            this.line("io.println(" + this.intExpression(size) + ");");
+        }
+    }
+
+    /**
+     * An int expression with about the given number of operands. Compound expressions are always parenthesized,
+     * so the generated code never depends on the precedence of the operators.
+     */
+    private String intExpression(int size) {
+        if (size <= 1) return this.intOperand();
+
+        int choice = this.random.nextInt(10);
+
+        if (choice == 0 && this.canCall && this.loopDepth == 0 && !this.methods.isEmpty()) {
+            this.canCall = false;
+            return this.call(this.methods.get(this.random.nextInt(this.methods.size())));
+        }
+
+        if (choice == 1) {
+            /* divisors are never zero */
+            return "(" + this.intExpression(size - 1) + " / " + (1 + this.random.nextInt(9)) + ")";
+        }
+
+        int left = 1 + this.random.nextInt(size - 1);
+        String operator = new String[]{"+", "-", "*"}[this.random.nextInt(3)];
+
+        return "(" + this.intExpression(left) + " " + operator + " " + this.intExpression(size - left) + ")";
+    }
+
+    private String intOperand() {
+        List<String> ints = this.readable.get(INT);
+        List<String> arrays = this.readable.get(ARRAY);
+
+        switch (this.random.nextInt(4)) {
+            case 0 -> {
+                if (!arrays.isEmpty()) return this.pick(arrays) + "[" + this.random.nextInt(ARRAY_LENGTH) + "]";
+            }
+            case 1 -> {
+                if (!arrays.isEmpty()) return this.pick(arrays) + ".length";
+            }
+            case 2 -> {
+                return String.valueOf(this.random.nextInt(100));
+            }
+        }
+
+        return ints.isEmpty() ? String.valueOf(this.random.nextInt(100)) : this.pick(ints);
+    }
+
+    private String booleanExpression(int size) {
+        if (size <= 1) {
+            List<String> booleans = this.readable.get(BOOLEAN);
+
+            if (booleans.isEmpty() || this.random.nextInt(4) == 0) return String.valueOf(this.random.nextBoolean());
+            return this.pick(booleans);
+        }
+
+        int left = 1 + this.random.nextInt(size - 1);
+
+        return switch (this.random.nextInt(5)) {
+            case 0 -> "(" + this.intExpression(left) + " < " + this.intExpression(size - left) + ")";
+            case 1 -> "(" + this.intExpression(left) + " > " + this.intExpression(size - left) + ")";
+            case 2 -> "(" + this.booleanExpression(left) + " && " + this.booleanExpression(size - left) + ")";
+            case 3 -> "(" + this.booleanExpression(left) + " || " + this.booleanExpression(size - left) + ")";
+            default -> "!" + this.booleanExpression(size - 1);
+        };
+    }
+
+    private String call(Signature method) {
+        List<String> arguments = new ArrayList<>();
+
+        for (String type : method.parameterTypes()) {
+            List<String> variables = this.readable.get(type);
+
+            if (type.equals(INT)) arguments.add(this.intOperand());
+            else if (type.equals(BOOLEAN)) arguments.add(this.booleanExpression(1));
+            else arguments.add(variables.isEmpty() ? "new int[" + ARRAY_LENGTH + "]" : this.pick(variables));
+        }
+
+        return "this." + method.name() + "(" + String.join(", ", arguments) + ")";
+    }
+
+    private String pick(List<String> names) {
+        return names.get(this.random.nextInt(names.size()));
+    }
+
+    private void line(String text) {
+        if (!text.isEmpty()) this.code.append("    ".repeat(this.indentation));
+        this.code.append(text).append("\n");
+    }
+
+    /**
+     * Writes generated programs to a folder, e.g. to stress the batch compiler with them.
+     * Usage: &lt;output folder&gt; [--count=n] [--seed=n] [--methods=n] [--fields=n] [--locals=n] [--statements=n]
+     * [--depth=n] [--loopDensity=x] [--expressionSize=n]
+     */
+    public static void main(String[] args) {
+        Map<String, String> config = new HashMap<>();
+        File outputDir = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                config.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            else {
+                outputDir = new File(arg);
+            }
+        }
+
+        if (outputDir == null) {
+            throw new RuntimeException("Expected the folder where to write the generated programs.");
+        }
+
+        Options defaults = Options.DEFAULT;
+        Options options = new Options(
+                Integer.parseInt(config.getOrDefault("methods", String.valueOf(defaults.methods()))),
+                Integer.parseInt(config.getOrDefault("fields", String.valueOf(defaults.fields()))),
+                Integer.parseInt(config.getOrDefault("locals", String.valueOf(defaults.locals()))),
+                Integer.parseInt(config.getOrDefault("statements", String.valueOf(defaults.statements()))),
+                Integer.parseInt(config.getOrDefault("depth", String.valueOf(defaults.depth()))),
+                Double.parseDouble(config.getOrDefault("loopDensity", String.valueOf(defaults.loopDensity()))),
+                Integer.parseInt(config.getOrDefault("expressionSize", String.valueOf(defaults.expressionSize()))));
+
+        int count = Integer.parseInt(config.getOrDefault("count", "1"));
+        long seed = Long.parseLong(config.getOrDefault("seed", "0"));
+
+        /* each program has a seed of its own, so any of them can be generated again by itself */
+        for (int i = 0; i < count; i++) {
+            String className = "Generated" + (seed + i);
+            String program = new ProgramGenerator(options, seed + i).generate(className);
+
+            SpecsIo.write(new File(outputDir, className + ".jmm"), program);
+        }
+    }
+}
@@ -4,62 +4,107 @@ import org.specs.comp.ollir.*;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp2023.ExprCodeResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2023.CompilerStats;
+import pt.up.fe.comp2023.Diagnostics;
 import pt.up.fe.comp2023.MySymbolTable;
-import pt.up.fe.comp2023.OllirGenerator;
-import pt.up.fe.comp2023.optimization.ast.CFVisitor;
-import pt.up.fe.comp2023.optimization.ast.CPVisitor;
+import pt.up.fe.comp2023.OllirBuilder;
+import pt.up.fe.comp2023.OllirPrinter;
+import pt.up.fe.comp2023.optimization.ollir.ConstantPropagation;
+import pt.up.fe.comp2023.optimization.ollir.ControlFlow;
+import pt.up.fe.comp2023.optimization.ollir.CopyPropagation;
+import pt.up.fe.comp2023.optimization.ollir.DeadStoreElimination;
+import pt.up.fe.comp2023.optimization.ollir.MethodLiveness;
+import pt.up.fe.comp2023.optimization.ollir.RegisterAllocator;
 
 import java.sql.SQLOutput;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Optimizer implements JmmOptimization {
     @Override
     public JmmSemanticsResult optimize(JmmSemanticsResult semanticsResult) {
-        Map<String, String> config = semanticsResult.getConfig();
+        /* constants are propagated and folded on the OLLIR code, where the control flow is explicit */
+        return semanticsResult;
+    }
 
-        String toOptimize = config.getOrDefault("optimize", "false");
+    @Override
+    public OllirResult toOllir(JmmSemanticsResult jmmSemanticsResult) {
+        Diagnostics diagnostics = Diagnostics.fromConfig(jmmSemanticsResult.getConfig());
+        diagnostics.info("ollir", () -> "Generating OLLIR code...");
+
+        /* the OLLIR code is printed from the class OllirBuilder builds, the one lowering of the AST */
+        boolean parallel = jmmSemanticsResult.getConfig().getOrDefault("parallelCodegen", "false").equals("true");
+        ClassUnit ollirClass = new OllirBuilder((MySymbolTable) jmmSemanticsResult.getSymbolTable(), parallel).build(jmmSemanticsResult.getRootNode());
+        String ollirText = new OllirPrinter().print(ollirClass);
+        diagnostics.debug("ollir", () -> ollirText);
+        return new OllirResult(ollirText, jmmSemanticsResult.getConfig());
+    }
 
-        /* skip the optimization process */
-        if (toOptimize.equals("false")) return semanticsResult;
+    @Override
+    public OllirResult optimize(OllirResult ollirResult) {
+        this.optimize(ollirResult.getOllirClass(), ollirResult.getConfig(), ollirResult.getReports());
 
-        CPVisitor cpv;
-        CFVisitor cfv;
+        return ollirResult;
+    }
 
-        int iter = 1;
+    /**
+     * Optimizes the class in place, adding to the given reports the problems found.
+     * This is the entry point for classes built directly by OllirBuilder, which never go through an OllirResult.
+     */
+    public ClassUnit optimize(ClassUnit classUnit, Map<String, String> config, List<Report> reports) {
+        boolean toOptimize = config.getOrDefault("optimize", "false").equals("true");
+        int registers = Integer.parseInt(config.getOrDefault("registerAllocation", "-1"));
 
-        do {
-            /* propagate constants */
-            cpv = new CPVisitor();
-            cpv.visit(semanticsResult.getRootNode());
+        /* -1 keeps one register per variable */
+        if (!toOptimize && registers < 0) return classUnit;
 
-            /* fold constants */
-            cfv = new CFVisitor();
-            cfv.visit(semanticsResult.getRootNode());
+        CompilerStats.measure("cfg", classUnit::buildCFGs);
 
-            System.out.println("- Optimization no. " + iter);
-            System.out.println(semanticsResult.getRootNode().toTree());
+        /* each pass over each method is measured apart, as e.g. 'constantPropagation:main' */
+        for (Method method : classUnit.getMethods()) {
+            if (method.isConstructMethod()) continue;
 
-            iter++;
+            String name = ":" + method.getMethodName();
 
-        } while (cpv.transformed());
+            if (toOptimize) {
+                CompilerStats.measure("constantPropagation" + name, () -> {
+                    if (new ConstantPropagation(method).optimize()) ControlFlow.rebuild(method);
+                });
 
-        return semanticsResult;
-    }
+                CompilerStats.measure("copyPropagation" + name, () -> new CopyPropagation().optimize(method));
+                CompilerStats.measure("deadStoreElimination" + name, () -> new DeadStoreElimination().optimize(method));
+            }
 
-    @Override
-    public OllirResult toOllir(JmmSemanticsResult jmmSemanticsResult) {
-        System.out.println("Generating OLLIR code... ");
+            if (registers >= 0) {
+                CompilerStats.measure("registerAllocation" + name, () -> this.allocateRegisters(method, registers, reports));
+            }
+        }
 
-        OllirGenerator ollirGenerator = new OllirGenerator((MySymbolTable) jmmSemanticsResult.getSymbolTable());
-        ExprCodeResult ollirText = ollirGenerator.visit(jmmSemanticsResult.getRootNode(),"");
-        System.out.println(ollirText.value());
-        return new OllirResult(ollirText.value(), jmmSemanticsResult.getConfig());
+        return classUnit;
     }
 
-    @Override
-    public OllirResult optimize(OllirResult ollirResult) {
-        return JmmOptimization.super.optimize(ollirResult);
+    private void allocateRegisters(Method method, int registers, List<Report> reports) {
+        MethodLiveness liveness = new MethodLiveness(method);
+        liveness.compute();
+
+        RegisterAllocator allocator = new RegisterAllocator(liveness);
+
+        /* 0 asks for the fewest registers possible */
+        int available = registers == 0 ? allocator.minimumRegisters() : registers;
+        Map<String, Integer> colours = allocator.colour(available);
+
+        /* the colouring is heuristic, so its count is what this allocator needs, not a bound for every allocation */
+        if (colours == null) {
+            reports.add(new Report(ReportType.ERROR, Stage.OPTIMIZATION, -1,
+                    "Method '" + method.getMethodName() + "' could not be allocated in " + registers
+                            + " registers; the allocator needs " + allocator.minimumRegisters() + "."));
+            return;
+        }
+
+        allocator.apply(colours);
     }
 }
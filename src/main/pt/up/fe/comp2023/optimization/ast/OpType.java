@@ -1,9 +0,0 @@
-package pt.up.fe.comp2023.optimization.ast;
-
-public enum OpType {
-    SIMPLE_INTEGER,
-    BINARY_OP_ARITHMETIC,
-    BINARY_OP_LOGICAL,
-    BINARY_OP_COMPARISON,
-    NOT_EXPR;
-}
@@ -0,0 +1,362 @@
+package pt.up.fe.comp2023.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conditional constant propagation over the CFG of a method.
+ * Basic blocks are only visited once control can reach them, and only through the CFG edges a branch can actually
+ * take; at each join a variable stays a constant only if it has the same value on every path reaching it so far, and
+ * can only go from 'constant' to 'not a constant'. A single worklist pass therefore finds the constants that hold on
+ * every path, including through branches and loops that do not change them, and the branches whose outcome is
+ * already known.
+ * Only the constants are kept, and only on entry to each block: the state inside a block is rebuilt by walking it.
+ * The results are then used to replace the reads of constants by literals, fold operations on literals, turn
+ * constant branches into gotos (or nothing) and remove the instructions that can never run.
+ */
+public class ConstantPropagation {
+    /* lattice value of one variable: a known constant, or varying */
+    private record Value(boolean known, int constant) {
+        static final Value VARYING = new Value(false, 0);
+
+        static Value of(int constant) {
+            return new Value(true, constant);
+        }
+    }
+
+    private final Method method;
+
+    private final List<Instruction> instructions;
+
+    /* the numbers InstructionLiveness gives the variables of the var table, and their names by number */
+    private final Map<String, Integer> variables;
+    private final String[] names;
+
+    private final Map<Instruction, Integer> positions;
+
+    /* the first instruction of each basic block, followed by the number of instructions */
+    private final List<Integer> blockStarts;
+
+    /* the block each instruction belongs to */
+    private final int[] blockOf;
+
+    /* the variables known to be constants on entry to each block and their values, the others vary;
+       null while the block is unreachable */
+    private final List<Map<String, Integer>> entries;
+
+    public ConstantPropagation(Method method) {
+        this.method = method;
+        this.instructions = method.getInstructions();
+        this.variables = new HashMap<>();
+        this.names = new String[method.getVarTable().size()];
+        this.positions = new IdentityHashMap<>();
+
+        for (String name : method.getVarTable().keySet()) {
+            this.names[this.variables.size()] = name;
+            this.variables.put(name, this.variables.size());
+        }
+
+        for (int i = 0; i < this.instructions.size(); i++) this.positions.put(this.instructions.get(i), i);
+
+        this.blockStarts = new ArrayList<>();
+        this.blockOf = new int[this.instructions.size()];
+        this.entries = new ArrayList<>();
+
+        this.findBlocks();
+    }
+
+    public boolean optimize() {
+        if (this.instructions.isEmpty()) return false;
+
+        this.propagate();
+
+        return this.rewrite();
+    }
+
+    /* a block starts at the first instruction, at every labelled one and after every jump or return */
+    private void findBlocks() {
+        boolean[] leaders = new boolean[this.instructions.size() + 1];
+        leaders[0] = true;
+        leaders[this.instructions.size()] = true;
+
+        for (Instruction target : this.method.getLabels().values()) {
+            Integer position = this.positions.get(target);
+            if (position != null) leaders[position] = true;
+        }
+
+        for (int i = 0; i < this.instructions.size(); i++) {
+            switch (this.instructions.get(i).getInstType()) {
+                case GOTO, BRANCH, RETURN -> leaders[i + 1] = true;
+                default -> {
+                }
+            }
+        }
+
+        for (int i = 0; i < this.instructions.size(); i++) {
+            if (leaders[i]) {
+                this.blockStarts.add(i);
+                this.entries.add(null);
+            }
+
+            this.blockOf[i] = this.blockStarts.size() - 1;
+        }
+
+        this.blockStarts.add(this.instructions.size());
+    }
+
+    private void propagate() {
+        /* 'this' and the parameters hold whatever the caller passed, and locals are not assigned yet */
+        this.entries.set(0, new HashMap<>());
+
+        Deque<Integer> worklist = new ArrayDeque<>();
+        boolean[] queued = new boolean[this.entries.size()];
+        worklist.push(0);
+        queued[0] = true;
+
+        while (!worklist.isEmpty()) {
+            int block = worklist.pop();
+            queued[block] = false;
+
+            Map<String, Integer> state = new HashMap<>(this.entries.get(block));
+            int end = this.blockStarts.get(block + 1);
+
+            for (int i = this.blockStarts.get(block); i < end - 1; i++) this.transfer(this.instructions.get(i), state);
+
+            /* the last instruction is the only one that can jump, and its condition is read before it runs */
+            List<Integer> successors = this.successors(end - 1, state);
+            this.transfer(this.instructions.get(end - 1), state);
+
+            for (int succ : successors) {
+                if (this.merge(succ, state) && !queued[succ]) {
+                    worklist.push(succ);
+                    queued[succ] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges a predecessor's constants into the entry of the given block. Returns whether it changed.
+     */
+    private boolean merge(int block, Map<String, Integer> incoming) {
+        Map<String, Integer> entry = this.entries.get(block);
+
+        if (entry == null) {
+            this.entries.set(block, new HashMap<>(incoming));
+            return true;
+        }
+
+        return entry.entrySet().removeIf(constant -> !constant.getValue().equals(incoming.get(constant.getKey())));
+    }
+
+    private void transfer(Instruction instruction, Map<String, Integer> state) {
+        if (!(instruction instanceof AssignInstruction assign)) return;
+        if (!(assign.getDest() instanceof Operand dest) || dest instanceof ArrayOperand) return;
+        if (!this.variables.containsKey(dest.getName())) return;
+
+        Value value = valueOf(dest, this.evaluate(assign.getRhs(), state));
+
+        if (value.known()) state.put(dest.getName(), value.constant());
+        else state.remove(dest.getName());
+    }
+
+    /**
+     * The blocks control can reach from the last instruction of a block. Branches on a known condition only take
+     * one side.
+     */
+    private List<Integer> successors(int index, Map<String, Integer> state) {
+        Instruction instruction = this.instructions.get(index);
+        List<Integer> successors = new ArrayList<>();
+        boolean next = index + 1 < this.instructions.size();
+
+        switch (instruction.getInstType()) {
+            case RETURN -> {
+            }
+            case GOTO -> successors.add(this.blockOfLabel(((GotoInstruction) instruction).getLabel()));
+            case BRANCH -> {
+                CondBranchInstruction branch = (CondBranchInstruction) instruction;
+                Value condition = this.evaluate(branch.getCondition(), state);
+
+                if (!condition.known() || condition.constant() != 0) successors.add(this.blockOfLabel(branch.getLabel()));
+                if ((!condition.known() || condition.constant() == 0) && next) successors.add(this.blockOf[index + 1]);
+            }
+            default -> {
+                if (next) successors.add(this.blockOf[index + 1]);
+            }
+        }
+
+        return successors;
+    }
+
+    private int blockOfLabel(String label) {
+        return this.blockOf[this.positions.get(this.method.getLabels().get(label))];
+    }
+
+    /* a boolean can only be replaced by the literals 0 and 1 */
+    private static Value valueOf(Element dest, Value value) {
+        if (dest.getType().getTypeOfElement() == ElementType.BOOLEAN && value.known()
+                && value.constant() != 0 && value.constant() != 1) return Value.VARYING;
+
+        return value;
+    }
+
+    private Value evaluate(Instruction instruction, Map<String, Integer> state) {
+        return switch (instruction.getInstType()) {
+            case NOPER -> this.evaluate(((SingleOpInstruction) instruction).getSingleOperand(), state);
+            case UNARYOPER -> {
+                UnaryOpInstruction unaryOp = (UnaryOpInstruction) instruction;
+                Value operand = this.evaluate(unaryOp.getOperand(), state);
+
+                if (!operand.known()) yield operand;
+
+                yield switch (unaryOp.getOperation().getOpType()) {
+                    case NOT, NOTB -> Value.of(operand.constant() == 0 ? 1 : 0);
+                    default -> Value.VARYING;
+                };
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) instruction;
+                Value left = this.evaluate(binaryOp.getLeftOperand(), state);
+                Value right = this.evaluate(binaryOp.getRightOperand(), state);
+
+                if (!left.known() || !right.known()) yield Value.VARYING;
+
+                Integer folded = fold(binaryOp.getOperation().getOpType(), left.constant(), right.constant());
+
+                yield folded == null ? Value.VARYING : Value.of(folded);
+            }
+            /* calls, fields and array lengths are not known at compile time */
+            default -> Value.VARYING;
+        };
+    }
+
+    private Value evaluate(Element element, Map<String, Integer> state) {
+        if (element.isLiteral()) return Value.of(Integer.parseInt(((LiteralElement) element).getLiteral()));
+        if (element instanceof ArrayOperand) return Value.VARYING;
+
+        Integer constant = state.get(((Operand) element).getName());
+
+        return constant == null ? Value.VARYING : Value.of(constant);
+    }
+
+    /**
+     * Computes an operation on two constants, with the JVM's int semantics. Booleans are 0 or 1.
+     * Returns null when the result must be left to run time (division by zero).
+     */
+    private static Integer fold(OperationType operation, int left, int right) {
+        return switch (operation) {
+            case ADD -> left + right;
+            case SUB -> left - right;
+            case MUL -> left * right;
+            case DIV -> right == 0 ? null : left / right;
+            case AND, ANDB -> (left != 0 && right != 0) ? 1 : 0;
+            case OR, ORB -> (left != 0 || right != 0) ? 1 : 0;
+            case LTH -> left < right ? 1 : 0;
+            case GTH -> left > right ? 1 : 0;
+            case LTE -> left <= right ? 1 : 0;
+            case GTE -> left >= right ? 1 : 0;
+            case EQ -> left == right ? 1 : 0;
+            case NEQ -> left != right ? 1 : 0;
+            default -> null;
+        };
+    }
+
+    private boolean rewrite() {
+        boolean changed = false;
+
+        /* removed at the end, from the last, so removals do not shift the positions still to visit */
+        boolean[] unreachable = new boolean[this.instructions.size()];
+        boolean[] neverTaken = new boolean[this.instructions.size()];
+
+        for (int block = 0; block < this.entries.size(); block++) {
+            Map<String, Integer> entry = this.entries.get(block);
+            int start = this.blockStarts.get(block);
+            int end = this.blockStarts.get(block + 1);
+
+            if (entry == null) {
+                for (int i = start; i < end; i++) unreachable[i] = true;
+                continue;
+            }
+
+            Map<String, Integer> state = new HashMap<>(entry);
+
+            for (int i = start; i < end; i++) {
+                Instruction instruction = this.instructions.get(i);
+
+                /* only the variables the instruction reads are looked up */
+                InstructionLiveness reads = new InstructionLiveness(instruction, this.variables);
+                reads.computeUseDef(instruction);
+
+                BitSet use = reads.getUse();
+                for (int v = use.nextSetBit(0); v >= 0; v = use.nextSetBit(v + 1)) {
+                    Integer constant = state.get(this.names[v]);
+
+                    if (constant != null) {
+                        changed |= Substitution.substitute(instruction, this.names[v],
+                                new LiteralElement(String.valueOf(constant), new Type(ElementType.INT32)));
+                    }
+                }
+
+                changed |= this.simplify(i, state, neverTaken);
+                this.transfer(this.instructions.get(i), state);
+            }
+        }
+
+        for (int i = this.instructions.size() - 1; i >= 0; i--) {
+            if (unreachable[i]) {
+                ControlFlow.remove(this.method, i);
+                changed = true;
+            }
+            else if (neverTaken[i] && (i + 1 < this.instructions.size() || !ControlFlow.isLabelled(this.method, this.instructions.get(i)))) {
+                ControlFlow.remove(this.method, i);
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Folds an assignment of a known value into a literal copy, and a branch with a known outcome into
+     * a goto, or marks it to be removed when it is never taken.
+     */
+    private boolean simplify(int index, Map<String, Integer> state, boolean[] neverTaken) {
+        Instruction instruction = this.instructions.get(index);
+
+        if (instruction instanceof AssignInstruction assign && !(assign.getRhs() instanceof SingleOpInstruction)) {
+            Value value = valueOf(assign.getDest(), this.evaluate(assign.getRhs(), state));
+
+            if (!value.known()) return false;
+
+            Element literal = new LiteralElement(String.valueOf(value.constant()), assign.getTypeOfAssign());
+            ControlFlow.replace(this.method, index, new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(),
+                    new SingleOpInstruction(literal)));
+
+            return true;
+        }
+
+        if (instruction instanceof CondBranchInstruction branch) {
+            Value condition = this.evaluate(branch.getCondition(), state);
+
+            if (!condition.known()) return false;
+
+            if (condition.constant() != 0) {
+                ControlFlow.replace(this.method, index, new GotoInstruction(branch.getLabel()));
+                return true;
+            }
+
+            neverTaken[index] = true;
+            return false;
+        }
+
+        return false;
+    }
+}
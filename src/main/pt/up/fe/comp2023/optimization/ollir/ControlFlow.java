@@ -0,0 +1,121 @@
+package pt.up.fe.comp2023.optimization.ollir;
+
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.VarScope;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Helpers for passes that change the instruction list of a method.
+ */
+public class ControlFlow {
+    private ControlFlow() {
+    }
+
+    /**
+     * Rebuilds the CFG of a method whose CFG was already built once. Method.buildCFG only adds edges,
+     * so the ones left from the previous build (possibly to removed instructions) are cleared first.
+     */
+    public static void rebuild(Method method) {
+        for (Instruction instruction : method.getInstructions()) {
+            instruction.getSuccessors().clear();
+            instruction.getPredecessors().clear();
+        }
+
+        method.getBeginNode().getSuccessors().clear();
+        method.getEndNode().getPredecessors().clear();
+
+        method.buildCFG();
+    }
+
+    /**
+     * Replaces the instruction at the given position, keeping the labels that pointed to it.
+     */
+    public static void replace(Method method, int index, Instruction replacement) {
+        Instruction old = method.getInstructions().set(index, replacement);
+
+        moveLabels(method, old, replacement);
+    }
+
+    /**
+     * Removes the instruction at the given position. Its labels move to the instruction that follows it,
+     * so the caller must make sure there is one when the removed instruction is labelled.
+     */
+    public static void remove(Method method, int index) {
+        List<Instruction> instructions = method.getInstructions();
+        Instruction old = instructions.remove(index);
+
+        if (index < instructions.size()) moveLabels(method, old, instructions.get(index));
+    }
+
+    public static boolean isLabelled(Method method, Instruction instruction) {
+        return method.getLabels().containsValue(instruction);
+    }
+
+    private static void moveLabels(Method method, Instruction from, Instruction to) {
+        for (Map.Entry<String, Instruction> label : method.getLabels().entrySet()) {
+            if (label.getValue() == from) label.setValue(to);
+        }
+    }
+
+    /**
+     * Drops the var table entries of those of the given variables that no instruction mentions anymore.
+     */
+    public static void removeUnusedVariables(Method method, Set<String> candidates) {
+        if (candidates.isEmpty()) return;
+
+        MethodLiveness liveness = new MethodLiveness(method);
+        liveness.compute();
+
+        Set<String> unused = new HashSet<>(candidates);
+
+        for (Instruction instruction : method.getInstructions()) {
+            BitSet mentioned = (BitSet) liveness.get(instruction).getUse().clone();
+            mentioned.or(liveness.get(instruction).getDef());
+
+            mentioned.stream().forEach(i -> unused.remove(liveness.nameOf(i)));
+        }
+
+        removeVariables(method, unused);
+    }
+
+    /**
+     * Drops the var table entries of the given local variables and renumbers the remaining locals so their
+     * registers stay consecutive after the parameters.
+     */
+    public static void removeVariables(Method method, Set<String> names) {
+        if (names.isEmpty()) return;
+
+        /* parameters keep their registers even when no longer used */
+        for (String name : names) {
+            Descriptor descriptor = method.getVarTable().get(name);
+
+            if (descriptor != null && descriptor.getScope() != VarScope.PARAMETER) method.getVarTable().remove(name);
+        }
+
+        int reserved = (method.isStaticMethod() ? 0 : 1) + method.getParams().size();
+
+        Set<Integer> used = new HashSet<>();
+        method.getVarTable().values().forEach(descriptor -> used.add(descriptor.getVirtualReg()));
+
+        /* map each register still used after the parameters to the next free one, keeping their order */
+        int next = reserved;
+        Map<Integer, Integer> renumbering = new HashMap<>();
+        for (int register : new TreeSet<>(used)) {
+            if (register >= reserved) renumbering.put(register, next++);
+        }
+
+        method.getVarTable().values().forEach(descriptor -> {
+            Integer register = renumbering.get(descriptor.getVirtualReg());
+            if (register != null) descriptor.setVirtualReg(register);
+        });
+    }
+}
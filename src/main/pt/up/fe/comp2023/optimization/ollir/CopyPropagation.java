@@ -0,0 +1,161 @@
+package pt.up.fe.comp2023.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collapses the moves the OLLIR generator leaves between temporaries and variables, inside each basic block:
+ * <ul>
+ *     <li>coalescing: 't := expr; ...; x := t', where t dies at the copy, becomes 'x := expr; ...'</li>
+ *     <li>propagation: after 'x := y' (or 'x := 5'), reads of x are replaced by y until either is written again,
+ *     which usually leaves the move dead for DeadStoreElimination</li>
+ * </ul>
+ * The CFG of the method must have been built beforehand, and is kept up to date.
+ */
+public class CopyPropagation {
+    public boolean optimize(Method method) {
+        Set<String> removed = new HashSet<>();
+        boolean changed = false;
+
+        while (this.coalesce(method, removed)) {
+            ControlFlow.rebuild(method);
+            changed = true;
+        }
+
+        ControlFlow.removeUnusedVariables(method, removed);
+
+        return this.propagate(method) || changed;
+    }
+
+    private boolean coalesce(Method method, Set<String> removed) {
+        MethodLiveness liveness = new MethodLiveness(method);
+        liveness.compute();
+
+        List<Instruction> instructions = method.getInstructions();
+        Set<Instruction> labelled = labelled(method);
+
+        List<Integer> copies = new ArrayList<>();
+        /* windows changed in this round must not overlap, since the liveness sets are only valid outside them */
+        int lastChanged = -1;
+
+        for (int j = 0; j < instructions.size(); j++) {
+            Operand source = copySource(instructions.get(j));
+            if (source == null || labelled.contains(instructions.get(j))) continue;
+
+            Operand dest = (Operand) ((AssignInstruction) instructions.get(j)).getDest();
+            if (source.getName().equals(dest.getName())) continue;
+            if (liveness.get(instructions.get(j)).getOut().get(liveness.numberOf(source.getName()))) continue;
+
+            /* look back, inside the block, for the assignment that produced the copied value */
+            for (int i = j - 1; i > lastChanged; i--) {
+                Instruction instruction = instructions.get(i);
+                InstructionLiveness iliv = liveness.get(instruction);
+
+                if (endsBlock(instruction)) break;
+
+                if (iliv.getDef().get(liveness.numberOf(source.getName()))) {
+                    if (instruction instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)
+                            && sameType(assign.getDest(), dest)) {
+                        rename(instructions, i, j, source.getName(), dest);
+                        removed.add(source.getName());
+                        copies.add(j);
+                        lastChanged = j;
+                    }
+                    break;
+                }
+
+                /* x must not be read or written while it takes over t's value */
+                if (iliv.getUse().get(liveness.numberOf(dest.getName())) || iliv.getDef().get(liveness.numberOf(dest.getName()))) break;
+
+                if (labelled.contains(instruction)) break;
+            }
+        }
+
+        /* the copies are now 'x := x', and none of them carries labels */
+        Collections.reverse(copies);
+        for (int j : copies) instructions.remove(j);
+
+        return !copies.isEmpty();
+    }
+
+    private static void rename(List<Instruction> instructions, int from, int to, String oldName, Operand newOperand) {
+        ((Operand) ((AssignInstruction) instructions.get(from)).getDest()).setName(newOperand.getName());
+
+        for (int k = from + 1; k <= to; k++) {
+            Substitution.substitute(instructions.get(k), oldName, newOperand);
+        }
+    }
+
+    private boolean propagate(Method method) {
+        List<Instruction> instructions = method.getInstructions();
+        Set<Instruction> labelled = labelled(method);
+        boolean changed = false;
+
+        for (int i = 0; i < instructions.size(); i++) {
+            if (!(instructions.get(i) instanceof AssignInstruction assign)) continue;
+            if (!(assign.getDest() instanceof Operand dest) || dest instanceof ArrayOperand) continue;
+            if (!(assign.getRhs() instanceof SingleOpInstruction copy)) continue;
+
+            Element source = copy.getSingleOperand();
+            if (source instanceof ArrayOperand || source.getType().getTypeOfElement() == ElementType.THIS) continue;
+            if (!source.isLiteral() && (((Operand) source).getName().equals(dest.getName()) || !sameType(source, dest))) continue;
+
+            for (int k = i + 1; k < instructions.size(); k++) {
+                Instruction instruction = instructions.get(k);
+
+                if (labelled.contains(instruction)) break;
+
+                changed |= Substitution.substitute(instruction, dest.getName(), source);
+
+                if (defines(instruction, dest.getName())
+                        || (!source.isLiteral() && defines(instruction, ((Operand) source).getName()))
+                        || endsBlock(instruction)) break;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Returns y when the instruction is the plain copy 'x := y' between variables.
+     */
+    private static Operand copySource(Instruction instruction) {
+        if (!(instruction instanceof AssignInstruction assign)) return null;
+        if (!(assign.getDest() instanceof Operand dest) || dest instanceof ArrayOperand) return null;
+        if (!(assign.getRhs() instanceof SingleOpInstruction copy)) return null;
+
+        if (copy.getSingleOperand() instanceof Operand source && !(source instanceof ArrayOperand)
+                && source.getType().getTypeOfElement() != ElementType.THIS && sameType(source, dest)) return source;
+
+        return null;
+    }
+
+    private static boolean sameType(Element a, Element b) {
+        return a.getType().toString().equals(b.getType().toString());
+    }
+
+    private static boolean defines(Instruction instruction, String name) {
+        return instruction instanceof AssignInstruction assign && !(assign.getDest() instanceof ArrayOperand)
+                && assign.getDest() instanceof Operand dest && dest.getName().equals(name);
+    }
+
+    private static boolean endsBlock(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case GOTO, BRANCH, RETURN -> true;
+            default -> false;
+        };
+    }
+
+    private static Set<Instruction> labelled(Method method) {
+        Set<Instruction> labelled = Collections.newSetFromMap(new IdentityHashMap<>());
+        labelled.addAll(method.getLabels().values());
+
+        return labelled;
+    }
+}
@@ -0,0 +1,95 @@
+package pt.up.fe.comp2023.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes assignments to variables that are not live afterwards, such as the temporaries the OLLIR generator
+ * creates for expressions whose value ends up unused. An assignment is only removed when computing its value
+ * has no effect; a dead call result keeps the call and only drops the store.
+ * The CFG of the method must have been built beforehand, and is kept up to date.
+ */
+public class DeadStoreElimination {
+    public boolean optimize(Method method) {
+        Set<String> removed = new HashSet<>();
+
+        /* removing a store can make the values it read dead as well, so repeat until nothing changes */
+        while (this.removeDeadStores(method, removed)) {
+            ControlFlow.rebuild(method);
+        }
+
+        if (removed.isEmpty()) return false;
+
+        /* the variables that are no longer mentioned anywhere also free their registers */
+        ControlFlow.removeUnusedVariables(method, removed);
+
+        return true;
+    }
+
+    private boolean removeDeadStores(Method method, Set<String> removed) {
+        MethodLiveness liveness = new MethodLiveness(method);
+        liveness.compute();
+
+        List<Instruction> instructions = method.getInstructions();
+        boolean changed = false;
+
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            if (!(instructions.get(i) instanceof AssignInstruction assign)) continue;
+            if (!(assign.getDest() instanceof Operand dest) || assign.getDest() instanceof ArrayOperand) continue;
+            if (!method.getVarTable().containsKey(dest.getName())) continue;
+
+            InstructionLiveness iliv = liveness.get(assign);
+            if (iliv.getOut().get(liveness.numberOf(dest.getName()))) continue;
+
+            Instruction rhs = assign.getRhs();
+
+            if (hasNoEffect(rhs)) {
+                /* a labelled instruction at the very end has nowhere to move its labels to */
+                if (i == instructions.size() - 1 && ControlFlow.isLabelled(method, assign)) continue;
+
+                ControlFlow.remove(method, i);
+            }
+            else if (isPlainCall(rhs)) {
+                ControlFlow.replace(method, i, rhs);
+            }
+            else {
+                continue;
+            }
+
+            removed.add(dest.getName());
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Whether the value can be computed and thrown away without any visible difference.
+     * Array accesses and divisions can throw, so they are kept.
+     */
+    private static boolean hasNoEffect(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case NOPER -> !(((SingleOpInstruction) instruction).getSingleOperand() instanceof ArrayOperand);
+            case UNARYOPER -> !(((UnaryOpInstruction) instruction).getOperand() instanceof ArrayOperand);
+            case BINARYOPER -> {
+                BinaryOpInstruction binaryOp = (BinaryOpInstruction) instruction;
+
+                yield binaryOp.getOperation().getOpType() != OperationType.DIV
+                        && !(binaryOp.getLeftOperand() instanceof ArrayOperand)
+                        && !(binaryOp.getRightOperand() instanceof ArrayOperand);
+            }
+            case GETFIELD -> ((GetFieldInstruction) instruction).getFirstOperand().getType().getTypeOfElement() == ElementType.THIS;
+            default -> false;
+        };
+    }
+
+    /* method calls are kept for their side effects, and the backend pops the unused result */
+    private static boolean isPlainCall(Instruction instruction) {
+        return instruction instanceof CallInstruction call
+                && call.getInvocationType() != CallType.NEW
+                && call.getInvocationType() != CallType.arraylength;
+    }
+}
@@ -2,73 +2,170 @@ package pt.up.fe.comp2023.optimization.ollir;
 
 import org.specs.comp.ollir.*;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
+import java.util.BitSet;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Use, def, in and out sets of a single instruction. Variables are numbered by the enclosing MethodLiveness,
+ * and each set is a BitSet indexed by that number.
+ */
 public class InstructionLiveness {
     private final Instruction instruction;
 
-    private Set<String> def;
-    private Set<String> use;
-    private Set<String> in;
-    private Set<String> out;
+    private final Map<String, Integer> variables;
+
+    private final BitSet def;
+    private final BitSet use;
+    private BitSet in;
+    private BitSet out;
 
-    public InstructionLiveness(Instruction instruction) {
+    public InstructionLiveness(Instruction instruction, Map<String, Integer> variables) {
         this.instruction = instruction;
+        this.variables = variables;
 
-        this.def = new HashSet<>();
-        this.use = new HashSet<>();
+        this.def = new BitSet();
+        this.use = new BitSet();
+        this.in = new BitSet();
+        this.out = new BitSet();
     }
 
-    public void showDef() {
-        for (String s : this.def) System.out.println("[-] def element: " + s);
+    public Instruction getInstruction() {
+        return this.instruction;
+    }
 
+    public BitSet getDef() {
+        return this.def;
     }
-    public void showUse() {
-        for (String s : this.use) System.out.println("[+] use element: " + s);
+
+    public BitSet getUse() {
+        return this.use;
     }
 
-    private void binaryOpHandler(BinaryOpInstruction inst) {
-        Element lexpr = inst.getLeftOperand();
-        Element rexpr = inst.getRightOperand();
+    public BitSet getIn() {
+        return this.in;
+    }
+
+    public BitSet getOut() {
+        return this.out;
+    }
+
+    public void setIn(BitSet in) {
+        this.in = in;
+    }
+
+    public void setOut(BitSet out) {
+        this.out = out;
+    }
+
+    public String describeDef(String[] names) {
+        return this.def.stream().mapToObj(i -> "[-] def element: " + names[i] + "\n").collect(Collectors.joining());
+    }
 
-        if (lexpr instanceof Operand lop) this.use.add(lop.getName());
-        if (rexpr instanceof Operand rop) this.use.add(rop.getName());
+    public String describeUse(String[] names) {
+        return this.use.stream().mapToObj(i -> "[+] use element: " + names[i] + "\n").collect(Collectors.joining());
     }
 
-    private void singleOpHandler() {
+    /* names that are not variables of the method (e.g. 'io' in a static call) have no number and are ignored */
+    private void addVariable(BitSet set, String name) {
+        Integer index = this.variables.get(name);
 
+        if (index != null) set.set(index);
     }
 
-    private void unaryOpHandler() {
+    private void addUse(Element element) {
+        if (element instanceof ArrayOperand aop) {
+            for (Element index : aop.getIndexOperands()) this.addUse(index);
+        }
+
+        if (element instanceof Operand op) this.addVariable(this.use, op.getName());
+    }
+
+    private void binaryOpHandler(BinaryOpInstruction inst) {
+        this.addUse(inst.getLeftOperand());
+        this.addUse(inst.getRightOperand());
+    }
+
+    private void singleOpHandler(SingleOpInstruction inst) {
+        this.addUse(inst.getSingleOperand());
+    }
 
+    private void unaryOpHandler(UnaryOpInstruction inst) {
+        this.addUse(inst.getOperand());
     }
 
     private void assignHandler(AssignInstruction inst) {
         Element dest = inst.getDest();
 
-        if (dest instanceof Operand dop) this.def.add(dop.getName());
+        /* storing into an array element reads the array reference and the index */
+        if (dest instanceof ArrayOperand) this.addUse(dest);
+        else if (dest instanceof Operand dop) this.addVariable(this.def, dop.getName());
 
         this.computeUseDef(inst.getRhs());
     }
 
+    private void callHandler(CallInstruction inst) {
+        /* the first argument of 'new' is the class being instantiated (or 'array'), not a variable */
+        if (inst.getInvocationType() != CallType.NEW) this.addUse(inst.getFirstArg());
+
+        if (inst.getListOfOperands() != null) {
+            for (Element arg : inst.getListOfOperands()) this.addUse(arg);
+        }
+    }
+
+    private void returnHandler(ReturnInstruction inst) {
+        if (inst.hasReturnValue()) this.addUse(inst.getOperand());
+    }
+
+    private void branchHandler(CondBranchInstruction inst) {
+        for (Element operand : inst.getOperands()) this.addUse(operand);
+    }
+
+    private void getFieldHandler(GetFieldInstruction inst) {
+        /* the second operand is the field itself, which does not live in a local */
+        this.addUse(inst.getFirstOperand());
+    }
+
+    private void putFieldHandler(PutFieldInstruction inst) {
+        this.addUse(inst.getFirstOperand());
+        this.addUse(inst.getThirdOperand());
+    }
+
     public void computeUseDef(Instruction instruction) {
         if (instruction instanceof BinaryOpInstruction inst) {
             this.binaryOpHandler(inst);
         }
 
         if (instruction instanceof SingleOpInstruction inst) {
-            // do something about single op instructions
+            this.singleOpHandler(inst);
         }
 
         if (instruction instanceof UnaryOpInstruction inst) {
-            // do something about unary op instructions
+            this.unaryOpHandler(inst);
         }
 
         if (instruction instanceof AssignInstruction inst) {
             this.assignHandler(inst);
         }
+
+        if (instruction instanceof CallInstruction inst) {
+            this.callHandler(inst);
+        }
+
+        if (instruction instanceof ReturnInstruction inst) {
+            this.returnHandler(inst);
+        }
+
+        if (instruction instanceof CondBranchInstruction inst) {
+            this.branchHandler(inst);
+        }
+
+        if (instruction instanceof GetFieldInstruction inst) {
+            this.getFieldHandler(inst);
+        }
+
+        if (instruction instanceof PutFieldInstruction inst) {
+            this.putFieldHandler(inst);
+        }
     }
 }
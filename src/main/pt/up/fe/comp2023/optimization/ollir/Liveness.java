@@ -1,45 +1,47 @@
 package pt.up.fe.comp2023.optimization.ollir;
 
 import org.specs.comp.ollir.*;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class Liveness {
-    private OllirResult ollirResult;
+    private ClassUnit classUnit;
 
-    public Liveness(OllirResult ollirResult) {
-        this.ollirResult = ollirResult;
+    public Liveness(ClassUnit classUnit) {
+        this.classUnit = classUnit;
     }
 
-    public void in() {
-        ClassUnit classUnit = this.ollirResult.getOllirClass();
+    /**
+     * Computes the live variables of every instruction, for all methods of the class.
+     */
+    public List<MethodLiveness> in() {
+        this.classUnit.buildCFGs();
 
-        classUnit.buildCFGs();
+        ArrayList<Method> methods = this.classUnit.getMethods();
 
-        ArrayList<Method> methods = classUnit.getMethods();
+        List<MethodLiveness> result = new ArrayList<>();
 
-        System.out.println("number of methods: " + methods.size());
+        for (Method method : methods) {
+            MethodLiveness liveness = new MethodLiveness(method);
+            liveness.compute();
 
-        Method method = classUnit.getMethod(1);
-
-        String name = method.getMethodName();
-        Node node = method.getBeginNode();
-
-        ArrayList<Instruction> instructions = method.getInstructions();
+            result.add(liveness);
+        }
 
-        for (Instruction instruction : instructions) {
-            System.out.println("Instruction contents:");
-            instruction.show();
-            InstructionLiveness iliv = new InstructionLiveness(instruction);
+        return result;
+    }
 
-            iliv.computeUseDef(instruction);
+    /**
+     * The liveness of every method, for debugging.
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder();
 
-            iliv.showUse();
-            iliv.showDef();
-            System.out.println();
+        for (MethodLiveness liveness : this.in()) {
+            text.append(liveness.describe());
         }
 
-        method.show();
+        return text.toString();
     }
 }
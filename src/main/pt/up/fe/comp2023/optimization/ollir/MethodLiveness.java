@@ -3,17 +3,195 @@ package pt.up.fe.comp2023.optimization.ollir;
 
 import org.specs.comp.ollir.Instruction;
 import org.specs.comp.ollir.Method;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
+import org.specs.comp.ollir.Node;
+import org.specs.comp.ollir.NodeType;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Live variables of every instruction of a method, computed by iterating the dataflow equations
+ * in = use U (out - def) and out = U in(succ) over the method's CFG until nothing changes.
+ * The CFG must have been built (Method.buildCFG) beforehand.
+ */
 public class MethodLiveness {
-    private final OllirResult ollirResult;
+    private final Method method;
 
     private ArrayList<Instruction> instructions;
 
-    public MethodLiveness(OllirResult ollirResult, Method method) {
-        this.ollirResult = ollirResult;
+    /* every name of the var table gets a dense number, used as its index in the bit sets */
+    private final Map<String, Integer> variables;
+
+    private final String[] names;
+
+    private final Map<Instruction, InstructionLiveness> liveness;
+
+    /* successors of each instruction, by position in 'order' */
+    private int[][] successors;
+
+    private List<InstructionLiveness> order;
+
+    public MethodLiveness(Method method) {
+        this.method = method;
         this.instructions = method.getInstructions();
+        this.variables = new HashMap<>();
+        this.names = new String[method.getVarTable().size()];
+        this.liveness = new IdentityHashMap<>();
+
+        for (String name : method.getVarTable().keySet()) {
+            this.names[this.variables.size()] = name;
+            this.variables.put(name, this.variables.size());
+        }
+    }
+
+    public void compute() {
+        for (Instruction instruction : this.instructions) {
+            InstructionLiveness iliv = new InstructionLiveness(instruction, this.variables);
+            iliv.computeUseDef(instruction);
+
+            this.liveness.put(instruction, iliv);
+        }
+
+        this.order = this.reversePostorder();
+
+        Map<Instruction, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < this.order.size(); i++) positions.put(this.order.get(i).getInstruction(), i);
+
+        this.successors = new int[this.order.size()][];
+        for (int i = 0; i < this.order.size(); i++) {
+            this.successors[i] = this.order.get(i).getInstruction().getSuccessors().stream()
+                    .filter(succ -> succ.getNodeType() == NodeType.INSTRUCTION)
+                    .mapToInt(succ -> positions.get(succ.toInstruction()))
+                    .toArray();
+        }
+
+        boolean changed;
+
+        do {
+            changed = false;
+
+            /* liveness flows backwards, so walking the reverse postorder from its end visits the successors
+               of most instructions before the instructions themselves */
+            for (int i = this.order.size() - 1; i >= 0; i--) {
+                InstructionLiveness iliv = this.order.get(i);
+
+                BitSet out = new BitSet();
+                for (int succ : this.successors[i]) out.or(this.order.get(succ).getIn());
+
+                BitSet in = (BitSet) out.clone();
+                in.andNot(iliv.getDef());
+                in.or(iliv.getUse());
+
+                if (!in.equals(iliv.getIn())) changed = true;
+
+                iliv.setIn(in);
+                iliv.setOut(out);
+            }
+        } while (changed);
+    }
+
+    /**
+     * Orders the instructions reachable from the start of the method in reverse postorder.
+     * Unreachable ones are still code the backend emits, so they are appended at the end.
+     */
+    private List<InstructionLiveness> reversePostorder() {
+        List<InstructionLiveness> postorder = new ArrayList<>();
+        Map<Instruction, Boolean> visited = new IdentityHashMap<>();
+
+        /* iterative depth-first search, since methods can have thousands of instructions */
+        Deque<Node> nodes = new ArrayDeque<>();
+        Deque<Iterator<Node>> pending = new ArrayDeque<>();
+
+        if (!this.instructions.isEmpty()) {
+            Instruction first = this.instructions.get(0);
+            visited.put(first, true);
+            nodes.push(first);
+            pending.push(first.getSuccessors().iterator());
+        }
+
+        while (!nodes.isEmpty()) {
+            Iterator<Node> succs = pending.peek();
+
+            if (succs.hasNext()) {
+                Node succ = succs.next();
+
+                if (succ.getNodeType() == NodeType.INSTRUCTION && !visited.containsKey(succ.toInstruction())) {
+                    visited.put(succ.toInstruction(), true);
+                    nodes.push(succ);
+                    pending.push(succ.getSuccessors().iterator());
+                }
+            }
+            else {
+                pending.pop();
+                postorder.add(this.liveness.get(nodes.pop().toInstruction()));
+            }
+        }
+
+        Collections.reverse(postorder);
+
+        for (Instruction instruction : this.instructions) {
+            if (!visited.containsKey(instruction)) postorder.add(this.liveness.get(instruction));
+        }
+
+        return postorder;
+    }
+
+    public Method getMethod() {
+        return this.method;
+    }
+
+    public ArrayList<Instruction> getInstructions() {
+        return this.instructions;
+    }
+
+    public InstructionLiveness get(Instruction instruction) {
+        return this.liveness.get(instruction);
+    }
+
+    public int numberOf(String name) {
+        return this.variables.get(name);
+    }
+
+    public String nameOf(int variable) {
+        return this.names[variable];
+    }
+
+    /**
+     * Variables live when the method starts, i.e. read before any assignment on some path.
+     */
+    public BitSet liveOnEntry() {
+        if (this.instructions.isEmpty()) return new BitSet();
+
+        return this.liveness.get(this.instructions.get(0)).getIn();
+    }
+
+    /**
+     * The use, def, in and out sets of every instruction, for debugging.
+     */
+    public String describe() {
+        StringBuilder text = new StringBuilder("Liveness of method " + this.method.getMethodName() + ":\n");
+
+        for (Instruction instruction : this.instructions) {
+            InstructionLiveness iliv = this.liveness.get(instruction);
+
+            text.append(instruction).append("\n");
+            text.append(iliv.describeUse(this.names));
+            text.append(iliv.describeDef(this.names));
+            text.append("[=] in: ").append(this.namesOf(iliv.getIn())).append(", out: ").append(this.namesOf(iliv.getOut())).append("\n\n");
+        }
+
+        return text.toString();
+    }
+
+    private List<String> namesOf(BitSet set) {
+        return set.stream().mapToObj(i -> this.names[i]).toList();
     }
 }
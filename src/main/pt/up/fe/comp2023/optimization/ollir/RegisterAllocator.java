@@ -0,0 +1,201 @@
+package pt.up.fe.comp2023.optimization.ollir;
+
+import org.specs.comp.ollir.Descriptor;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the variables of a method to as few JVM locals as possible by colouring their interference graph.
+ * 'this' and the parameters keep the registers the JVM calling convention gives them, every other variable
+ * gets the lowest register not taken by a variable it interferes with. The colouring is computed once and serves
+ * every number of registers that is asked for.
+ */
+public class RegisterAllocator {
+    private final MethodLiveness liveness;
+
+    private final Method method;
+
+    /* registers fixed by the calling convention: 'this' and the parameters */
+    private final Map<String, Integer> precoloured;
+
+    private final Map<String, Set<String>> interferences;
+
+    /* the colouring with the fewest registers, and how many it takes, found on first use */
+    private Map<String, Integer> allocation;
+    private int registersUsed;
+
+    public RegisterAllocator(MethodLiveness liveness) {
+        this.liveness = liveness;
+        this.method = liveness.getMethod();
+        this.precoloured = new HashMap<>();
+        this.interferences = new LinkedHashMap<>();
+
+        this.buildInterferenceGraph();
+    }
+
+    /**
+     * Number of registers taken by 'this' and the parameters, which no allocation can go below.
+     * Locals are given the registers after these.
+     */
+    public int reservedRegisters() {
+        return (this.method.isStaticMethod() ? 0 : 1) + this.method.getParams().size();
+    }
+
+    private void buildInterferenceGraph() {
+        if (!this.method.isStaticMethod()) this.precoloured.put("this", 0);
+
+        for (Element param : this.method.getParams()) {
+            String name = ((Operand) param).getName();
+            this.precoloured.put(name, this.method.getVarTable().get(name).getVirtualReg());
+        }
+
+        for (Instruction instruction : this.liveness.getInstructions()) {
+            InstructionLiveness iliv = this.liveness.get(instruction);
+
+            BitSet use = iliv.getUse();
+            for (int i = use.nextSetBit(0); i >= 0; i = use.nextSetBit(i + 1)) {
+                this.addVariable(this.liveness.nameOf(i));
+            }
+
+            /* a variable interferes with everything that is still live after it is written */
+            BitSet def = iliv.getDef();
+            BitSet out = iliv.getOut();
+            for (int d = def.nextSetBit(0); d >= 0; d = def.nextSetBit(d + 1)) {
+                String defined = this.liveness.nameOf(d);
+                this.addVariable(defined);
+
+                for (int live = out.nextSetBit(0); live >= 0; live = out.nextSetBit(live + 1)) {
+                    this.addInterference(defined, this.liveness.nameOf(live));
+                }
+            }
+        }
+    }
+
+    private void addVariable(String name) {
+        if (!this.precoloured.containsKey(name)) this.interferences.putIfAbsent(name, new HashSet<>());
+    }
+
+    private void addInterference(String a, String b) {
+        /* locals never share the registers of 'this' and the parameters, so those edges are not needed */
+        if (a.equals(b) || this.precoloured.containsKey(a) || this.precoloured.containsKey(b)) return;
+
+        this.interferences.get(a).add(b);
+        this.interferences.computeIfAbsent(b, k -> new HashSet<>()).add(a);
+    }
+
+    /**
+     * Colours the interference graph with at most 'registers' registers in total, including the reserved ones.
+     * Returns the register of every variable, or null when the graph could not be coloured.
+     */
+    public Map<String, Integer> colour(int registers) {
+        this.simplifyAndSelect();
+
+        if (registers < this.registersUsed) return null;
+
+        return new HashMap<>(this.allocation);
+    }
+
+    /**
+     * The fewest registers this allocator colours the graph with. The colouring is heuristic, so this is not a lower
+     * bound: an optimal colouring may need fewer.
+     */
+    public int minimumRegisters() {
+        this.simplifyAndSelect();
+
+        return this.registersUsed;
+    }
+
+    /* removing the variable with the fewest neighbours first is a simplify order for any number of registers at once
+       (when some variable has fewer neighbours than registers, that one does), so a single simplify and select gives
+       the colouring for all of them; the selection is optimistic, a variable removed with too many neighbours may
+       still find a free register */
+    private void simplifyAndSelect() {
+        if (this.allocation != null) return;
+
+        /* simplify: the variables still in the graph are kept in buckets by their degree, updated as others leave */
+        Map<String, Integer> degrees = new HashMap<>();
+        List<Set<String>> buckets = new ArrayList<>();
+
+        for (Map.Entry<String, Set<String>> entry : this.interferences.entrySet()) {
+            int degree = entry.getValue().size();
+
+            while (buckets.size() <= degree) buckets.add(new LinkedHashSet<>());
+            buckets.get(degree).add(entry.getKey());
+            degrees.put(entry.getKey(), degree);
+        }
+
+        Deque<String> stack = new ArrayDeque<>();
+        int lowest = 0;
+
+        while (!degrees.isEmpty()) {
+            while (buckets.get(lowest).isEmpty()) lowest++;
+
+            Iterator<String> bucket = buckets.get(lowest).iterator();
+            String chosen = bucket.next();
+            bucket.remove();
+            degrees.remove(chosen);
+            stack.push(chosen);
+
+            for (String neighbour : this.interferences.get(chosen)) {
+                Integer degree = degrees.get(neighbour);
+                if (degree == null) continue;
+
+                buckets.get(degree).remove(neighbour);
+                buckets.get(degree - 1).add(neighbour);
+                degrees.put(neighbour, degree - 1);
+            }
+
+            /* the neighbours may now be one below the lowest degree */
+            lowest = Math.max(0, lowest - 1);
+        }
+
+        /* select: give each variable the lowest register none of its neighbours has */
+        Map<String, Integer> allocation = new HashMap<>(this.precoloured);
+        int used = this.reservedRegisters();
+
+        while (!stack.isEmpty()) {
+            String name = stack.pop();
+
+            Set<Integer> taken = new HashSet<>();
+            for (String neighbour : this.interferences.get(name)) {
+                if (allocation.containsKey(neighbour)) taken.add(allocation.get(neighbour));
+            }
+
+            int register = this.reservedRegisters();
+            while (taken.contains(register)) register++;
+
+            allocation.put(name, register);
+            used = Math.max(used, register + 1);
+        }
+
+        this.allocation = allocation;
+        this.registersUsed = used;
+    }
+
+    /**
+     * Rewrites the virtual registers of the method's variables with the given colouring.
+     */
+    public void apply(Map<String, Integer> colours) {
+        for (Map.Entry<String, Descriptor> entry : this.method.getVarTable().entrySet()) {
+            Integer register = colours.get(entry.getKey());
+
+            /* names that are never read or written as locals (e.g. fields) are not loaded from a register */
+            entry.getValue().setVirtualReg(register == null ? 0 : register);
+        }
+    }
+}
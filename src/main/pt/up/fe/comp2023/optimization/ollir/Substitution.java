@@ -0,0 +1,117 @@
+package pt.up.fe.comp2023.optimization.ollir;
+
+import org.specs.comp.ollir.*;
+
+import java.util.List;
+
+/**
+ * Replaces the reads of a variable inside OLLIR instructions, in place.
+ */
+public class Substitution {
+    private Substitution() {
+    }
+
+    /**
+     * Replaces the reads of the given variable in the instruction. A literal can only replace whole operands,
+     * so array names and indexes are left alone in that case.
+     * Returns whether anything was replaced.
+     */
+    public static boolean substitute(Instruction instruction, String name, Element replacement) {
+        boolean[] changed = {false};
+
+        switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+
+                if (assign.getDest() instanceof ArrayOperand dest) changed[0] |= substituteInArray(dest, name, replacement);
+                changed[0] |= substitute(assign.getRhs(), name, replacement);
+            }
+            case NOPER -> {
+                SingleOpInstruction inst = (SingleOpInstruction) instruction;
+                inst.setSingleOperand(substitute(inst.getSingleOperand(), name, replacement, changed));
+            }
+            case UNARYOPER -> {
+                UnaryOpInstruction inst = (UnaryOpInstruction) instruction;
+                inst.setOperand(substitute(inst.getOperand(), name, replacement, changed));
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction inst = (BinaryOpInstruction) instruction;
+                inst.setLeftOperand(substitute(inst.getLeftOperand(), name, replacement, changed));
+                inst.setRightOperand(substitute(inst.getRightOperand(), name, replacement, changed));
+            }
+            case BRANCH -> changed[0] |= substitute(((CondBranchInstruction) instruction).getCondition(), name, replacement);
+            case RETURN -> {
+                ReturnInstruction inst = (ReturnInstruction) instruction;
+                if (inst.hasReturnValue()) inst.setOperand(substitute(inst.getOperand(), name, replacement, changed));
+            }
+            case CALL -> {
+                CallInstruction inst = (CallInstruction) instruction;
+
+                if (inst.getInvocationType() != CallType.NEW) changed[0] |= renameOnly(inst.getFirstArg(), name, replacement);
+
+                List<Element> operands = inst.getListOfOperands();
+                if (operands != null) {
+                    for (int i = 0; i < operands.size(); i++) {
+                        operands.set(i, substitute(operands.get(i), name, replacement, changed));
+                    }
+                }
+            }
+            case GETFIELD -> changed[0] |= renameOnly(((GetFieldInstruction) instruction).getFirstOperand(), name, replacement);
+            case PUTFIELD -> {
+                PutFieldInstruction inst = (PutFieldInstruction) instruction;
+
+                changed[0] |= renameOnly(inst.getFirstOperand(), name, replacement);
+                inst.setThirdOperand(substitute(inst.getThirdOperand(), name, replacement, changed));
+            }
+            default -> {
+            }
+        }
+
+        return changed[0];
+    }
+
+    private static Element substitute(Element element, String name, Element replacement, boolean[] changed) {
+        if (element instanceof ArrayOperand array) {
+            changed[0] |= substituteInArray(array, name, replacement);
+            return element;
+        }
+
+        if (element instanceof Operand operand && operand.getName().equals(name)) {
+            /* only 0 and 1 can be read as booleans */
+            if (replacement.isLiteral() && element.getType().getTypeOfElement() == ElementType.BOOLEAN
+                    && !List.of("0", "1").contains(((LiteralElement) replacement).getLiteral())) return element;
+
+            changed[0] = true;
+
+            /* a fresh element, keeping the type the read had */
+            if (replacement.isLiteral()) return new LiteralElement(((LiteralElement) replacement).getLiteral(), element.getType());
+            Operand fresh = new Operand(((Operand) replacement).getName(), element.getType());
+            if (((Operand) replacement).isParameter()) fresh.setParamId(((Operand) replacement).getParamId());
+
+            return fresh;
+        }
+
+        return element;
+    }
+
+    private static boolean substituteInArray(ArrayOperand array, String name, Element replacement) {
+        if (replacement.isLiteral()) return false;
+
+        boolean changed = renameOnly(array, name, replacement);
+
+        for (Element index : array.getIndexOperands()) {
+            changed |= renameOnly(index, name, replacement);
+        }
+
+        return changed;
+    }
+
+    private static boolean renameOnly(Element element, String name, Element replacement) {
+        if (replacement.isLiteral() || !(element instanceof Operand operand) || !operand.getName().equals(name)) return false;
+
+        operand.setName(((Operand) replacement).getName());
+        if (((Operand) replacement).isParameter()) operand.setParamId(((Operand) replacement).getParamId());
+
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * Compares against 0 with the one-operand branches: 'iconst_0; if_icmplt L' becomes 'iflt L', and when 0 is the
+ * left operand, 'iconst_0; iload_1; if_icmplt L' becomes 'iload_1; ifgt L', with the comparison mirrored.
+ */
+public class CompareWithZero implements PeepholeRule {
+    private static final String COMPARE = "if_icmp";
+
+    @Override
+    public String name() {
+        return "compareWithZero";
+    }
+
+    @Override
+    public boolean apply(PeepholeCode code, int index) {
+        PeepholeInstruction zero = code.get(index);
+        int nextIndex = code.next(index);
+
+        if (nextIndex >= code.size() || !"iconst".equals(zero.opcode()) || zero.constant() != 0) return false;
+
+        PeepholeInstruction next = code.get(nextIndex);
+
+        if (isCompare(next)) {
+            code.set(index, PeepholeInstruction.jump("if" + next.opcode().substring(COMPARE.length()), next.target(), null));
+            code.remove(nextIndex);
+
+            return true;
+        }
+
+        int branchIndex = code.next(nextIndex);
+        if (branchIndex >= code.size() || !isCompare(code.get(branchIndex))) return false;
+
+        /* only a plain push can be swapped with the 0 below it */
+        if (!"iload".equals(next.opcode()) && next.constant() == null) return false;
+
+        PeepholeInstruction branch = code.get(branchIndex);
+        String mirrored = switch (branch.opcode().substring(COMPARE.length())) {
+            case "lt" -> "gt";
+            case "gt" -> "lt";
+            case "le" -> "ge";
+            case "ge" -> "le";
+            default -> branch.opcode().substring(COMPARE.length());
+        };
+
+        code.set(branchIndex, PeepholeInstruction.jump("if" + mirrored, branch.target(), null));
+        code.remove(index);
+
+        return true;
+    }
+
+    private static boolean isCompare(PeepholeInstruction line) {
+        return line.isJump() && line.opcode().startsWith(COMPARE);
+    }
+}
@@ -0,0 +1,60 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * Adds a small constant to a local in place: 'iload x; iconst_1; iadd; istore x' (or the constant first, or 'isub')
+ * becomes 'iinc x 1'. The constant must fit the signed byte of 'iinc'.
+ */
+public class IincFormation implements PeepholeRule {
+    @Override
+    public String name() {
+        return "iincFormation";
+    }
+
+    @Override
+    public boolean apply(PeepholeCode code, int index) {
+        int secondIndex = code.next(index);
+        int operationIndex = secondIndex < code.size() ? code.next(secondIndex) : code.size();
+        int storeIndex = operationIndex < code.size() ? code.next(operationIndex) : code.size();
+
+        if (storeIndex >= code.size()) return false;
+
+        PeepholeInstruction first = code.get(index);
+        PeepholeInstruction second = code.get(secondIndex);
+        String operation = code.get(operationIndex).opcode();
+        PeepholeInstruction store = code.get(storeIndex);
+
+        if (!"iadd".equals(operation) && !"isub".equals(operation)) return false;
+        if (!"istore".equals(store.opcode())) return false;
+
+        Integer constant;
+        PeepholeInstruction load;
+
+        if ("iload".equals(first.opcode())) {
+            load = first;
+            constant = second.constant();
+        }
+        else if (operation.equals("iadd")) {
+            /* the addition commutes, the subtraction does not */
+            load = second;
+            constant = first.constant();
+        }
+        else {
+            return false;
+        }
+
+        if (constant == null || !"iload".equals(load.opcode())) return false;
+
+        int register = load.register();
+        if (register != store.register()) return false;
+
+        int increment = operation.equals("iadd") ? constant : -constant;
+        if (increment < -128 || increment > 127) return false;
+
+        code.set(index, PeepholeInstruction.iinc(register, increment, null));
+        code.remove(secondIndex);
+        code.remove(operationIndex);
+        code.remove(storeIndex);
+
+        return true;
+    }
+}
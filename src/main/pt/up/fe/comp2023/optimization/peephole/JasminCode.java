@@ -0,0 +1,80 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading the lines of Jasmin code into the lines the peephole rules work on, and writing them back.
+ */
+class JasminCode {
+    private JasminCode() {
+    }
+
+    static List<PeepholeInstruction> parse(CharSequence body) {
+        List<PeepholeInstruction> code = new ArrayList<>();
+
+        for (String line : body.toString().split("\n")) {
+            String trimmed = line.trim();
+
+            if (!trimmed.isEmpty()) code.add(read(trimmed));
+        }
+
+        return code;
+    }
+
+    static String render(List<PeepholeInstruction> code) {
+        StringBuilder body = new StringBuilder();
+
+        for (PeepholeInstruction line : code) {
+            if (line.isLabel()) body.append(line.label()).append(":\n");
+            else body.append('\t').append(write(line)).append('\n');
+        }
+
+        return body.toString();
+    }
+
+    private static PeepholeInstruction read(String line) {
+        if (line.endsWith(":")) return PeepholeInstruction.label(line.substring(0, line.length() - 1));
+
+        String[] parts = line.split("\\s+");
+        String opcode = parts[0];
+
+        /* the short forms 'iload_1' and 'iconst_m1' */
+        if (opcode.matches("[ia](load|store)_\\d")) {
+            return PeepholeInstruction.access(opcode.substring(0, opcode.indexOf('_')), opcode.charAt(opcode.length() - 1) - '0', line);
+        }
+        if (opcode.startsWith("iconst_")) {
+            String value = opcode.substring("iconst_".length());
+
+            return PeepholeInstruction.push("iconst", value.equals("m1") ? -1 : Integer.parseInt(value), line);
+        }
+
+        return switch (opcode) {
+            case "iload", "aload", "istore", "astore" -> PeepholeInstruction.access(opcode, Integer.parseInt(parts[1]), line);
+            case "iinc" -> PeepholeInstruction.iinc(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), line);
+            case "bipush", "sipush" -> PeepholeInstruction.push(opcode, Integer.parseInt(parts[1]), line);
+            case "ldc" -> {
+                try {
+                    yield PeepholeInstruction.push(opcode, Integer.parseInt(parts[1]), line);
+                } catch (NumberFormatException e) {
+                    /* 'ldc' of a string */
+                    yield PeepholeInstruction.instruction(opcode, line);
+                }
+            }
+            default -> opcode.equals("goto") || opcode.startsWith("if")
+                    ? PeepholeInstruction.jump(opcode, parts[parts.length - 1], line)
+                    : PeepholeInstruction.instruction(opcode, line);
+        };
+    }
+
+    /* the line as it was read, or as a rule made it */
+    private static String write(PeepholeInstruction line) {
+        if (line.source() instanceof String source) return source;
+
+        if (line.isIinc()) return "iinc " + line.register() + " " + line.increment();
+        if (line.isJump()) return line.opcode() + " " + line.target();
+        if (line.register() >= 0) return line.opcode() + (line.register() < 4 ? "_" : " ") + line.register();
+
+        return line.opcode();
+    }
+}
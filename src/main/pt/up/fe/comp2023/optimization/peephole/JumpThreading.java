@@ -0,0 +1,50 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Jumps straight to where a jump lands: a jump to a 'goto M' jumps to M instead, following chains of gotos, and a
+ * 'goto' to a 'return' is the 'return' itself.
+ */
+public class JumpThreading implements PeepholeRule {
+    @Override
+    public String name() {
+        return "jumpThreading";
+    }
+
+    @Override
+    public boolean apply(PeepholeCode code, int index) {
+        PeepholeInstruction jump = code.get(index);
+        if (!jump.isJump()) return false;
+
+        String label = jump.target();
+        String target = label;
+        Set<String> visited = new HashSet<>(Set.of(label));
+
+        while (true) {
+            int landing = code.instructionAt(target);
+            if (landing == -1) break;
+
+            PeepholeInstruction instruction = code.get(landing);
+
+            if ("return".equals(instruction.opcode()) && jump.opcode().equals("goto")) {
+                code.set(index, PeepholeInstruction.instruction("return", null));
+                return true;
+            }
+
+            if (!"goto".equals(instruction.opcode())) break;
+
+            target = instruction.target();
+
+            /* a loop of gotos that never leaves is kept as it is */
+            if (!visited.add(target)) return false;
+        }
+
+        if (target.equals(label)) return false;
+
+        code.set(index, jump.withTarget(target));
+
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * Removes the moves between the stack and the locals that do nothing:
+ * <ul>
+ *     <li>'iload x; istore x' stores back the value the local already has</li>
+ *     <li>'istore t; iload t', where t is a temporary written and read nowhere else, only passes a value to the next
+ *     instruction, which can take it from the stack; the variables of the program keep their stores</li>
+ * </ul>
+ * Both must be adjacent, with no label in between that other paths could jump to.
+ */
+public class LoadStoreElimination implements PeepholeRule {
+    @Override
+    public String name() {
+        return "loadStoreElimination";
+    }
+
+    @Override
+    public boolean apply(PeepholeCode code, int index) {
+        int next = code.next(index);
+        if (next >= code.size()) return false;
+
+        PeepholeInstruction first = code.get(index);
+        PeepholeInstruction second = code.get(next);
+
+        boolean loadStore = first.isLoad() && second.isStore();
+        boolean storeLoad = first.isStore() && second.isLoad();
+
+        if (!loadStore && !storeLoad) return false;
+
+        /* the same kind of value, 'i' or 'a', and the same register */
+        if (first.opcode().charAt(0) != second.opcode().charAt(0)) return false;
+
+        int register = first.register();
+        if (register != second.register()) return false;
+
+        if (storeLoad && (!code.isTemporary(register) || !code.isUsedOnce(register))) return false;
+
+        code.remove(index);
+        code.remove(next);
+
+        return true;
+    }
+}
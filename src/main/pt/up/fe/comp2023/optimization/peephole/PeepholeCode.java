@@ -0,0 +1,116 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The code of a method body during one pass of the peephole optimizer. The lines a rule removes are left as gaps
+ * until the pass ends, so every other line keeps its index: the index of each label, the number of jumps to it and
+ * the uses of each register are counted once per pass, and every edit keeps them up to date, instead of each rule
+ * searching the whole body for them.
+ */
+public class PeepholeCode {
+    private final List<PeepholeInstruction> lines;
+    private final Set<Integer> temporaries;
+
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final Map<String, Integer> jumps = new HashMap<>();
+    private final Map<Integer, Integer> loads = new HashMap<>();
+    private final Map<Integer, Integer> stores = new HashMap<>();
+    private final Map<Integer, Integer> increments = new HashMap<>();
+
+    /**
+     * @param temporaries the registers that only hold values made by the compiler, which a rule may take out of the
+     *                    locals altogether
+     */
+    public PeepholeCode(List<PeepholeInstruction> lines, Set<Integer> temporaries) {
+        this.lines = new ArrayList<>(lines);
+        this.temporaries = temporaries;
+
+        for (int index = 0; index < this.lines.size(); index++) {
+            this.add(index, this.lines.get(index));
+        }
+    }
+
+    public int size() {
+        return this.lines.size();
+    }
+
+    /* the line at the index, or null if a rule removed it */
+    public PeepholeInstruction get(int index) {
+        return this.lines.get(index);
+    }
+
+    /* the index of the first line after the given one that was not removed, or size() if there is none */
+    public int next(int index) {
+        int next = index + 1;
+        while (next < this.lines.size() && this.lines.get(next) == null) next++;
+
+        return next;
+    }
+
+    public void set(int index, PeepholeInstruction line) {
+        this.count(this.lines.get(index), -1);
+        if (this.lines.get(index) != null && this.lines.get(index).isLabel()) this.labels.remove(this.lines.get(index).label());
+
+        this.lines.set(index, line);
+        this.add(index, line);
+    }
+
+    public void remove(int index) {
+        this.set(index, null);
+    }
+
+    /* the index of the first instruction after the label, or -1 if there is none */
+    public int instructionAt(String label) {
+        Integer index = this.labels.get(label);
+        if (index == null) return -1;
+
+        while (index < this.lines.size() && (this.lines.get(index) == null || this.lines.get(index).isLabel())) index++;
+
+        return index < this.lines.size() ? index : -1;
+    }
+
+    /* whether some jump goes to the label */
+    public boolean isTarget(String label) {
+        return this.jumps.getOrDefault(label, 0) > 0;
+    }
+
+    public boolean isTemporary(int register) {
+        return this.temporaries.contains(register);
+    }
+
+    /* whether the register is stored once, loaded once and never incremented */
+    public boolean isUsedOnce(int register) {
+        return this.stores.getOrDefault(register, 0) == 1 && this.loads.getOrDefault(register, 0) == 1
+                && this.increments.getOrDefault(register, 0) == 0;
+    }
+
+    /* the lines left at the end of the pass */
+    public List<PeepholeInstruction> lines() {
+        List<PeepholeInstruction> lines = new ArrayList<>(this.lines.size());
+
+        for (PeepholeInstruction line : this.lines) {
+            if (line != null) lines.add(line);
+        }
+
+        return lines;
+    }
+
+    private void add(int index, PeepholeInstruction line) {
+        if (line != null && line.isLabel()) this.labels.put(line.label(), index);
+        this.count(line, 1);
+    }
+
+    private void count(PeepholeInstruction line, int delta) {
+        if (line == null) return;
+
+        if (line.isJump()) this.jumps.merge(line.target(), delta, Integer::sum);
+        else if (line.isLoad()) this.loads.merge(line.register(), delta, Integer::sum);
+        else if (line.isStore()) this.stores.merge(line.register(), delta, Integer::sum);
+        else if (line.isIinc()) this.increments.merge(line.register(), delta, Integer::sum);
+    }
+}
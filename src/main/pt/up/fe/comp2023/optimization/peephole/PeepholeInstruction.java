@@ -0,0 +1,78 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * One line of a method body as the peephole rules see it, either a label or an instruction. The body is read into
+ * these lines from Jasmin code or from the instructions recorded by a CodeBuilder, and written back the same way, so
+ * the same rules rewrite the code of both backends.
+ * The source is what the line was read from, and is written back as it was; the lines a rule makes have none, and are
+ * written from their opcode and operands.
+ *
+ * @param label     the name of a label, null for instructions
+ * @param opcode    e.g. 'iload' for both 'iload_1' and 'iload 4', or 'iconst' for 'iconst_m1' to 'iconst_5'
+ * @param register  the register of a load, a store or an 'iinc', -1 for other instructions
+ * @param constant  the value pushed by a constant instruction, null for other instructions
+ * @param increment the value added by an 'iinc'
+ * @param target    the label a jump goes to, null for other instructions
+ */
+public record PeepholeInstruction(String label, String opcode, int register, Integer constant, int increment, String target,
+                                  Object source) {
+    public static PeepholeInstruction label(String name) {
+        return new PeepholeInstruction(name, null, -1, null, 0, null, null);
+    }
+
+    public static PeepholeInstruction instruction(String opcode, Object source) {
+        return new PeepholeInstruction(null, opcode, -1, null, 0, null, source);
+    }
+
+    /* a load or a store */
+    public static PeepholeInstruction access(String opcode, int register, Object source) {
+        return new PeepholeInstruction(null, opcode, register, null, 0, null, source);
+    }
+
+    public static PeepholeInstruction push(String opcode, int constant, Object source) {
+        return new PeepholeInstruction(null, opcode, -1, constant, 0, null, source);
+    }
+
+    public static PeepholeInstruction jump(String opcode, String target, Object source) {
+        return new PeepholeInstruction(null, opcode, -1, null, 0, target, source);
+    }
+
+    public static PeepholeInstruction iinc(int register, int increment, Object source) {
+        return new PeepholeInstruction(null, "iinc", register, null, increment, null, source);
+    }
+
+    public boolean isLabel() {
+        return this.label != null;
+    }
+
+    public boolean isJump() {
+        return this.target != null;
+    }
+
+    public boolean isLoad() {
+        return "iload".equals(this.opcode) || "aload".equals(this.opcode);
+    }
+
+    public boolean isStore() {
+        return "istore".equals(this.opcode) || "astore".equals(this.opcode);
+    }
+
+    public boolean isIinc() {
+        return "iinc".equals(this.opcode);
+    }
+
+    /* whether control never goes from the instruction to the next line */
+    public boolean endsFlow() {
+        if (this.opcode == null) return false;
+
+        return switch (this.opcode) {
+            case "goto", "return", "ireturn", "areturn", "athrow" -> true;
+            default -> false;
+        };
+    }
+
+    /* the same jump to another label, made by a rule */
+    public PeepholeInstruction withTarget(String label) {
+        return jump(this.opcode, label, null);
+    }
+}
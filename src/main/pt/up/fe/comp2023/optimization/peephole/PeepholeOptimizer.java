@@ -0,0 +1,97 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+import org.specs.comp.ollir.Method;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Rewrites the code of a method body with a set of peephole rules, which the backends emit one instruction at a time
+ * without looking at its neighbours. The same rules rewrite the Jasmin code and the instructions of a CodeBuilder,
+ * so the class files that are run get the same code the Jasmin code shows.
+ * Every rule is tried at every line, and the passes repeat until no rule fires, since one rewrite often makes another
+ * possible (e.g. removing a temporary makes room for an 'iinc'). Each pass takes time linear in the size of the body.
+ * How many times each rule fired is added up over every body optimized, which may be done concurrently.
+ */
+public class PeepholeOptimizer {
+    private final List<PeepholeRule> rules;
+
+    private final Map<String, Integer> fireCounts = new ConcurrentHashMap<>();
+
+    public PeepholeOptimizer() {
+        this(defaultRules());
+    }
+
+    public PeepholeOptimizer(List<PeepholeRule> rules) {
+        this.rules = rules;
+    }
+
+    public static List<PeepholeRule> defaultRules() {
+        return List.of(
+                new LoadStoreElimination(),
+                new IincFormation(),
+                new CompareWithZero(),
+                new JumpThreading(),
+                new RedundantGotoElimination(),
+                new UnreachableCodeElimination()
+        );
+    }
+
+    /* the registers only holding the temporaries of the OLLIR code, 't0', 't1', ..., and no variable of the program */
+    public static Set<Integer> temporaryRegisters(Method method) {
+        Set<Integer> temporaries = new HashSet<>();
+        Set<Integer> variables = new HashSet<>();
+
+        method.getVarTable().forEach((name, descriptor) ->
+                (name.matches("t\\d+") ? temporaries : variables).add(descriptor.getVirtualReg()));
+        temporaries.removeAll(variables);
+
+        return temporaries;
+    }
+
+    /* the Jasmin code of a method body, as emitted between its limits and '.end method' */
+    public String optimize(CharSequence body, Set<Integer> temporaries) {
+        return JasminCode.render(this.optimize(JasminCode.parse(body), temporaries));
+    }
+
+    public List<PeepholeInstruction> optimize(List<PeepholeInstruction> body, Set<Integer> temporaries) {
+        List<PeepholeInstruction> lines = body;
+        boolean changed = true;
+
+        while (changed) {
+            changed = false;
+            PeepholeCode code = new PeepholeCode(lines, temporaries);
+
+            for (int index = 0; index < code.size(); index++) {
+                for (PeepholeRule rule : this.rules) {
+                    /* the line was removed by the rule before */
+                    if (code.get(index) == null) break;
+
+                    if (rule.apply(code, index)) {
+                        this.fireCounts.merge(rule.name(), 1, Integer::sum);
+                        changed = true;
+                    }
+                }
+            }
+
+            lines = code.lines();
+        }
+
+        return lines;
+    }
+
+    public int getFireCount(String rule) {
+        return this.fireCounts.getOrDefault(rule, 0);
+    }
+
+    /* e.g. 'loadStoreElimination=3, iincFormation=1, ...', in the order of the rules */
+    public String describe() {
+        return this.rules.stream()
+                .map(rule -> rule.name() + "=" + this.getFireCount(rule.name()))
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,18 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * One rewrite of the peephole optimizer. The code of a method body is a list of lines, each either an instruction
+ * ('iload_1', 'goto while_cond_0') or a label ('while_cond_0:'), read from the Jasmin code or from a CodeBuilder.
+ */
+public interface PeepholeRule {
+    /* the name the fire count of the rule is reported under */
+    String name();
+
+    /**
+     * Rewrites the code at the given line, if the rule matches there, returning whether it did. A rule may change
+     * lines anywhere in the code, but only through the code, and must leave it smaller or closer to a fixed point, so
+     * that applying the rules until none fires terminates. The lines next to each other are the ones that were not
+     * removed, as found by PeepholeCode.next.
+     */
+    boolean apply(PeepholeCode code, int index);
+}
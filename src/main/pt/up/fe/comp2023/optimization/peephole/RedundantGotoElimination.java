@@ -0,0 +1,26 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * Removes a 'goto' to a label that comes right after it, where control would go anyway.
+ */
+public class RedundantGotoElimination implements PeepholeRule {
+    @Override
+    public String name() {
+        return "redundantGotoElimination";
+    }
+
+    @Override
+    public boolean apply(PeepholeCode code, int index) {
+        PeepholeInstruction jump = code.get(index);
+        if (!"goto".equals(jump.opcode())) return false;
+
+        for (int next = code.next(index); next < code.size() && code.get(next).isLabel(); next = code.next(next)) {
+            if (code.get(next).label().equals(jump.target())) {
+                code.remove(index);
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,31 @@
+package pt.up.fe.comp2023.optimization.peephole;
+
+/**
+ * Removes the code after a 'goto' or a return up to the next label some jump goes to, since control cannot reach it.
+ * The labels no jump goes to are removed along with it, and so are the jumps in it, which may leave more labels
+ * without jumps further on.
+ */
+public class UnreachableCodeElimination implements PeepholeRule {
+    @Override
+    public String name() {
+        return "unreachableCodeElimination";
+    }
+
+    @Override
+    public boolean apply(PeepholeCode code, int index) {
+        if (!code.get(index).endsFlow()) return false;
+
+        boolean removed = false;
+
+        for (int next = code.next(index); next < code.size(); next = code.next(next)) {
+            PeepholeInstruction line = code.get(next);
+
+            if (line.isLabel() && code.isTarget(line.label())) break;
+
+            code.remove(next);
+            removed = true;
+        }
+
+        return removed;
+    }
+}
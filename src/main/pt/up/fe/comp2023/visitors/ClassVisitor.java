@@ -9,6 +9,7 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2023.MySymbolTable;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class ClassVisitor extends AJmmVisitor<String, String> {
     private JmmNode node;
@@ -16,8 +17,10 @@ public class ClassVisitor extends AJmmVisitor<String, String> {
     private String extension;
     private MySymbolTable symbolTable;
     private ArrayList<Report> reports;
+    private MethodVisitor methodVisitor;
+    private MainVisitor mainVisitor;
 
-    public ClassVisitor(JmmNode node, MySymbolTable symbolTable, ArrayList<Report> reports) {
+    public ClassVisitor(JmmNode node, MySymbolTable symbolTable, ArrayList<Report> reports, boolean parallel) {
         this.node = node;
         this.name = node.get("name");
 
@@ -31,10 +34,46 @@ public class ClassVisitor extends AJmmVisitor<String, String> {
         this.symbolTable = symbolTable;
         this.reports = reports;
 
-        /* visit its children */
+        /* the same visitors analyse every method, each with its own context */
+        this.methodVisitor = new MethodVisitor(symbolTable);
+        this.mainVisitor = new MainVisitor(symbolTable);
+
+        /* visit its children, leaving the methods for last */
+        List<JmmNode> methods = new ArrayList<>();
+
         for (JmmNode child : this.node.getChildren()) {
-            this.visit(child, "");
+            if (child.getKind().equals("Method") || child.getKind().equals("Main")) {
+                methods.add(child);
+            }
+            else {
+                this.visit(child, "");
+            }
         }
+
+        /* each method reports to a buffer of its own, merged in the order of the methods */
+        List<List<Report>> methodReports = parallel && methods.size() > 1
+                ? methods.parallelStream().map(this::analyseMethod).toList()
+                : methods.stream().map(this::analyseMethod).toList();
+
+        methodReports.forEach(this.reports::addAll);
+    }
+
+    /**
+     * Type checks a method, returning its reports. The methods only read the symbol table and their own subtree,
+     * so they may be analysed concurrently.
+     */
+    private List<Report> analyseMethod(JmmNode node) {
+        List<Report> reports = new ArrayList<>();
+        MethodContext context = new MethodContext(node.get("name"), this.extension, node.hasAttribute("isStatic"), reports);
+
+        if (node.getKind().equals("Main")) {
+            this.mainVisitor.visit(node, context);
+        }
+        else {
+            this.methodVisitor.visit(node, context);
+        }
+
+        return reports;
     }
 
     private void addReport() {
@@ -53,20 +92,6 @@ public class ClassVisitor extends AJmmVisitor<String, String> {
     protected void buildVisitor() {
         addVisit("ClassDeclaration", this::dealWithClassDeclaration);
         addVisit("ClassField", this::dealWithClassField);
-        addVisit("Method", this::dealWithMethod);
-        addVisit("Main", this::dealWithMain);
-    }
-
-    private String dealWithMain(JmmNode node, String s) {
-        MainVisitor visitor = new MainVisitor(node, this.symbolTable, this.reports, this.extension);
-
-        return visitor.visit(node);
-    }
-
-    private String dealWithMethod(JmmNode node, String s) {
-        MethodVisitor visitor = new MethodVisitor(node, this.symbolTable, this.reports, this.extension);
-
-        return visitor.visit(node, "");
     }
 
     private String dealWithClassField(JmmNode node, String s) {
@@ -4,30 +4,18 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp.jmm.report.ReportType;
-import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2023.MySymbolTable;
 import pt.up.fe.comp2023.visitors.handlers.IdentifierHandler;
 import pt.up.fe.comp2023.visitors.utils.MyOperation;
 import pt.up.fe.comp2023.visitors.utils.MyType;
 
-import java.util.ArrayList;
+public class ExpressionVisitor extends AJmmVisitor<MethodContext, MyType> {
+    private final MySymbolTable symbolTable;
+    private final IdentifierHandler identifierHandler;
 
-public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
-    private String method;
-
-    private String extension;
-    private boolean isStatic;
-    private MySymbolTable symbolTable;
-    private ArrayList<Report> reports;
-
-    public ExpressionVisitor(String method, String extension, boolean isStatic, MySymbolTable symbolTable, ArrayList<Report> reports) {
-        this.method = method;
-        this.extension = extension;
-        this.isStatic = isStatic;
+    public ExpressionVisitor(MySymbolTable symbolTable) {
         this.symbolTable = symbolTable;
-        this.reports = reports;
+        this.identifierHandler = new IdentifierHandler(symbolTable);
     }
 
     @Override
@@ -48,37 +36,19 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         addVisit("Condition", this::dealWithCondition);
     }
 
-    private void addReport(String line, String col, String message) {
-        this.reports.add(new Report(
-                ReportType.ERROR, Stage.SEMANTIC, Integer.parseInt(line), Integer.parseInt(col), message
-        ));
-    }
-
-    private String parseImport(String imp) {
-        String[] splitImport = imp.split("\\.");
-
-        return splitImport[splitImport.length - 1];
-    }
-
     private boolean isImport(String id) {
-        for (String imp : this.symbolTable.getImports()) {
-            if (id.equals(this.parseImport(imp))) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.symbolTable.hasImport(id);
     }
-    private boolean isClassExtension(String id) {
-        return id.equals(this.extension);
+    private boolean isClassExtension(String id, MethodContext context) {
+        return id.equals(context.extension());
     }
 
 
-    private MyType dealWithCondition(JmmNode node, String s) {
-        MyType conditionType = visit(node.getJmmChild(0), "");
+    private MyType dealWithCondition(JmmNode node, MethodContext context) {
+        MyType conditionType = visit(node.getJmmChild(0), context);
 
         if (conditionType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the condition is NULL! (method: dealWithCondition)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the condition is NULL! (method: dealWithCondition)");
 
             return null;
         }
@@ -86,12 +56,12 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         String typename = conditionType.getName();
 
         if (conditionType.isMethod())
-            if (this.isImport(typename) || this.isClassExtension(typename))
+            if (this.isImport(typename) || this.isClassExtension(typename, context))
                 return conditionType;
 
         /* the condition is not of type 'boolean', must report an error */
         if (!conditionType.isBoolean()) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "conditionType is not boolean!");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "conditionType is not boolean!");
 
             return null;
         }
@@ -99,10 +69,10 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return conditionType;
     }
 
-    private MyType dealWithObject(JmmNode node, String s) {
+    private MyType dealWithObject(JmmNode node, MethodContext context) {
         /* the 'this' keyword cannot be used on a static method, report an error */
-        if (this.isStatic) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "'this' was called in a static method!");
+        if (context.isStatic()) {
+            context.addReport(node.get("lineStart"), node.get("colStart"), "'this' was called in a static method!");
 
             return null;
         }
@@ -111,13 +81,11 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return new MyType("this", "object", false);
     }
 
-    private MyType dealWithIdentifier(JmmNode node, String s) {
-        IdentifierHandler handler = new IdentifierHandler(node.get("value"), this.method, this.extension, this.isStatic, this.symbolTable);
-
-        MyType identifierType = handler.getType();
+    private MyType dealWithIdentifier(JmmNode node, MethodContext context) {
+        MyType identifierType = this.identifierHandler.getType(node, node.get("value"), context);
 
         if (identifierType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the identifier is NULL! (method: dealWithIdentifier)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the identifier is NULL! (method: dealWithIdentifier)");
 
             return null;
         }
@@ -125,38 +93,38 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return identifierType;
     }
 
-    private MyType dealWithBoolean(JmmNode node, String s) {
+    private MyType dealWithBoolean(JmmNode node, MethodContext context) {
         return new MyType("boolean", "primitive", false);
     }
 
-    private MyType dealWithInteger(JmmNode node, String s) {
+    private MyType dealWithInteger(JmmNode node, MethodContext context) {
         return new MyType("int", "primitive",false);
     }
 
-    private MyType dealWithBinaryOp(JmmNode node, String s) {
+    private MyType dealWithBinaryOp(JmmNode node, MethodContext context) {
         JmmNode leftOperand = node.getJmmChild(0);
         JmmNode rightOperand = node.getJmmChild(1);
 
         MyOperation operation = new MyOperation(node.get("op"));
 
-        MyType leftOperandType = visit(leftOperand, "");
-        MyType rightOperandType = visit(rightOperand, "");
+        MyType leftOperandType = visit(leftOperand, context);
+        MyType rightOperandType = visit(rightOperand, context);
 
         if (leftOperandType == null || rightOperandType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is NULL! (method: dealWithBinaryOp)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is NULL! (method: dealWithBinaryOp)");
 
             return null;
         }
 
         if (leftOperandType.isObject() || rightOperandType.isObject()) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The origin of the left operand or right operand is OBJECT! (method: dealWithBinaryOp)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The origin of the left operand or right operand is OBJECT! (method: dealWithBinaryOp)");
 
             return null;
         }
 
         if (operation.isArithmetic()) {
             if (!(leftOperandType.isInt() && rightOperandType.isInt())) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is not INT, in ARITHMETIC OPERATION! (method: dealWithBinaryOp)");
+                context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is not INT, in ARITHMETIC OPERATION! (method: dealWithBinaryOp)");
             }
 
             return new MyType("int", "primitive", false);
@@ -164,7 +132,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
 
         if (operation.isLogical()) {
             if (!(leftOperandType.isBoolean() && rightOperandType.isBoolean())) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is not BOOLEAN, in LOGICAL OPERATION! (method: dealWithBinaryOp)");
+                context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is not BOOLEAN, in LOGICAL OPERATION! (method: dealWithBinaryOp)");
 
                 return null;
             }
@@ -174,7 +142,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
 
         if (operation.isComparison()) {
             if (!(leftOperandType.isInt() && rightOperandType.isInt())) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is not INT, in COMPARISON OPERATION! (method: dealWithBinaryOp)");
+                context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the left operand or right operand is not INT, in COMPARISON OPERATION! (method: dealWithBinaryOp)");
 
                 return null;
             }
@@ -185,11 +153,11 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return null;
     }
 
-    private MyType dealWithParenthesis(JmmNode node, String s) {
-        return visit(node.getJmmChild(0), "");
+    private MyType dealWithParenthesis(JmmNode node, MethodContext context) {
+        return visit(node.getJmmChild(0), context);
     }
 
-    private MyType dealWithCustomInstantiation(JmmNode node, String s) {
+    private MyType dealWithCustomInstantiation(JmmNode node, MethodContext context) {
         String typename;
         if(node.getChildren().get(0).hasAttribute("keyword")){
             typename = node.getChildren().get(0).get("keyword");
@@ -201,8 +169,8 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
             return new MyType(typename, "object", typename.contains("[]"));
         }
 
-        if (!(this.isImport(typename) || this.isClassExtension(typename))) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "Trying to instantiate an object with a type that wasn't imported! (method: dealWithCustomInstantiation)");
+        if (!(this.isImport(typename) || this.isClassExtension(typename, context))) {
+            context.addReport(node.get("lineStart"), node.get("colStart"), "Trying to instantiate an object with a type that wasn't imported! (method: dealWithCustomInstantiation)");
 
             return null;
         }
@@ -210,21 +178,21 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return new MyType(typename, "object", typename.contains("[]"));
     }
 
-    private MyType dealWithArrayInstantiation(JmmNode node, String s) {
+    private MyType dealWithArrayInstantiation(JmmNode node, MethodContext context) {
         JmmNode arrayTypeNode = node.getJmmChild(0);
         JmmNode arrayLengthNode = node.getJmmChild(1);
 
-        MyType arrayLengthType = visit(arrayLengthNode, "");
+        MyType arrayLengthType = visit(arrayLengthNode, context);
 
         if (arrayLengthType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the array length is NULL! (method: dealWithArrayInstantiation)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the array length is NULL! (method: dealWithArrayInstantiation)");
 
             return null;
         }
 
         /* the expression used for the array length is not of type 'int', must report an error */
         if (!arrayLengthType.isInt()) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the array length is not INT! (method: dealWithArrayInstantiation)");;
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the array length is not INT! (method: dealWithArrayInstantiation)");;
 
             return null;
         }
@@ -235,19 +203,19 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
             return new MyType(keyword, "primitive", true);
         }
         else {
-            return visit(arrayTypeNode, "");
+            return visit(arrayTypeNode, context);
         }
     }
 
-    private MyType dealWithMethodInvocation(JmmNode node, String s) {
+    private MyType dealWithMethodInvocation(JmmNode node, MethodContext context) {
         String name = node.get("method");
 
         JmmNode invoker = node.getJmmChild(0);
 
-        MyType invokerType = visit(invoker, "");
+        MyType invokerType = visit(invoker, context);
 
         if (invokerType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the invoker is NULL! (method: dealWithMethodInvocation)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the invoker is NULL! (method: dealWithMethodInvocation)");
 
             return null;
         }
@@ -257,11 +225,11 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
 
             /* first, check if the method exists */
             if (!this.symbolTable.getMethods().contains(name)) {
-                if (this.extension != null) {
-                    return new MyType(this.extension, "method", false);
+                if (context.extension() != null) {
+                    return new MyType(context.extension(), "method", false);
                 }
                 else {
-                    this.addReport(node.get("lineStart"), node.get("colStart"), "The invoked method doesn't exist in the declared class! (method: dealWithMethodInvocation)");
+                    context.addReport(node.get("lineStart"), node.get("colStart"), "The invoked method doesn't exist in the declared class! (method: dealWithMethodInvocation)");
 
                     return null;
                 }
@@ -273,7 +241,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
 
             /* the number of arguments and invoked arguments are different, must add a report */
             if (numArgs != numInvokedArgs) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "The number of invoked arguments and the method arguments is different! (method: dealWithMethodInvocation)");
+                context.addReport(node.get("lineStart"), node.get("colStart"), "The number of invoked arguments and the method arguments is different! (method: dealWithMethodInvocation)");
 
                 return null;
             }
@@ -283,7 +251,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
             /* check if the parameters are of the same type */
             for (Symbol arg : this.symbolTable.getParameters(name)) {
                 Type argType = arg.getType();
-                MyType invokedArgType = visit(node.getJmmChild(idx), "");
+                MyType invokedArgType = visit(node.getJmmChild(idx), context);
 
                 String argTypeName = argType.getName();
                 boolean argTypeIsArray = argType.isArray();
@@ -296,14 +264,14 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
                 boolean isPrimitive = typename.equals("int") || typename.equals("boolean") || typename.equals("String");
 
                 if (invokedArgTypeName.equals("this") || invokedArgTypeName.equals(this.symbolTable.getClassName())) {
-                    if (argTypeName.equals(this.extension) || argTypeName.equals(this.symbolTable.getClassName())) {
+                    if (argTypeName.equals(context.extension()) || argTypeName.equals(this.symbolTable.getClassName())) {
                         return new MyType(returnType.getName(), isPrimitive ? "primitive" : "object", returnType.isArray());
                     }
                 }
 
                 /* arguments of different types, must add a report */
                 if (!(argTypeName.equals(invokedArgTypeName) && argTypeIsArray == invokedArgTypeIsArray)) {
-                    this.addReport(node.get("lineStart"), node.get("colStart"), "The invoked arguments have different types than the actual arguments! (method: dealWithMethodInvocation)");
+                    context.addReport(node.get("lineStart"), node.get("colStart"), "The invoked arguments have different types than the actual arguments! (method: dealWithMethodInvocation)");
 
                     return null;
                 }
@@ -322,35 +290,35 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         /* dealing with a method of an imported/extended class */
         else {
             if (!invoker.hasAttribute("value")) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the handler is NULL! (method: dealWithMethodInvocation)");
+                context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the handler is NULL! (method: dealWithMethodInvocation)");
 
                 return null;
             }
-            IdentifierHandler handler = new IdentifierHandler(invoker.get("value"), this.method, this.extension, this.isStatic, this.symbolTable);
+            MyType handlerType = this.identifierHandler.getType(invoker, invoker.get("value"), context);
 
-            if (handler.getType() == null) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the handler is NULL! (method: dealWithMethodInvocation)");
+            if (handlerType == null) {
+                context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the handler is NULL! (method: dealWithMethodInvocation)");
 
                 return null;
             }
 
-            return new MyType(handler.getType().getName(), "method", handler.getType().isArray());
+            return new MyType(handlerType.getName(), "method", handlerType.isArray());
         }
     }
 
-    private MyType dealWithArrayLength(JmmNode node, String s) {
+    private MyType dealWithArrayLength(JmmNode node, MethodContext context) {
         JmmNode accessedExpr = node.getJmmChild(0);
 
-        MyType accessedType = visit(accessedExpr, "");
+        MyType accessedType = visit(accessedExpr, context);
 
         if (accessedType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed expression is NULL! (method: dealWithArrayLength)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed expression is NULL! (method: dealWithArrayLength)");
 
             return null;
         }
 
         if (!accessedType.isArray()) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed expression is not ARRAY! (method: dealWithArrayLength)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed expression is not ARRAY! (method: dealWithArrayLength)");
 
             return null;
         }
@@ -358,21 +326,21 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return new MyType("int", "primitive",false);
     }
 
-    private MyType dealWithArrayAccess(JmmNode node, String s) {
+    private MyType dealWithArrayAccess(JmmNode node, MethodContext context) {
         JmmNode accessedExpr = node.getJmmChild(0);
         JmmNode indexExpr = node.getJmmChild(1);
 
-        MyType accessedType = visit(accessedExpr, "");
-        MyType indexType = visit(indexExpr, "");
+        MyType accessedType = visit(accessedExpr, context);
+        MyType indexType = visit(indexExpr, context);
 
         if (accessedType == null || indexType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed or index expression is NULL! (dealWithArrayAccess)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed or index expression is NULL! (dealWithArrayAccess)");
 
             return null;
         }
 
         if (!(accessedType.isArray() && indexType.isInt())) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed expression isn't ARRAY or the the type of index expression is not INT! (dealWithArrayAccess)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the accessed expression isn't ARRAY or the the type of index expression is not INT! (dealWithArrayAccess)");
 
             return null;
         }
@@ -380,17 +348,17 @@ public class ExpressionVisitor extends AJmmVisitor<String, MyType> {
         return new MyType("int", "primitive",false);
     }
 
-    private MyType dealWithNegation(JmmNode node, String s) {
-        MyType returnType = visit(node.getJmmChild(0), "");
+    private MyType dealWithNegation(JmmNode node, MethodContext context) {
+        MyType returnType = visit(node.getJmmChild(0), context);
 
         if (returnType == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the return expression is NULL! (method: dealWithNegation)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the return expression is NULL! (method: dealWithNegation)");
 
             return null;
         }
 
         if (!returnType.isBoolean()) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The type of the return expression is not BOOLEAN! (method: dealWithNegation)");
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The type of the return expression is not BOOLEAN! (method: dealWithNegation)");
 
             return null;
         }
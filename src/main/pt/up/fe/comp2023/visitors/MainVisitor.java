@@ -8,30 +8,17 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2023.MySymbolTable;
 import pt.up.fe.comp2023.visitors.handlers.IdentifierHandler;
 
-import java.util.ArrayList;
+public class MainVisitor extends AJmmVisitor<MethodContext, String> {
+    private final StatementVisitor statementVisitor;
+    private final IdentifierHandler identifierHandler;
 
-public class MainVisitor extends AJmmVisitor<String, String> {
-    private JmmNode node;
-    private String modifier;
-    private String name;
-    private String extension;
-    private String returnType;
-    private boolean isStatic;
-    private MySymbolTable symbolTable;
-    private ArrayList<Report> reports;
-
-    public MainVisitor(JmmNode node, MySymbolTable symbolTable, ArrayList<Report> reports, String extension) {
-        this.modifier = node.get("modifier");
-        this.name = node.get("name");
-        this.isStatic = node.hasAttribute("isStatic");
-        this.extension = extension;
-
-        this.symbolTable = symbolTable;
-        this.reports = reports;
+    public MainVisitor(MySymbolTable symbolTable) {
+        this.statementVisitor = new StatementVisitor(symbolTable);
+        this.identifierHandler = new IdentifierHandler(symbolTable);
     }
 
-    private void addReport() {
-        this.reports.add(new Report(
+    private void addReport(MethodContext context) {
+        context.reports().add(new Report(
                 ReportType.ERROR, Stage.SEMANTIC, -1, -1, ""
         ));
 
@@ -47,43 +34,35 @@ public class MainVisitor extends AJmmVisitor<String, String> {
         addVisit("ReturnStatement", this::dealWithReturnStatement);
     }
 
-    private String dealWithMethod(JmmNode node, String s) {
+    private String dealWithMethod(JmmNode node, MethodContext context) {
         for (JmmNode child : node.getChildren()) {
-            visit(child, "");
+            visit(child, context);
         }
 
         return null;
     }
 
-    private String dealWithReturnStatement(JmmNode node, String s) {
-        StatementVisitor visitor = new StatementVisitor(this.name, this.extension, this.isStatic, this.symbolTable, this.reports);
-
-        return visitor.visit(node, "");
+    private String dealWithReturnStatement(JmmNode node, MethodContext context) {
+        return this.statementVisitor.visit(node, context);
     }
 
-    private String dealWithMethodStatement(JmmNode node, String s) {
-        StatementVisitor visitor = new StatementVisitor(this.name, this.extension, this.isStatic, this.symbolTable, this.reports);
-
-        return visitor.visit(node, "");
+    private String dealWithMethodStatement(JmmNode node, MethodContext context) {
+        return this.statementVisitor.visit(node, context);
     }
 
-    private String dealWithVarDeclaration(JmmNode node, String s) {
+    private String dealWithVarDeclaration(JmmNode node, MethodContext context) {
         String id = node.hasAttribute("var") ? node.get("var") : node.get("parameter");
 
-        IdentifierHandler handler = new IdentifierHandler(id, this.name, this.extension, this.isStatic, this.symbolTable);
-
-        if (handler.getType() == null) {
-            this.addReport();
+        if (this.identifierHandler.getType(node, id, context) == null) {
+            this.addReport(context);
         }
 
         return null;
     }
 
-    private String dealWithReturnType(JmmNode node, String s) {
+    private String dealWithReturnType(JmmNode node, MethodContext context) {
         JmmNode returnTypeNode = node.getJmmChild(0);
 
-        this.returnType = returnTypeNode.get("keyword");
-
-        return this.returnType;
+        return returnTypeNode.get("keyword");
     }
 }
@@ -0,0 +1,19 @@
+package pt.up.fe.comp2023.visitors;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+
+import java.util.List;
+
+/**
+ * The method being analysed, passed down as the argument of every visit. The semantic visitors keep no state of their
+ * own, so one of each is created per compilation and reused for every method and statement.
+ */
+public record MethodContext(String method, String extension, boolean isStatic, List<Report> reports) {
+    public void addReport(String line, String col, String message) {
+        this.reports.add(new Report(
+                ReportType.ERROR, Stage.SEMANTIC, Integer.parseInt(line), Integer.parseInt(col), message
+        ));
+    }
+}
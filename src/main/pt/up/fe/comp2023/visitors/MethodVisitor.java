@@ -2,45 +2,19 @@ package pt.up.fe.comp2023.visitors;
 
 import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.report.Report;
-import pt.up.fe.comp.jmm.report.ReportType;
-import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2023.MySymbolTable;
 import pt.up.fe.comp2023.visitors.handlers.IdentifierHandler;
 import pt.up.fe.comp2023.visitors.utils.MyType;
 
-import java.util.ArrayList;
-
-public class MethodVisitor extends AJmmVisitor<String, String> {
-    private JmmNode node;
-    private String modifier;
-    private String name;
-    private String extension;
-    private String returnType;
-    private boolean isStatic;
-    private MySymbolTable symbolTable;
-    private ArrayList<Report> reports;
-
-    public MethodVisitor(JmmNode node, MySymbolTable symbolTable, ArrayList<Report> reports, String extension) {
-        this.modifier = node.get("modifier");
-        this.name = node.get("name");
-        this.isStatic = node.hasAttribute("isStatic");
-        this.extension = extension;
+public class MethodVisitor extends AJmmVisitor<MethodContext, String> {
+    private final MySymbolTable symbolTable;
+    private final StatementVisitor statementVisitor;
+    private final IdentifierHandler identifierHandler;
 
+    public MethodVisitor(MySymbolTable symbolTable) {
         this.symbolTable = symbolTable;
-        this.reports = reports;
-    }
-
-    private String parseImport(String imp) {
-        String[] splitImport = imp.split("\\.");
-
-        return splitImport[splitImport.length - 1];
-    }
-
-    private void addReport(String line, String col, String message) {
-        this.reports.add(new Report(
-                ReportType.ERROR, Stage.SEMANTIC, Integer.parseInt(line), Integer.parseInt(col), message
-        ));
+        this.statementVisitor = new StatementVisitor(symbolTable);
+        this.identifierHandler = new IdentifierHandler(symbolTable);
     }
 
     @Override
@@ -53,31 +27,25 @@ public class MethodVisitor extends AJmmVisitor<String, String> {
         addVisit("ReturnStatement", this::dealWithReturnStatement);
     }
 
-    private String dealWithMethod(JmmNode node, String s) {
+    private String dealWithMethod(JmmNode node, MethodContext context) {
         for (JmmNode child : node.getChildren()) {
-            visit(child, "");
+            visit(child, context);
         }
 
         return null;
     }
 
-    private String dealWithReturnStatement(JmmNode node, String s) {
-        StatementVisitor visitor = new StatementVisitor(this.name, this.extension, this.isStatic, this.symbolTable, this.reports);
-
-        return visitor.visit(node, "");
+    private String dealWithReturnStatement(JmmNode node, MethodContext context) {
+        return this.statementVisitor.visit(node, context);
     }
 
-    private String dealWithMethodStatement(JmmNode node, String s) {
-        StatementVisitor visitor = new StatementVisitor(this.name, this.extension, this.isStatic, this.symbolTable, this.reports);
-
-        return visitor.visit(node, "");
+    private String dealWithMethodStatement(JmmNode node, MethodContext context) {
+        return this.statementVisitor.visit(node, context);
     }
 
-    private String dealWithVarDeclaration(JmmNode node, String s) {
+    private String dealWithVarDeclaration(JmmNode node, MethodContext context) {
         String id = node.hasAttribute("var") ? node.get("var") : node.get("parameter");
 
-        IdentifierHandler handler = new IdentifierHandler(id, this.name, this.extension, this.isStatic, this.symbolTable);
-
         JmmNode child = node.getJmmChild(0);
 
         if (child.getKind().equals("CustomType")) {
@@ -89,39 +57,35 @@ public class MethodVisitor extends AJmmVisitor<String, String> {
                 exists = true;
             }
 
-            for (String imp : this.symbolTable.getImports()) {
-                if (typename.equals(this.parseImport(imp))) {
-                    exists = true;
-
-                    break;
-                }
+            if (this.symbolTable.hasImport(typename)) {
+                exists = true;
             }
 
             if (!exists) {
-                this.addReport(node.get("lineStart"), node.get("colStart"), "Unknown type in variable declaration! (method: dealWithVarDeclaration)");
+                context.addReport(node.get("lineStart"), node.get("colStart"), "Unknown type in variable declaration! (method: dealWithVarDeclaration)");
 
                 return null;
             }
         }
 
-        if (handler.getType() == null) {
-            this.addReport(node.get("lineStart"), node.get("colStart"), "The handler type is NULL! (method: dealWithVarDeclaration)");
+        if (this.identifierHandler.getType(node, id, context) == null) {
+            context.addReport(node.get("lineStart"), node.get("colStart"), "The handler type is NULL! (method: dealWithVarDeclaration)");
         }
 
         return null;
     }
 
-    private String dealWithReturnType(JmmNode node, String s) {
+    private String dealWithReturnType(JmmNode node, MethodContext context) {
         JmmNode returnTypeNode = node.getJmmChild(0);
 
         if (returnTypeNode.getKind().equals("Literal")) {
-            this.returnType = returnTypeNode.get("keyword");
+            return returnTypeNode.get("keyword");
         }
 
         if (returnTypeNode.getKind().equals("CustomType")) {
-            this.returnType = returnTypeNode.get("name");
+            return returnTypeNode.get("name");
         }
 
-        return this.returnType;
+        return null;
     }
 }
@@ -0,0 +1,48 @@
+package pt.up.fe.comp2023.visitors;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2023.MySymbolTable;
+import pt.up.fe.comp2023.VariableBinding;
+
+/**
+ * Resolves every variable name in the AST once, right after the symbol table is built, and attaches the result
+ * to the node that uses it (see VariableBinding.of). The visit data is the name of the enclosing method,
+ * null outside of methods.
+ */
+public class NameResolver extends AJmmVisitor<String, String> {
+    private MySymbolTable symbolTable;
+
+    public NameResolver(MySymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit("Method", this::dealWithMethod);
+        addVisit("Main", this::dealWithMain);
+        addVisit("Identifier", (node, method) -> this.dealWithName(node, method, "value"));
+        addVisit("Assignment", (node, method) -> this.dealWithName(node, method, "var"));
+        addVisit("ArrayAssignment", (node, method) -> this.dealWithName(node, method, "var"));
+        addVisit("VarDeclaration", (node, method) -> this.dealWithName(node, method, "var"));
+        addVisit("Argument", (node, method) -> this.dealWithName(node, method, "parameter"));
+
+        setDefaultVisit(this::visitAllChildren);
+    }
+
+    private String dealWithMethod(JmmNode node, String method) {
+        return visitAllChildren(node, node.get("name"));
+    }
+
+    private String dealWithMain(JmmNode node, String method) {
+        return visitAllChildren(node, "main");
+    }
+
+    private String dealWithName(JmmNode node, String method, String attribute) {
+        VariableBinding binding = this.symbolTable.resolve(method, node.get(attribute));
+
+        if (binding != null) binding.annotate(node);
+
+        return visitAllChildren(node, method);
+    }
+}
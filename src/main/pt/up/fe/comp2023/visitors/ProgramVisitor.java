@@ -12,9 +12,14 @@ public class ProgramVisitor extends AJmmVisitor<String, String> {
     private MySymbolTable symbolTable;
     private ArrayList<Report> reports;
 
-    public ProgramVisitor(MySymbolTable symbolTable, ArrayList<Report> reports) {
+    private ImportVisitor importVisitor;
+    private boolean parallel;
+
+    public ProgramVisitor(MySymbolTable symbolTable, ArrayList<Report> reports, boolean parallel) {
         this.symbolTable = symbolTable;
         this.reports = reports;
+        this.parallel = parallel;
+        this.importVisitor = new ImportVisitor(symbolTable, reports);
     }
 
     @Override
@@ -26,14 +31,12 @@ public class ProgramVisitor extends AJmmVisitor<String, String> {
         for (JmmNode child : node.getChildren()) {
             /* visit import nodes */
             if (child.getKind().equals("ImportDeclaration")) {
-                ImportVisitor importVisitor = new ImportVisitor(this.symbolTable, this.reports);
-
-                importVisitor.visit(child, "");
+                this.importVisitor.visit(child, "");
             }
 
             /* visit class declaration nodes */
             if (child.getKind().equals("ClassDeclaration")) {
-                ClassVisitor classVisitor = new ClassVisitor(child, this.symbolTable, this.reports);
+                ClassVisitor classVisitor = new ClassVisitor(child, this.symbolTable, this.reports, this.parallel);
             }
         }
 
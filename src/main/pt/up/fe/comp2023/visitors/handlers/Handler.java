@@ -3,8 +3,9 @@ package pt.up.fe.comp2023.visitors.handlers;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2023.MySymbolTable;
+import pt.up.fe.comp2023.visitors.MethodContext;
 import pt.up.fe.comp2023.visitors.utils.MyType;
 
 public interface Handler {
-    public MyType getType();
+    public MyType getType(JmmNode node, String identifier, MethodContext context);
 }
@@ -1,13 +1,12 @@
 package pt.up.fe.comp2023.visitors.handlers;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2023.MySymbolTable;
+import pt.up.fe.comp2023.VariableBinding;
+import pt.up.fe.comp2023.visitors.MethodContext;
 import pt.up.fe.comp2023.visitors.utils.MyType;
 
-import java.util.ArrayList;
-
 
 public class IdentifierHandler implements Handler {
     private final String EXTENSION = "extension";
@@ -16,27 +15,14 @@ public class IdentifierHandler implements Handler {
     private final String OBJECT = "object";
     private final String THIS = "this";
     private final String PRIMITIVE = "primitive";
-    private String identifier;
-    private String method;
-    private String extension;
-    private boolean isStatic;
-    private MySymbolTable symbolTable;
-    public IdentifierHandler(String identifier, String method, String extension, boolean isStatic, MySymbolTable symbolTable) {
-        this.identifier = identifier;
-        this.method = method;
-        this.extension = extension;
-        this.isStatic = isStatic;
-        this.symbolTable = symbolTable;
-    }
+    private final MySymbolTable symbolTable;
 
-    private String parseImport(String imp) {
-        String[] splitImport = imp.split("\\.");
-
-        return splitImport[splitImport.length - 1];
+    public IdentifierHandler(MySymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
     }
 
-    private boolean isClassExtension(String id) {
-        return id.equals(this.extension);
+    private boolean isClassExtension(String id, MethodContext context) {
+        return id.equals(context.extension());
     }
 
     private boolean isClassItself(String id) {
@@ -44,94 +30,48 @@ public class IdentifierHandler implements Handler {
     }
 
     private boolean isImport(String id) {
-        for (String imp : this.symbolTable.getImports()) {
-            if (id.equals(this.parseImport(imp))) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.symbolTable.hasImport(id);
     }
 
     @Override
-    public MyType getType() {
+    public MyType getType(JmmNode node, String identifier, MethodContext context) {
         /* check if the identifier is a class extension */
-        if (this.isClassExtension(this.identifier)) {
-            return new MyType(this.identifier, this.METHOD, false);
+        if (this.isClassExtension(identifier, context)) {
+            return new MyType(identifier, this.METHOD, false);
         }
 
         /* check if the identifier is the class itself */
-        if (this.isClassItself(this.identifier)) {
-            return new MyType(this.identifier, this.METHOD, false);
+        if (this.isClassItself(identifier)) {
+            return new MyType(identifier, this.METHOD, false);
         }
 
         /* check if the identifier is an import */
-        if (this.isImport(this.identifier)) {
-            return new MyType(this.identifier, this.METHOD, false);
+        if (this.isImport(identifier)) {
+            return new MyType(identifier, this.METHOD, false);
         }
 
-        /* check if the identifier is a method's local variable */
-        for (Symbol symbol : this.symbolTable.getLocalVariables(this.method)) {
-            if (this.identifier.equals(symbol.getName())) {
-                Type type = symbol.getType();
-
-                String typename = type.getName();
-
-                if (this.isClassExtension(typename))
-                    return new MyType(typename, this.OBJECT, false);
+        /* check if the identifier is a local variable, a parameter or a field */
+        VariableBinding binding = VariableBinding.of(node);
 
-                if (this.isClassItself(typename))
-                    return new MyType(typename, this.THIS, false);
+        if (binding == null)
+            return null;
 
-                if (this.isImport(typename))
-                    return new MyType(typename, this.OBJECT, false);
-
-                return new MyType(typename, this.PRIMITIVE, type.isArray());
-            }
-        }
+        if (binding.kind() == VariableBinding.Kind.FIELD && context.isStatic())
+            return null;
 
-        /* check if the identifier is a method parameter */
-        for (Symbol symbol : this.symbolTable.getParameters(this.method)) {
-            if (this.identifier.equals(symbol.getName())) {
-                Type type = symbol.getType();
+        Type type = binding.symbol().getType();
 
-                String typename = type.getName();
+        String typename = type.getName();
 
-                if (this.isClassExtension(typename))
-                    return new MyType(typename, this.OBJECT, false);
+        if (this.isClassExtension(typename, context))
+            return new MyType(typename, this.OBJECT, false);
 
-                if (this.isClassItself(typename))
-                    return new MyType(typename, this.THIS, false);
+        if (this.isClassItself(typename))
+            return new MyType(typename, this.THIS, false);
 
-                if (this.isImport(typename))
-                    return new MyType(typename, this.OBJECT, false);
-
-                return new MyType(typename, this.PRIMITIVE, type.isArray());
-            }
-        }
-
-        for (Symbol symbol : this.symbolTable.getFields()) {
-            if (this.identifier.equals(symbol.getName())) {
-                if (this.isStatic)
-                    return null;
-
-                Type type = symbol.getType();
-
-                String typename = type.getName();
-
-                if (this.isClassExtension(typename))
-                    return new MyType(typename, this.OBJECT, false);
-
-                if (this.isClassItself(typename))
-                    return new MyType(typename, this.THIS, false);
-
-                if (this.isImport(typename))
-                    return new MyType(typename, this.OBJECT, false);
-
-                return new MyType(typename, this.PRIMITIVE, type.isArray());
-            }
-        }
+        if (this.isImport(typename))
+            return new MyType(typename, this.OBJECT, false);
 
-        return null;
+        return new MyType(typename, this.PRIMITIVE, type.isArray());
     }
 }
@@ -0,0 +1,48 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ArrayLengthPrecedenceTest {
+    /* the kinds of the nodes of the parsed expression, e.g. 'BinaryOp(Integer, ArrayLength(Identifier))' */
+    private static String tree(String expression) {
+        JmmParserResult result = TestUtils.parse(expression, "expression");
+        TestUtils.noErrors(result.getReports());
+
+        return tree(result.getRootNode());
+    }
+
+    private static String tree(JmmNode node) {
+        if (node.getChildren().isEmpty()) return node.getKind();
+
+        return node.getKind() + node.getChildren().stream().map(ArrayLengthPrecedenceTest::tree)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    @Test
+    public void lengthBindsTighterThanBinaryOperators() {
+        assertEquals("BinaryOp(Integer, ArrayLength(Identifier))", tree("2 * a.length"));
+        assertEquals("BinaryOp(Identifier, ArrayLength(Identifier))", tree("i < a.length"));
+        assertEquals("BinaryOp(ArrayLength(Identifier), Integer)", tree("a.length - 1"));
+        assertEquals("BinaryOp(BinaryOp(Identifier, ArrayLength(Identifier)), True)", tree("i < a.length && true"));
+    }
+
+    @Test
+    public void lengthOfCallsAndIndexing() {
+        assertEquals("ArrayLength(MethodInvocation(Identifier))", tree("b.foo().length"));
+        assertEquals("ArrayLength(ArrayAccess(Identifier, Integer))", tree("a[0].length"));
+        assertEquals("BinaryOp(ArrayLength(MethodInvocation(This)), Integer)", tree("this.make().length * 2"));
+    }
+
+    @Test
+    public void lengthInsideCallsAndIndexing() {
+        assertEquals("ArrayAccess(Identifier, BinaryOp(ArrayLength(Identifier), Integer))", tree("a[b.length - 1]"));
+        assertEquals("ArrayLength(MethodInvocation(Identifier, ArrayLength(Identifier), Integer))", tree("x.foo(a.length, 1).length"));
+        assertEquals("MethodInvocation(ArrayLength(Identifier))", tree("a.length.foo()"));
+    }
+}
@@ -0,0 +1,118 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp2023.BatchCompiler;
+import pt.up.fe.comp2023.WorkerJvmRunner;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BatchCompilerTest {
+    private static File tempDir() {
+        try {
+            return Files.createTempDirectory("jmm-batch").toFile();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* a class that prints the given number */
+    private static void program(File file, String className, int value) {
+        SpecsIo.write(file, "import io;\n\nclass " + className + " {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        io.println(" + value + ");\n"
+                + "    }\n"
+                + "}\n");
+    }
+
+    /*
+     * src/Broken.jmm   uses a variable that is not declared
+     * src/Fine.jmm
+     * src/a/Same.jmm   prints 1
+     * src/b/Same.jmm   prints 2, the same class name in another folder
+     * other/Fine.jmm   given directly, so its outputs would go where those of src/Fine.jmm are
+     */
+    private static File sources(File dir) {
+        File src = new File(dir, "src");
+
+        SpecsIo.write(new File(src, "Broken.jmm"), "class Broken {\n"
+                + "    public int f() {\n"
+                + "        return missing;\n"
+                + "    }\n"
+                + "}\n");
+        program(new File(src, "Fine.jmm"), "Fine", 0);
+        program(new File(src, "a/Same.jmm"), "Same", 1);
+        program(new File(src, "b/Same.jmm"), "Same", 2);
+        program(new File(dir, "other/Fine.jmm"), "Fine", 3);
+
+        return src;
+    }
+
+    private static List<BatchCompiler.Input> inputs(File dir) {
+        return BatchCompiler.collectInputs(List.of(sources(dir).getPath(), new File(dir, "other/Fine.jmm").getPath()));
+    }
+
+    private static String run(File classFile, String className) throws IOException {
+        return new WorkerJvmRunner().run(className, Files.readAllBytes(classFile.toPath())).trim();
+    }
+
+    @Test
+    public void inputsKeepTheirFolders() {
+        File dir = tempDir();
+        List<BatchCompiler.Input> inputs = inputs(dir);
+
+        assertEquals(List.of("Broken.jmm", "Fine.jmm", "Same.jmm", "Same.jmm", "Fine.jmm"),
+                inputs.stream().map(input -> input.file().getName()).toList());
+        assertEquals(List.of("", "", "a", "b", ""), inputs.stream().map(BatchCompiler.Input::folder).toList());
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void missingInputIsAnError() {
+        File dir = tempDir();
+
+        try {
+            BatchCompiler.collectInputs(List.of(new File(dir, "none.jmm").getPath()));
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("none.jmm"));
+        }
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void outputsFollowTheSourceLayout() throws IOException {
+        File dir = tempDir();
+        File out = new File(dir, "out");
+        List<BatchCompiler.Input> inputs = inputs(dir);
+
+        List<BatchCompiler.UnitResult> results = new BatchCompiler(Map.of("outputDir", out.getPath(), "threads", "4"))
+                .compile(inputs);
+
+        /* one result per input, in the order they were given, whichever finished first */
+        assertEquals(inputs.stream().map(BatchCompiler.Input::file).toList(),
+                results.stream().map(BatchCompiler.UnitResult::inputFile).toList());
+        assertEquals(List.of(false, true, true, true, false),
+                results.stream().map(BatchCompiler.UnitResult::success).toList());
+
+        assertTrue(results.get(0).message(), results.get(0).message().startsWith("ERROR@semantic, line 3"));
+        assertTrue(results.get(4).message(), results.get(4).message().contains("would overwrite those of"));
+
+        /* the classes named Same do not overwrite each other */
+        assertEquals("0", run(new File(out, "Fine.class"), "Fine"));
+        assertEquals("1", run(new File(out, "a/Same.class"), "Same"));
+        assertEquals("2", run(new File(out, "b/Same.class"), "Same"));
+        assertFalse(new File(out, "Broken.class").exists());
+        assertFalse(new File(out, "Same.class").exists());
+
+        SpecsIo.deleteFolder(dir);
+    }
+}
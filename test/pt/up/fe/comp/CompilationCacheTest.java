@@ -0,0 +1,134 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp2023.CompilationCache;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilationCacheTest {
+    private static final String SOURCE = "class A {}";
+
+    private static File tempDir() {
+        try {
+            return Files.createTempDirectory("jmm-cache").toFile();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* an entry of about 'size' bytes on disk */
+    private static CompilationCache.Entry entry(String className, int size) {
+        return new CompilationCache.Entry(className, new byte[size / 2], "x".repeat(size / 2));
+    }
+
+    @Test
+    public void keyDependsOnSourceAndCodeOptions() {
+        String key = CompilationCache.key(SOURCE, Map.of());
+
+        assertEquals(key, CompilationCache.key(SOURCE, Map.of()));
+        assertNotEquals(key, CompilationCache.key("class B {}", Map.of()));
+        assertNotEquals(key, CompilationCache.key(SOURCE, Map.of("optimize", "true")));
+        assertNotEquals(key, CompilationCache.key(SOURCE, Map.of("registerAllocation", "0")));
+        assertNotEquals(key, CompilationCache.key(SOURCE, Map.of("peephole", "false")));
+
+        /* options that do not change the code share the entry */
+        assertEquals(key, CompilationCache.key(SOURCE, Map.of("debug", "true")));
+    }
+
+    @Test
+    public void storedEntryIsRead() {
+        File dir = tempDir();
+        CompilationCache cache = new CompilationCache(dir, CompilationCache.DEFAULT_MAX_BYTES);
+        String key = CompilationCache.key(SOURCE, Map.of());
+
+        assertNull(cache.get(key));
+
+        cache.put(key, new CompilationCache.Entry("A", new byte[]{(byte) 0xCA, (byte) 0xFE}, ".class public A"));
+        CompilationCache.Entry entry = new CompilationCache(dir, CompilationCache.DEFAULT_MAX_BYTES).get(key);
+
+        assertNotNull(entry);
+        assertEquals("A", entry.className());
+        assertArrayEquals(new byte[]{(byte) 0xCA, (byte) 0xFE}, entry.classFile());
+        assertEquals(".class public A", entry.jasminCode());
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void unreadableEntryIsMissing() {
+        File dir = tempDir();
+        CompilationCache cache = new CompilationCache(dir, CompilationCache.DEFAULT_MAX_BYTES);
+        String key = CompilationCache.key(SOURCE, Map.of());
+
+        cache.put(key, entry("A", 100));
+        assertTrue(new File(new File(dir, key), "A.class").delete());
+
+        assertNull(cache.get(key));
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        File dir = tempDir();
+        /* room for two entries of 1000 bytes, and their entry.json, but not for three */
+        CompilationCache cache = new CompilationCache(dir, 2500);
+
+        cache.put("a", entry("A", 1000));
+        cache.put("b", entry("B", 1000));
+        assertTrue(new File(dir, "a").setLastModified(1_000_000));
+        assertTrue(new File(dir, "b").setLastModified(2_000_000));
+
+        /* reading a makes it the most recently used, so b goes first */
+        assertNotNull(cache.get("a"));
+        cache.put("c", entry("C", 1000));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void entriesBeingWrittenAreNotEvicted() throws IOException {
+        File dir = tempDir();
+        CompilationCache cache = new CompilationCache(dir, 500);
+
+        File tempEntry = new File(dir, "d.tmp123");
+        Files.createDirectories(tempEntry.toPath());
+        Files.write(new File(tempEntry, "D.class").toPath(), new byte[1000]);
+
+        cache.put("a", entry("A", 100));
+
+        assertTrue(tempEntry.isDirectory());
+        assertNotNull(cache.get("a"));
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void firstStoredEntryIsKept() {
+        File dir = tempDir();
+        CompilationCache cache = new CompilationCache(dir, CompilationCache.DEFAULT_MAX_BYTES);
+
+        cache.put("a", new CompilationCache.Entry("A", new byte[]{1}, "first"));
+        cache.put("a", new CompilationCache.Entry("A", new byte[]{2}, "second"));
+
+        assertEquals("first", cache.get("a").jasminCode());
+
+        SpecsIo.deleteFolder(dir);
+    }
+
+    @Test
+    public void cacheIsOffWithoutAFolder() {
+        assertNull(CompilationCache.fromConfig(Map.of()));
+        assertNotNull(CompilationCache.fromConfig(Map.of("cacheDir", CompilationCache.DEFAULT_DIR)));
+    }
+}
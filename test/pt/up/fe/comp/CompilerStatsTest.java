@@ -0,0 +1,109 @@
+package pt.up.fe.comp;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.CompilerStats;
+import pt.up.fe.comp2023.Launcher;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilerStatsTest {
+    private static final String RESOURCE = "pt/up/fe/comp/jasmin/StackLimits.jmm";
+
+    private static JmmParserResult parse(String code) {
+        SimpleParser parser = new SimpleParser();
+
+        return parser.parse(code, parser.getDefaultRule(), Map.of("stats", ""));
+    }
+
+    private static List<String> stages(CompilerStats stats) {
+        return stats.getMeasurements().stream().map(CompilerStats.Measurement::stage).toList();
+    }
+
+    @Test
+    public void parsingRecordsItsStages() {
+        CompilerStats stats = CompilerStats.start("StackLimits.jmm");
+
+        try {
+            JmmParserResult result = parse(SpecsIo.getResource(RESOURCE));
+            TestUtils.noErrors(result.getReports());
+        } finally {
+            CompilerStats.stop();
+        }
+
+        assertEquals(List.of("lex", "parse", "ast"), stages(stats));
+        assertTrue(stats.getMeasurements().stream().allMatch(measurement -> measurement.depth() == 0));
+    }
+
+    @Test
+    public void syntaxErrorIsStillReported() {
+        CompilerStats stats = CompilerStats.start("Broken.jmm");
+        JmmParserResult result;
+
+        try {
+            result = parse("class Broken { public int f( { return 0; } }");
+        } finally {
+            CompilerStats.stop();
+        }
+
+        assertTrue(result.getReports().stream().anyMatch(report -> report.getType() == ReportType.ERROR));
+
+        /* the tree is never converted once the parser found errors */
+        assertEquals(List.of("lex", "parse"), stages(stats));
+    }
+
+    @Test
+    public void launcherWritesTheStagesAsJson() throws IOException {
+        File dir = Files.createTempDirectory("jmm-stats").toFile();
+        File input = new File(dir, "StackLimits.jmm");
+        File statsFile = new File(dir, "stats.json");
+        SpecsIo.write(input, SpecsIo.getResource(RESOURCE));
+
+        Launcher.main(new String[]{input.getPath(), "--stats=" + statsFile.getPath()});
+
+        JsonArray units = JsonParser.parseString(SpecsIo.read(statsFile)).getAsJsonArray();
+        assertEquals(1, units.size());
+
+        JsonObject unit = units.get(0).getAsJsonObject();
+        assertEquals(input.getPath(), unit.get("unit").getAsString());
+
+        List<String> stages = new ArrayList<>();
+        for (JsonElement element : unit.getAsJsonArray("stages")) {
+            JsonObject stage = element.getAsJsonObject();
+            stages.add(stage.get("stage").getAsString());
+
+            for (String key : List.of("depth", "wallNanos", "cpuNanos", "allocatedBytes")) {
+                assertTrue(stage + " has no " + key, stage.has(key));
+            }
+            assertTrue(stage.toString(), stage.get("wallNanos").getAsLong() >= 0);
+        }
+
+        for (String stage : List.of("lex", "parse", "ast", "symbolTable", "nameResolution", "semanticAnalysis", "ollir",
+                "optimization", "classFile")) {
+            assertTrue(stages + " has no " + stage, stages.contains(stage));
+        }
+        assertTrue(stages.indexOf("lex") < stages.indexOf("semanticAnalysis"));
+        assertTrue(stages.indexOf("semanticAnalysis") < stages.indexOf("classFile"));
+
+        JsonObject total = unit.getAsJsonObject("total");
+        for (String key : List.of("wallNanos", "cpuNanos", "allocatedBytes")) {
+            assertTrue(unit + " has no total " + key, total.has(key));
+        }
+
+        SpecsIo.deleteFolder(dir);
+    }
+}
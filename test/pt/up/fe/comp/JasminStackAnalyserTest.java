@@ -0,0 +1,69 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.JasminStackAnalyser;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class JasminStackAnalyserTest {
+    private static final String RESOURCE = "pt/up/fe/comp/jasmin/StackLimits.jmm";
+
+    private static int maxStack(String... instructions) {
+        return new JasminStackAnalyser(String.join("\n", instructions)).maxStack();
+    }
+
+    /* the '.limit stack' the backend wrote for one method */
+    private static int stackLimit(String jasminCode, String methodName) {
+        Matcher matcher = Pattern.compile("\\.method public " + methodName + "\\(.*\\n\\s*\\.limit stack (\\d+)")
+                .matcher(jasminCode);
+        assertTrue("Expected method " + methodName + " in\n" + jasminCode, matcher.find());
+
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    @Test
+    public void shortFormsHaveTheEffectOfTheLongOnes() {
+        assertEquals(1, maxStack("iconst_m1", "istore_1", "return"));
+        assertEquals(3, maxStack("iconst_1", "iconst_m1", "dup_x1", "pop", "pop", "pop", "return"));
+        assertEquals(2, maxStack("aload_0", "aload_1", "if_acmpeq L", "return", "L:", "return"));
+        assertEquals(1, maxStack("aconst_null", "areturn"));
+    }
+
+    @Test
+    public void deepestPathIsTheLimit() {
+        /* 1 on the stack on both sides of the branch, and 3 before the addition on the taken one */
+        assertEquals(3, maxStack(
+                "iload_1", "iload_2", "ifeq A",
+                "iconst_1", "iadd", "ireturn",
+                "A:", "iconst_2", "iconst_3", "imul", "iadd", "ireturn"));
+    }
+
+    @Test
+    public void unknownInstructionGivesAConservativeLimit() {
+        /* no instruction pushes more than two slots, so twice the number of instructions is always enough */
+        assertEquals(6, maxStack("iconst_1", "frobnicate", "ireturn"));
+    }
+
+    @Test
+    public void limitsOfTheGeneratedMethodsAreExact() {
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE));
+        TestUtils.noErrors(ollirResult.getReports());
+        JasminResult jasminResult = TestUtils.backend(ollirResult);
+        String jasminCode = jasminResult.getJasminCode();
+
+        /* the two operands of the multiplication, then the product and the 1 */
+        assertEquals(2, stackLimit(jasminCode, "straight"));
+        /* the receiver and the six arguments */
+        assertEquals(7, stackLimit(jasminCode, "manyArguments"));
+        /* the comparison on the way in, then a single value on each side of the branch */
+        assertEquals(2, stackLimit(jasminCode, "merge"));
+
+        assertEquals("13\n25\n2", jasminResult.run().trim());
+    }
+}
@@ -0,0 +1,57 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.MyJasminBackend;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JasminWriterTest {
+    private static final String[] RESOURCES = {
+            "pt/up/fe/comp/classfile/Frames.jmm",
+            "pt/up/fe/comp/ollir/ShortCircuit.jmm"
+    };
+
+    private static OllirResult ollirResult(String resource) {
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(resource), Map.of("optimize", "true"));
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return ollirResult;
+    }
+
+    private static void assertWritesTheSameCode(MyJasminBackend backend) {
+        for (String resource : RESOURCES) {
+            OllirResult ollirResult = ollirResult(resource);
+            String jasminCode = backend.toJasmin(ollirResult).getJasminCode();
+
+            StringWriter writer = new StringWriter();
+            backend.toJasmin(ollirResult, writer);
+            assertEquals(resource, jasminCode, writer.toString());
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            backend.toJasmin(ollirResult, output);
+            assertEquals(resource, jasminCode, output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void writerGetsTheJasminCode() {
+        assertWritesTheSameCode(new MyJasminBackend());
+    }
+
+    @Test
+    public void writerGetsTheJasminCodeInParallel() {
+        assertWritesTheSameCode(new MyJasminBackend(true));
+    }
+
+    @Test
+    public void writerGetsTheJasminCodeWithoutPeephole() {
+        assertWritesTheSameCode(new MyJasminBackend(false, false));
+    }
+}
@@ -56,6 +56,15 @@ public class OllirTest {
 
     }
 
+    @Test
+    public void testThisAsValue() {
+        var ollirResult = TestUtils.optimize(SpecsIo.getResource("pt/up/fe/comp/ollir/ThisAsValue.jmm"));
+        TestUtils.noErrors(ollirResult.getReports());
+
+        /* 'this' assigned or passed is an object of the class, which the OLLIR parser reads back */
+        assertEquals("5", TestUtils.backend(ollirResult).run().trim());
+    }
+
     public String getType(Type type) {
         if (type.getTypeOfElement() == ElementType.OBJECTREF) {
             var classType = (ClassType) type;
@@ -0,0 +1,52 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParallelAnalysisTest {
+    /* errors in five of its six methods, some of them on the same line and column */
+    private static final String RESOURCE = "pt/up/fe/comp/analysis/ManyErrors.jmm";
+
+    /* the methods may finish in any order, so the analysis is run a few times */
+    private static final int RUNS = 5;
+
+    private static List<String> reports(boolean parallel) {
+        var result = TestUtils.analyse(SpecsIo.getResource(RESOURCE), Map.of("parallelAnalysis", Boolean.toString(parallel)));
+
+        return result.getReports().stream().map(Report::toString).toList();
+    }
+
+    @Test
+    public void parallelReportsAreTheSerialOnesInOrder() {
+        List<String> serial = reports(false);
+
+        for (int run = 0; run < RUNS; run++) {
+            assertEquals(serial, reports(true));
+        }
+    }
+
+    @Test
+    public void reportsAreSortedByPosition() {
+        var reports = TestUtils.analyse(SpecsIo.getResource(RESOURCE), Map.of("parallelAnalysis", "true")).getReports();
+
+        assertTrue(reports.stream().allMatch(report -> report.getType() == ReportType.ERROR));
+
+        /* undefined, mismatch, arguments, arrays and main, in the order of the methods */
+        assertEquals(List.of(7, 12, 13, 19, 20, 31, 36, 37), reports.stream().map(Report::getLine).distinct().toList());
+
+        for (int i = 1; i < reports.size(); i++) {
+            Report previous = reports.get(i - 1);
+            Report report = reports.get(i);
+
+            assertTrue(previous + " before " + report, previous.getLine() < report.getLine()
+                    || previous.getLine() == report.getLine() && previous.getColumn() <= report.getColumn());
+        }
+    }
+}
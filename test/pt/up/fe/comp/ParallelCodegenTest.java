@@ -0,0 +1,56 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ParallelCodegenTest {
+    /* programs with several methods, and labels in most of them */
+    private static final String[] RESOURCES = {
+            "pt/up/fe/comp/classfile/Frames.jmm",
+            "pt/up/fe/comp/ollir/ShortCircuit.jmm"
+    };
+
+    /* the methods may finish in any order, so the code is generated a few times */
+    private static final int RUNS = 5;
+
+    private static OllirResult ollirResult(String resource, boolean parallel, boolean optimize) {
+        Map<String, String> config = new HashMap<>();
+        config.put("parallelCodegen", Boolean.toString(parallel));
+        config.put("optimize", Boolean.toString(optimize));
+
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(resource), config);
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return ollirResult;
+    }
+
+    private static void assertSameCode(boolean optimize) {
+        for (String resource : RESOURCES) {
+            OllirResult serial = ollirResult(resource, false, optimize);
+            String jasminCode = TestUtils.backend(serial).getJasminCode();
+
+            for (int run = 0; run < RUNS; run++) {
+                OllirResult parallel = ollirResult(resource, true, optimize);
+
+                assertEquals(resource, serial.getOllirCode(), parallel.getOllirCode());
+                assertEquals(resource, jasminCode, TestUtils.backend(parallel).getJasminCode());
+            }
+        }
+    }
+
+    @Test
+    public void parallelCodeIsTheSerialCode() {
+        assertSameCode(false);
+    }
+
+    @Test
+    public void parallelCodeIsTheSerialCodeOptimized() {
+        assertSameCode(true);
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.ClassFileBackend;
+import pt.up.fe.comp2023.WorkerJvmRunner;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ShortCircuitTest {
+    private static final String RESOURCE = "pt/up/fe/comp/ollir/ShortCircuit.jmm";
+
+    /*
+     * each call of f prints its tag, so a tag in the output is a right side that was evaluated:
+     * only the ones the left side does not decide, 40 when the loop ends, 61 and 74, and 3 calls in total
+     */
+    private static final String CONDITIONS = "12\n21\n32\n40\n2\n0\n1\n61\n0";
+    private static final String VALUES = "0\n1\n0\n1\n74\n0";
+    private static final String EXPECTED = CONDITIONS + "\n" + VALUES + "\n3";
+
+    private static OllirResult ollirResult(Map<String, String> config) {
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE), config);
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return ollirResult;
+    }
+
+    @Test
+    public void rightSideRunsOnlyWhenNeeded() {
+        assertEquals(EXPECTED, TestUtils.backend(ollirResult(Map.of())).run().trim());
+    }
+
+    @Test
+    public void rightSideRunsOnlyWhenNeededOptimized() {
+        assertEquals(EXPECTED, TestUtils.backend(ollirResult(Map.of("optimize", "true"))).run().trim());
+    }
+
+    @Test
+    public void rightSideRunsOnlyWhenNeededInClassFile() {
+        byte[] classFile = new ClassFileBackend().toClassFile(ollirResult(Map.of()).getOllirClass());
+
+        assertEquals(EXPECTED, new WorkerJvmRunner().run("ShortCircuit", classFile).trim());
+    }
+
+    @Test
+    public void conditionsNeedNoBooleanTemporaries() {
+        String code = ollirResult(Map.of()).getOllirCode();
+        String conditions = code.substring(code.indexOf("conditions("), code.indexOf("values("));
+
+        /* the calls that can be skipped are reached through the jumps, and never combined with '&&' or '||' */
+        assertFalse(conditions, conditions.contains("&&.bool"));
+        assertFalse(conditions, conditions.contains("||.bool"));
+        assertTrue(conditions, conditions.contains("cond_skip_"));
+    }
+}
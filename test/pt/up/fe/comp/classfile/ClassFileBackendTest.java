@@ -0,0 +1,147 @@
+package pt.up.fe.comp.classfile;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.ClassFileBackend;
+import pt.up.fe.comp2023.WorkerJvmRunner;
+import pt.up.fe.comp2023.classfile.InMemoryClassLoader;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.spi.ToolProvider;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ClassFileBackendTest {
+    private static final String RESOURCE = "pt/up/fe/comp/classfile/Frames.jmm";
+    private static final String MERGES = "pt/up/fe/comp/classfile/Merges.jmm";
+
+    private static ClassUnit ollirClass(String resource) {
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(resource));
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return ollirResult.getOllirClass();
+    }
+
+    private static ClassUnit ollirClass() {
+        return ollirClass(RESOURCE);
+    }
+
+    /* the output of 'javap -v' for the class file, where the limits and frames of each method can be read */
+    private static String javap(String className, byte[] classFile) {
+        try {
+            File dir = Files.createTempDirectory("classfile").toFile();
+            File file = ClassFileBackend.writeClassFile(className, classFile, dir);
+
+            StringWriter output = new StringWriter();
+            int status = ToolProvider.findFirst("javap").orElseThrow()
+                    .run(new PrintWriter(output), new PrintWriter(output), "-v", "-p", file.getPath());
+            assertEquals(output.toString(), 0, status);
+
+            SpecsIo.deleteFolder(dir);
+
+            return output.toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /* the part of the javap output for one method, up to the next one */
+    private static String method(String javap, String methodName) {
+        int start = javap.indexOf(" " + methodName + "(");
+        assertTrue("Expected method " + methodName + " in\n" + javap, start >= 0);
+
+        int end = javap.indexOf("\n\n", start);
+        return end < 0 ? javap.substring(start) : javap.substring(start, end);
+    }
+
+    private static int limit(String method, String name) {
+        Matcher matcher = Pattern.compile(name + "=(\\d+)").matcher(method);
+        assertTrue("Expected " + name + " in\n" + method, matcher.find());
+
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    @Test
+    public void classFileIsVerified() throws ClassNotFoundException {
+        byte[] classFile = new ClassFileBackend().toClassFile(ollirClass());
+        InMemoryClassLoader loader = new InMemoryClassLoader(Map.of("Frames", classFile), new File(TestUtils.getLibsClasspath()));
+
+        /* linking the class runs the verifier over the code and its StackMapTable frames */
+        Class<?> loaded = Class.forName("Frames", true, loader);
+
+        assertEquals("Frames", loaded.getName());
+    }
+
+    @Test
+    public void classFileRuns() {
+        byte[] classFile = new ClassFileBackend().toClassFile(ollirClass());
+
+        assertEquals("5\n15\n2\n3\n6", new WorkerJvmRunner().run("Frames", classFile).trim());
+    }
+
+    @Test
+    public void limitsAreExact() {
+        String add = method(javap("Frames", new ClassFileBackend().toClassFile(ollirClass())), "add");
+
+        /* this, a and b, and both operands of the addition on the stack; the temporary for the sum is gone */
+        assertEquals(2, limit(add, "stack"));
+        assertEquals(3, limit(add, "locals"));
+    }
+
+    @Test
+    public void framesOnlyWhereBranchesGo() {
+        String javap = javap("Frames", new ClassFileBackend().toClassFile(ollirClass()));
+
+        assertFalse(method(javap, "add").contains("StackMapTable"));
+        assertTrue(method(javap, "sum").contains("StackMapTable"));
+        assertTrue(method(javap, "nested").contains("StackMapTable"));
+    }
+
+    @Test
+    public void classFileWithoutPeepholeIsVerified() throws ClassNotFoundException {
+        byte[] classFile = new ClassFileBackend(false).toClassFile(ollirClass());
+        InMemoryClassLoader loader = new InMemoryClassLoader(Map.of("Frames", classFile), new File(TestUtils.getLibsClasspath()));
+
+        Class.forName("Frames", true, loader);
+        assertEquals("5\n15\n2\n3\n6", new WorkerJvmRunner().run("Frames", classFile).trim());
+    }
+
+    @Test
+    public void mergedFramesAreVerified() throws ClassNotFoundException {
+        byte[] classFile = new ClassFileBackend().toClassFile(ollirClass(MERGES));
+        InMemoryClassLoader loader = new InMemoryClassLoader(Map.of("Merges", classFile), new File(TestUtils.getLibsClasspath()));
+
+        Class.forName("Merges", true, loader);
+        assertEquals("3\n4\n12\n5\n7", new WorkerJvmRunner().run("Merges", classFile).trim());
+    }
+
+    @Test
+    public void framesAtJoinsMergeBothBranches() {
+        String javap = javap("Merges", new ClassFileBackend().toClassFile(ollirClass(MERGES)));
+
+        /* one frame where the else branch starts and one where the branches join */
+        String objects = method(javap, "objects");
+        assertTrue(objects, objects.contains("number_of_entries = 2"));
+
+        /* m is this on one side and a new object on the other, both of the class, and a is an array either way */
+        Matcher join = Pattern.compile("full_frame \\*/\\s+offset_delta = \\d+\\s+locals = \\[ (.*) \\]").matcher(objects);
+        assertTrue(objects, join.find());
+        assertTrue(join.group(1), join.group(1).contains("class Merges"));
+        assertTrue(join.group(1), join.group(1).contains("class \"[I\""));
+
+        /* the loop header and the exit are the only targets, and the local defined inside the loop is not in them */
+        String inLoop = method(javap, "inLoop");
+        assertTrue(inLoop, inLoop.contains("number_of_entries = 2"));
+        assertTrue(inLoop, inLoop.contains("locals = [ int, int ]"));
+    }
+}
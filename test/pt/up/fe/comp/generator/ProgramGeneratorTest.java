@@ -0,0 +1,94 @@
+package pt.up.fe.comp.generator;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.ClassFileBackend;
+import pt.up.fe.comp2023.WorkerJvmRunner;
+import pt.up.fe.comp2023.generator.ProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProgramGeneratorTest {
+    private static final ProgramGenerator.Options OPTIONS = ProgramGenerator.Options.DEFAULT.withMethods(6);
+
+    private static final long[] SEEDS = {1, 2, 3};
+
+    /* the class file javac makes of the program, read as Java once the Java-- import is dropped and the class is
+       public, as the classes of our backends are */
+    private static byte[] javac(String className, String program) {
+        try {
+            File dir = Files.createTempDirectory("generated").toFile();
+            File source = new File(dir, className + ".java");
+            SpecsIo.write(source, program.replace("import io;", "").replace("class " + className, "public class " + className));
+
+            ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            int status = ToolProvider.getSystemJavaCompiler().run(null, null, errors,
+                    "-nowarn", "-cp", TestUtils.getLibsClasspath(), "-d", dir.getPath(), source.getPath());
+            assertEquals(errors.toString(), 0, status);
+
+            byte[] classFile = Files.readAllBytes(new File(dir, className + ".class").toPath());
+            SpecsIo.deleteFolder(dir);
+
+            return classFile;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] compile(String program, Map<String, String> config) {
+        OllirResult ollirResult = TestUtils.optimize(program, config);
+        TestUtils.noErrors(ollirResult.getReports());
+
+        return ClassFileBackend.fromConfig(config).toClassFile(ollirResult.getOllirClass());
+    }
+
+    private static void assertRunsLikeJavac(Map<String, String> config) {
+        WorkerJvmRunner runner = new WorkerJvmRunner();
+
+        for (long seed : SEEDS) {
+            String className = "Generated" + seed;
+            String program = new ProgramGenerator(OPTIONS, seed).generate(className);
+
+            String expected = runner.run(className, javac(className, program));
+            String output = runner.run(className, compile(program, config));
+
+            assertFalse("Expected " + className + " to print something", expected.isBlank());
+            assertEquals(className + " with " + config, expected, output);
+        }
+    }
+
+    @Test
+    public void sameSeedSameProgram() {
+        assertEquals(new ProgramGenerator(OPTIONS, 7).generate("Generated7"), new ProgramGenerator(OPTIONS, 7).generate("Generated7"));
+        assertNotEquals(new ProgramGenerator(OPTIONS, 7).generate("Generated7"), new ProgramGenerator(OPTIONS, 8).generate("Generated7"));
+    }
+
+    @Test
+    public void classFilesRunLikeJavac() {
+        assertRunsLikeJavac(Map.of());
+    }
+
+    @Test
+    public void optimizedClassFilesRunLikeJavac() {
+        assertRunsLikeJavac(Map.of("optimize", "true"));
+    }
+
+    @Test
+    public void allocatedClassFilesRunLikeJavac() {
+        assertRunsLikeJavac(Map.of("optimize", "true", "registerAllocation", "0"));
+    }
+
+    @Test
+    public void classFilesWithoutPeepholeRunLikeJavac() {
+        assertRunsLikeJavac(Map.of("peephole", "false"));
+    }
+}
@@ -0,0 +1,76 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2023.optimization.ollir.ConstantPropagation;
+import pt.up.fe.comp2023.optimization.ollir.ControlFlow;
+
+import static org.junit.Assert.*;
+
+public class ConstantPropagationTest {
+    private static final String RESOURCE = "const_prop/Constants.ollir";
+
+    private static ClassUnit propagate() {
+        ClassUnit classUnit = OllirTestUtils.parse(RESOURCE);
+
+        for (Method method : classUnit.getMethods()) {
+            if (!method.isConstructMethod() && new ConstantPropagation(method).optimize()) ControlFlow.rebuild(method);
+        }
+
+        return classUnit;
+    }
+
+    @Test
+    public void operationsOnConstantsAreFolded() {
+        String code = OllirTestUtils.print(propagate(), "fold");
+
+        assertTrue(code, code.contains("b.i32 :=.i32 12.i32;"));
+        assertTrue(code, code.contains("ret.i32 12.i32;"));
+    }
+
+    @Test
+    public void sameConstantOnEveryPathIsKnownAtTheJoin() {
+        String code = OllirTestUtils.print(propagate(), "joinSame");
+
+        assertTrue(code, code.contains("end:\n\t\tr.i32 :=.i32 3.i32;"));
+    }
+
+    @Test
+    public void differentConstantsAtTheJoinVary() {
+        String code = OllirTestUtils.print(propagate(), "joinDifferent");
+
+        assertTrue(code, code.contains("r.i32 :=.i32 x.i32 +.i32 1.i32;"));
+        assertTrue(code, code.contains("ret.i32 r.i32;"));
+    }
+
+    @Test
+    public void constantsSurviveLoopsThatDoNotWriteThem() {
+        String code = OllirTestUtils.print(propagate(), "loop");
+
+        /* k is 5 around the loop, while i changes in it */
+        assertTrue(code, code.contains("i.i32 :=.i32 i.i32 +.i32 5.i32;"));
+        assertTrue(code, code.contains("if (i.i32 >=.bool $1.n.i32) goto end;"));
+    }
+
+    @Test
+    public void knownBranchAndUnreachableCodeAreRemoved() {
+        String code = OllirTestUtils.print(propagate(), "knownBranch");
+
+        assertFalse(code, code.contains("if ("));
+        assertFalse(code, code.contains("neg:"));
+        assertFalse(code, code.contains("ret.i32 2.i32;"));
+    }
+
+    @Test
+    public void divisionByZeroIsNotFolded() {
+        String code = OllirTestUtils.print(propagate(), "divisionByZero");
+
+        assertTrue(code, code.contains("r.i32 :=.i32 $1.a.i32 /.i32 0.i32;"));
+    }
+
+    @Test
+    public void behaviourIsKept() {
+        assertEquals("12\n3\n2\n3\n15\n1", OllirTestUtils.run(propagate()));
+    }
+}
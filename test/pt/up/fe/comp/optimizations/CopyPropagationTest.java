@@ -0,0 +1,70 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp2023.optimization.ollir.CopyPropagation;
+
+import static org.junit.Assert.*;
+
+public class CopyPropagationTest {
+    private static final String RESOURCE = "copy_prop/Copies.ollir";
+
+    private static ClassUnit propagate() {
+        ClassUnit classUnit = OllirTestUtils.parse(RESOURCE);
+
+        for (Method method : classUnit.getMethods()) {
+            if (!method.isConstructMethod()) new CopyPropagation().optimize(method);
+        }
+
+        return classUnit;
+    }
+
+    @Test
+    public void temporaryIsCoalescedIntoTheCopy() {
+        ClassUnit classUnit = propagate();
+        String code = OllirTestUtils.print(classUnit, "coalesce");
+
+        assertTrue(code, code.contains("x.i32 :=.i32 $1.a.i32 +.i32 1.i32;\n\t\tret.i32 x.i32;"));
+        assertFalse(code, code.contains("t1"));
+        assertFalse(OllirTestUtils.method(classUnit, "coalesce").getVarTable().containsKey("t1"));
+    }
+
+    @Test
+    public void readsOfCopyUseTheSource() {
+        String code = OllirTestUtils.print(propagate(), "propagate");
+
+        /* the reads keep the parameter they now name */
+        assertTrue(code, code.contains("z.i32 :=.i32 $1.a.i32 *.i32 $1.a.i32;"));
+    }
+
+    @Test
+    public void readsOfLiteralCopyUseTheLiteral() {
+        String code = OllirTestUtils.print(propagate(), "literal");
+
+        assertTrue(code, code.contains("r.i32 :=.i32 5.i32 +.i32 1.i32;"));
+    }
+
+    @Test
+    public void propagationStopsWhenTheSourceIsWritten() {
+        String code = OllirTestUtils.print(propagate(), "stopsAtWrite");
+
+        /* y is still live after 'x := y', so the copy stays, but x is y only until y := b */
+        assertTrue(code, code.contains("x.i32 :=.i32 y.i32;"));
+        assertTrue(code, code.contains("r.i32 :=.i32 y.i32 +.i32 y.i32;"));
+        assertTrue(code, code.contains("s.i32 :=.i32 x.i32 +.i32 $2.b.i32;"));
+    }
+
+    @Test
+    public void propagationStopsAtLabels() {
+        String code = OllirTestUtils.print(propagate(), "stopsAtLabel");
+
+        /* x is a or 0 at the label, depending on the branch */
+        assertTrue(code, code.contains("skip:\n\t\tr.i32 :=.i32 x.i32 +.i32 1.i32;"));
+    }
+
+    @Test
+    public void behaviourIsKept() {
+        assertEquals("5\n9\n6\n19\n5\n1", OllirTestUtils.run(propagate()));
+    }
+}
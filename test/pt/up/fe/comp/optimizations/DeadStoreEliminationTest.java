@@ -0,0 +1,68 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp2023.optimization.ollir.DeadStoreElimination;
+
+import static org.junit.Assert.*;
+
+public class DeadStoreEliminationTest {
+    private static final String RESOURCE = "dead_stores/DeadStores.ollir";
+
+    private static ClassUnit eliminate() {
+        ClassUnit classUnit = OllirTestUtils.parse(RESOURCE);
+
+        for (String methodName : new String[]{"chain", "keepsEffects", "loop", "main"}) {
+            new DeadStoreElimination().optimize(OllirTestUtils.method(classUnit, methodName));
+        }
+
+        return classUnit;
+    }
+
+    @Test
+    public void storeMadeDeadByAnotherIsRemoved() {
+        ClassUnit classUnit = eliminate();
+        String code = OllirTestUtils.print(classUnit, "chain");
+
+        /* t1 is never read, and t0 only by t1 */
+        assertFalse(code, code.contains("t1.i32 :="));
+        assertFalse(code, code.contains("t0.i32 :="));
+        assertTrue(code, code.contains("x.i32 :=.i32 $1.a.i32;"));
+        assertFalse(OllirTestUtils.method(classUnit, "chain").getVarTable().containsKey("t0"));
+        assertFalse(OllirTestUtils.method(classUnit, "chain").getVarTable().containsKey("t1"));
+    }
+
+    @Test
+    public void storesWithEffectsAreKept() {
+        String code = OllirTestUtils.print(eliminate(), "keepsEffects");
+
+        /* the division may throw, and so may the array access */
+        assertTrue(code, code.contains("d.i32 :=.i32 $1.a.i32 /.i32 0.i32;"));
+        assertTrue(code, code.contains("e.i32 :=.i32 $2.arr[0.i32].i32;"));
+    }
+
+    @Test
+    public void deadCallResultKeepsTheCall() {
+        String code = OllirTestUtils.print(eliminate(), "keepsEffects");
+
+        assertFalse(code, code.contains("c.i32 :="));
+        assertTrue(code, code.contains("invokevirtual(this, \"chain\", $1.a.i32).i32;"));
+    }
+
+    @Test
+    public void labelOfRemovedStoreMovesToTheNextInstruction() {
+        String code = OllirTestUtils.print(eliminate(), "loop");
+
+        assertFalse(code, code.contains("u.i32"));
+        assertTrue(code, code.contains("cond:\n\t\tif (i.i32 >=.bool $1.n.i32) goto end;"));
+    }
+
+    @Test
+    public void liveStoresAreKept() {
+        ClassUnit classUnit = eliminate();
+        String code = OllirTestUtils.print(classUnit, "main");
+
+        assertEquals(2, code.split("r\\.i32 :=", -1).length - 1);
+        assertEquals("4\n3", OllirTestUtils.run(classUnit));
+    }
+}
@@ -0,0 +1,92 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Instruction;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.optimization.ollir.InstructionLiveness;
+import pt.up.fe.comp2023.optimization.ollir.Liveness;
+import pt.up.fe.comp2023.optimization.ollir.MethodLiveness;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class LivenessTest {
+    private static List<MethodLiveness> compute() {
+        OllirResult ollirResult = new OllirResult(SpecsIo.getResource("pt/up/fe/comp/optimizations/liveness/LivenessLoop.ollir"),
+                Collections.emptyMap());
+
+        return new Liveness(ollirResult.getOllirClass()).in();
+    }
+
+    private static MethodLiveness liveness(String methodName) {
+        return compute().stream()
+                .filter(liveness -> liveness.getMethod().getMethodName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Set<String> names(MethodLiveness liveness, BitSet variables) {
+        return variables.stream().mapToObj(liveness::nameOf).collect(Collectors.toSet());
+    }
+
+    /* the in and out sets of the instruction at the index */
+    private static void assertLive(MethodLiveness liveness, int index, Set<String> in, Set<String> out) {
+        Instruction instruction = liveness.getInstructions().get(index);
+        InstructionLiveness iliv = liveness.get(instruction);
+
+        assertEquals("in of " + instruction, in, names(liveness, iliv.getIn()));
+        assertEquals("out of " + instruction, out, names(liveness, iliv.getOut()));
+    }
+
+    @Test
+    public void everyMethodIsComputed() {
+        assertEquals(3, compute().size());
+    }
+
+    @Test
+    public void onlyParametersReadBeforeWrittenAreLiveOnEntry() {
+        MethodLiveness liveness = liveness("sum");
+
+        assertEquals(Set.of("n"), names(liveness, liveness.liveOnEntry()));
+    }
+
+    @Test
+    public void deadStoreIsNeverLive() {
+        MethodLiveness liveness = liveness("sum");
+
+        /* dead := 7 */
+        assertLive(liveness, 2, Set.of("s", "i", "n"), Set.of("s", "i", "n"));
+    }
+
+    @Test
+    public void loopKeepsItsVariablesLive() {
+        MethodLiveness liveness = liveness("sum");
+
+        /* s := s + i, i := i + 1 and the branch back to the body */
+        assertLive(liveness, 4, Set.of("s", "i", "n"), Set.of("s", "i", "n"));
+        assertLive(liveness, 5, Set.of("s", "i", "n"), Set.of("s", "i", "n"));
+        assertLive(liveness, 6, Set.of("s", "i", "n"), Set.of("s", "i", "n"));
+
+        /* ret s */
+        assertLive(liveness, 7, Set.of("s"), Set.of());
+    }
+
+    @Test
+    public void branchJoinsBothPaths() {
+        MethodLiveness liveness = liveness("pick");
+
+        assertEquals(Set.of("a", "b", "c"), names(liveness, liveness.liveOnEntry()));
+
+        /* if (c) goto then; x := b; goto end; then: x := a; end: ret x */
+        assertLive(liveness, 0, Set.of("a", "b", "c"), Set.of("a", "b"));
+        assertLive(liveness, 1, Set.of("b"), Set.of("x"));
+        assertLive(liveness, 3, Set.of("a"), Set.of("x"));
+        assertLive(liveness, 4, Set.of("x"), Set.of());
+    }
+}
@@ -0,0 +1,48 @@
+package pt.up.fe.comp.optimizations;
+
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.MyJasminBackend;
+import pt.up.fe.comp2023.OllirPrinter;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.Collections;
+
+/**
+ * Helpers for the tests that run a single OLLIR pass over a class written by hand.
+ */
+class OllirTestUtils {
+    private OllirTestUtils() {
+    }
+
+    /* the class in a resource of these tests, with its CFGs built */
+    static ClassUnit parse(String resource) {
+        OllirResult ollirResult = new OllirResult(SpecsIo.getResource("pt/up/fe/comp/optimizations/" + resource),
+                Collections.emptyMap());
+        ollirResult.getOllirClass().buildCFGs();
+
+        return ollirResult.getOllirClass();
+    }
+
+    static Method method(ClassUnit classUnit, String methodName) {
+        return classUnit.getMethods().stream()
+                .filter(method -> method.getMethodName().equals(methodName))
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Could not find OLLIR method with name '" + methodName + "'"));
+    }
+
+    /* the OLLIR code of a method, from its header to its closing brace */
+    static String print(ClassUnit classUnit, String methodName) {
+        String code = new OllirPrinter().print(classUnit);
+        int start = code.indexOf(" " + methodName + "(");
+        int end = code.indexOf("\t}\n", start);
+
+        return code.substring(code.lastIndexOf('\n', start) + 1, end + 2);
+    }
+
+    /* what the class prints when its main method runs */
+    static String run(ClassUnit classUnit) {
+        return new MyJasminBackend().toJasmin(classUnit).run().trim();
+    }
+}
@@ -0,0 +1,121 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.ClassFileBackend;
+import pt.up.fe.comp2023.WorkerJvmRunner;
+import pt.up.fe.comp2023.optimization.peephole.CompareWithZero;
+import pt.up.fe.comp2023.optimization.peephole.IincFormation;
+import pt.up.fe.comp2023.optimization.peephole.JumpThreading;
+import pt.up.fe.comp2023.optimization.peephole.LoadStoreElimination;
+import pt.up.fe.comp2023.optimization.peephole.PeepholeOptimizer;
+import pt.up.fe.comp2023.optimization.peephole.PeepholeRule;
+import pt.up.fe.comp2023.optimization.peephole.RedundantGotoElimination;
+import pt.up.fe.comp2023.optimization.peephole.UnreachableCodeElimination;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PeepholeTest {
+    private static final String RESOURCE = "pt/up/fe/comp/optimizations/peephole/Peephole.jmm";
+
+    /* the Jasmin code with only the given rule applied, which must fire the given number of times */
+    private static String apply(PeepholeRule rule, int fires, String body, Set<Integer> temporaries) {
+        PeepholeOptimizer peephole = new PeepholeOptimizer(List.of(rule));
+        String optimized = peephole.optimize(body, temporaries);
+
+        assertEquals(rule.name() + " on\n" + body, fires, peephole.getFireCount(rule.name()));
+
+        return optimized;
+    }
+
+    private static String apply(PeepholeRule rule, int fires, String body) {
+        return apply(rule, fires, body, Set.of());
+    }
+
+    @Test
+    public void storeOfTheLoadedValueIsRemoved() {
+        assertEquals("\tiload_2\n\tireturn\n",
+                apply(new LoadStoreElimination(), 1, "\tiload_2\n\tistore_2\n\tiload_2\n\tireturn\n"));
+    }
+
+    @Test
+    public void temporaryPassesItsValueOnTheStack() {
+        String body = "\tiload_1\n\ticonst_1\n\tiadd\n\tistore 5\n\tiload 5\n\tireturn\n";
+
+        assertEquals("\tiload_1\n\ticonst_1\n\tiadd\n\tireturn\n", apply(new LoadStoreElimination(), 1, body, Set.of(5)));
+
+        /* a variable of the program keeps its store */
+        assertEquals(body, apply(new LoadStoreElimination(), 0, body, Set.of()));
+    }
+
+    @Test
+    public void smallConstantAddedToALocalIsIinc() {
+        assertEquals("\tiinc 2 1\n", apply(new IincFormation(), 1, "\tiload_2\n\ticonst_1\n\tiadd\n\tistore_2\n"));
+        assertEquals("\tiinc 4 -3\n", apply(new IincFormation(), 1, "\tiload 4\n\ticonst_3\n\tisub\n\tistore 4\n"));
+        assertEquals("\tiinc 2 7\n", apply(new IincFormation(), 1, "\tbipush 7\n\tiload_2\n\tiadd\n\tistore_2\n"));
+
+        /* the increment of 'iinc' is a signed byte */
+        String large = "\tiload_2\n\tsipush 200\n\tiadd\n\tistore_2\n";
+        assertEquals(large, apply(new IincFormation(), 0, large));
+    }
+
+    @Test
+    public void comparisonWithZeroUsesTheOneOperandBranch() {
+        assertEquals("\tiload_1\n\tiflt L\n\treturn\nL:\n\treturn\n",
+                apply(new CompareWithZero(), 1, "\tiload_1\n\ticonst_0\n\tif_icmplt L\n\treturn\nL:\n\treturn\n"));
+
+        /* '0 < x' is 'x > 0' */
+        assertEquals("\tiload_1\n\tifgt L\n\treturn\nL:\n\treturn\n",
+                apply(new CompareWithZero(), 1, "\ticonst_0\n\tiload_1\n\tif_icmplt L\n\treturn\nL:\n\treturn\n"));
+    }
+
+    @Test
+    public void jumpToAGotoGoesToItsTarget() {
+        String body = "\tiload_1\n\tifeq A\n\ticonst_1\n\tireturn\nA:\n\tgoto B\nB:\n\ticonst_0\n\tireturn\n";
+
+        assertEquals("\tiload_1\n\tifeq B\n\ticonst_1\n\tireturn\nA:\n\tgoto B\nB:\n\ticonst_0\n\tireturn\n",
+                apply(new JumpThreading(), 1, body));
+    }
+
+    @Test
+    public void gotoToAReturnIsTheReturn() {
+        assertEquals("\tiload_1\n\tifeq A\n\treturn\nA:\nB:\n\treturn\n",
+                apply(new JumpThreading(), 1, "\tiload_1\n\tifeq A\n\tgoto B\nA:\nB:\n\treturn\n"));
+    }
+
+    @Test
+    public void gotoToTheNextLineIsRemoved() {
+        assertEquals("\tiload_1\n\tifeq A\n\ticonst_1\n\tistore_2\nA:\nB:\n\treturn\n",
+                apply(new RedundantGotoElimination(), 1, "\tiload_1\n\tifeq A\n\ticonst_1\n\tistore_2\n\tgoto B\nA:\nB:\n\treturn\n"));
+    }
+
+    @Test
+    public void codeAfterAGotoIsRemovedUpToATarget() {
+        /* A is no jump's target, so the code after it is unreachable too */
+        assertEquals("\tgoto B\nB:\n\treturn\n",
+                apply(new UnreachableCodeElimination(), 1, "\tgoto B\n\ticonst_1\n\tistore_2\nA:\n\ticonst_2\n\tistore_2\nB:\n\treturn\n"));
+    }
+
+    @Test
+    public void classFileGetsTheSameRules() {
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE));
+        ClassFileBackend backend = new ClassFileBackend();
+        byte[] classFile = backend.toClassFile(ollirResult.getOllirClass());
+
+        for (PeepholeRule rule : PeepholeOptimizer.defaultRules()) {
+            assertTrue(backend.getPeephole().describe(), backend.getPeephole().getFireCount(rule.name()) > 0);
+        }
+
+        String jasminCode = TestUtils.backend(ollirResult).getJasminCode();
+        assertTrue(jasminCode, jasminCode.contains("iinc 2 1"));
+        assertTrue(jasminCode, jasminCode.contains("ifgt if_then_1"));
+
+        assertEquals("50\n-1\n1", new WorkerJvmRunner().run("Peephole", classFile).trim());
+        assertEquals("50\n-1\n1", TestUtils.backend(ollirResult).run().trim());
+    }
+}
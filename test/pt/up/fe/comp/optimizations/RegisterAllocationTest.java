@@ -0,0 +1,129 @@
+package pt.up.fe.comp.optimizations;
+
+import org.junit.Test;
+import org.specs.comp.ollir.Instruction;
+import pt.up.fe.comp.CpUtils;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.optimization.ollir.InstructionLiveness;
+import pt.up.fe.comp2023.optimization.ollir.MethodLiveness;
+import pt.up.fe.comp2023.optimization.ollir.RegisterAllocator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegisterAllocationTest {
+    private static final String RESOURCE = "pt/up/fe/comp/optimizations/reg_alloc/RegisterPressure.jmm";
+
+    private static MethodLiveness liveness(String methodName) {
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE));
+        ollirResult.getOllirClass().buildCFGs();
+
+        MethodLiveness liveness = new MethodLiveness(CpUtils.getMethod(ollirResult, methodName));
+        liveness.compute();
+
+        return liveness;
+    }
+
+    private static JasminResult backend(int registers) {
+        return TestUtils.backend(SpecsIo.getResource(RESOURCE), Map.of("registerAllocation", String.valueOf(registers)));
+    }
+
+    private static int localsLimit(JasminResult jasminResult, String methodName) {
+        Matcher matcher = Pattern.compile("\\.limit\\s+locals\\s+(\\d+)").matcher(CpUtils.getJasminMethod(jasminResult, methodName));
+        assertTrue("Expected a .limit locals directive in " + methodName, matcher.find());
+
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    @Test
+    public void minimumColouringFitsAndSeparatesInterferences() {
+        for (String methodName : new String[]{"manyLive", "fewLive"}) {
+            MethodLiveness liveness = liveness(methodName);
+            RegisterAllocator allocator = new RegisterAllocator(liveness);
+
+            int minimum = allocator.minimumRegisters();
+            Map<String, Integer> colours = allocator.colour(minimum);
+
+            assertNotNull("Expected a colouring with " + minimum + " registers", colours);
+            assertTrue(minimum >= allocator.reservedRegisters());
+
+            for (Map.Entry<String, Integer> colour : colours.entrySet()) {
+                assertTrue(colour.getKey() + " is in register " + colour.getValue() + " of " + minimum, colour.getValue() < minimum);
+            }
+
+            /* a variable written while another is live afterwards cannot share its register */
+            for (Instruction instruction : liveness.getInstructions()) {
+                InstructionLiveness iliv = liveness.get(instruction);
+                BitSet def = iliv.getDef();
+                BitSet out = iliv.getOut();
+
+                for (int d = def.nextSetBit(0); d >= 0; d = def.nextSetBit(d + 1)) {
+                    for (int live = out.nextSetBit(0); live >= 0; live = out.nextSetBit(live + 1)) {
+                        String defined = liveness.nameOf(d);
+                        String other = liveness.nameOf(live);
+
+                        if (d == live || !colours.containsKey(defined) || !colours.containsKey(other)) continue;
+
+                        assertNotEquals(defined + " and " + other + " interfere", colours.get(defined), colours.get(other));
+                    }
+                }
+            }
+
+            assertNull("Expected no colouring below the minimum", allocator.colour(minimum - 1));
+        }
+    }
+
+    @Test
+    public void chainOfTemporariesSharesRegisters() {
+        MethodLiveness liveness = liveness("fewLive");
+        RegisterAllocator allocator = new RegisterAllocator(liveness);
+
+        /* 'this', x and a single register for a, b and c, each dead once the next is written */
+        assertEquals(3, allocator.minimumRegisters());
+    }
+
+    @Test
+    public void localsLimitIsAtMostRequested() {
+        int minimum = new RegisterAllocator(liveness("manyLive")).minimumRegisters();
+
+        JasminResult original = TestUtils.backend(SpecsIo.getResource(RESOURCE));
+        JasminResult allocated = backend(minimum);
+
+        assertTrue(localsLimit(allocated, "manyLive") <= minimum);
+        assertEquals(original.run().trim(), allocated.run().trim());
+    }
+
+    @Test
+    public void fewestRegistersWithZero() {
+        JasminResult allocated = backend(0);
+
+        assertEquals(new RegisterAllocator(liveness("manyLive")).minimumRegisters(), localsLimit(allocated, "manyLive"));
+        assertEquals("32\n8", allocated.run().trim());
+    }
+
+    @Test
+    public void tooFewRegistersIsReported() {
+        int minimum = new RegisterAllocator(liveness("manyLive")).minimumRegisters();
+
+        OllirResult ollirResult = TestUtils.optimize(SpecsIo.getResource(RESOURCE),
+                Map.of("registerAllocation", String.valueOf(minimum - 1)));
+
+        Report error = ollirResult.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .findFirst()
+                .orElse(null);
+
+        assertNotNull("Expected an error when asking for " + (minimum - 1) + " registers", error);
+        assertTrue(error.getMessage(), error.getMessage().contains(
+                "'manyLive' could not be allocated in " + (minimum - 1) + " registers; the allocator needs " + minimum + "."));
+    }
+}